@@ -4,6 +4,7 @@
 --    Include forecast tables so cached projections don't mix with the new history.
 DELETE FROM ingredient_forecast;
 DELETE FROM dish_forecast;
+DELETE FROM dish_demand_rollup;
 DELETE FROM reviews;
 DELETE FROM order_item;
 DELETE FROM orders;
@@ -365,3 +366,14 @@ VALUES
   (4000, 100, 1008, 2, 5, 'Perfect for study sessions', '2024-09-13 09:00:00'),
   (4001, 101, 1108, 3, 5, 'Great after lectures', '2024-09-06 09:00:00'),
   (4002, 100, 1007, 3, 3, 'Tasty but spicy', '2024-08-13 09:00:00');
+
+-- 6) Rebuild the demand rollup from the completed orders so a running app forecasts from the new history.
+DELETE FROM dish_demand_rollup;
+INSERT INTO dish_demand_rollup (id, dish_id, grain, bucket_start, quantity)
+SELECT nextval('seq_gen'), b.dish_id, b.grain, b.bucket_start, SUM(b.quantity)
+FROM (SELECT oi.dish_id, g.grain, date_trunc(lower(g.grain), o.creation_date_time) AS bucket_start, oi.quantity
+      FROM orders o
+      JOIN order_item oi ON oi.order_id = o.id
+      CROSS JOIN (VALUES ('HOUR'), ('DAY'), ('MONTH')) AS g(grain)
+      WHERE o.status = 'COMPLETED' AND o.creation_date_time IS NOT NULL) b
+GROUP BY b.dish_id, b.grain, b.bucket_start;
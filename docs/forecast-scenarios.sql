@@ -20,6 +20,17 @@ INSERT INTO order_item (id, dish_id, quantity, order_id) VALUES
   (2005, 1,25, 1005),
   (2006, 1,30, 1006);
 
+-- Rebuild the demand rollup from the completed orders so a running app forecasts from the new history.
+DELETE FROM dish_demand_rollup;
+INSERT INTO dish_demand_rollup (id, dish_id, grain, bucket_start, quantity)
+SELECT nextval('seq_gen'), b.dish_id, b.grain, b.bucket_start, SUM(b.quantity)
+FROM (SELECT oi.dish_id, g.grain, date_trunc(lower(g.grain), o.creation_date_time) AS bucket_start, oi.quantity
+      FROM orders o
+      JOIN order_item oi ON oi.order_id = o.id
+      CROSS JOIN (VALUES ('HOUR'), ('DAY'), ('MONTH')) AS g(grain)
+      WHERE o.status = 'COMPLETED' AND o.creation_date_time IS NOT NULL) b
+GROUP BY b.dish_id, b.grain, b.bucket_start;
+
 -- Scenario 2: Mean-reverting demand (high then low months)
 DELETE FROM order_item;
 DELETE FROM orders;
@@ -38,6 +49,17 @@ INSERT INTO order_item (id, dish_id, quantity, order_id) VALUES
   (3005, 1,20,2005),
   (3006, 1,5, 2006);
 
+-- Rebuild the demand rollup from the completed orders so a running app forecasts from the new history.
+DELETE FROM dish_demand_rollup;
+INSERT INTO dish_demand_rollup (id, dish_id, grain, bucket_start, quantity)
+SELECT nextval('seq_gen'), b.dish_id, b.grain, b.bucket_start, SUM(b.quantity)
+FROM (SELECT oi.dish_id, g.grain, date_trunc(lower(g.grain), o.creation_date_time) AS bucket_start, oi.quantity
+      FROM orders o
+      JOIN order_item oi ON oi.order_id = o.id
+      CROSS JOIN (VALUES ('HOUR'), ('DAY'), ('MONTH')) AS g(grain)
+      WHERE o.status = 'COMPLETED' AND o.creation_date_time IS NOT NULL) b
+GROUP BY b.dish_id, b.grain, b.bucket_start;
+
 -- Scenario 3: Sparse sporadic orders (only a few months)
 DELETE FROM order_item;
 DELETE FROM orders;
@@ -49,3 +71,14 @@ INSERT INTO order_item (id, dish_id, quantity, order_id) VALUES
   (4001, 1,10,3001),
   (4002, 1,12,3002),
   (4003, 1,11,3003);
+
+-- Rebuild the demand rollup from the completed orders so a running app forecasts from the new history.
+DELETE FROM dish_demand_rollup;
+INSERT INTO dish_demand_rollup (id, dish_id, grain, bucket_start, quantity)
+SELECT nextval('seq_gen'), b.dish_id, b.grain, b.bucket_start, SUM(b.quantity)
+FROM (SELECT oi.dish_id, g.grain, date_trunc(lower(g.grain), o.creation_date_time) AS bucket_start, oi.quantity
+      FROM orders o
+      JOIN order_item oi ON oi.order_id = o.id
+      CROSS JOIN (VALUES ('HOUR'), ('DAY'), ('MONTH')) AS g(grain)
+      WHERE o.status = 'COMPLETED' AND o.creation_date_time IS NOT NULL) b
+GROUP BY b.dish_id, b.grain, b.bucket_start;
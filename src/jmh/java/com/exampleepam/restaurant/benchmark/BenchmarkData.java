@@ -0,0 +1,103 @@
+package com.exampleepam.restaurant.benchmark;
+
+import com.exampleepam.restaurant.dto.order.OrderLineDto;
+import com.exampleepam.restaurant.entity.Dish;
+import com.exampleepam.restaurant.entity.DishDemandRollup;
+import com.exampleepam.restaurant.entity.Review;
+import com.exampleepam.restaurant.entity.RollupGrain;
+import com.exampleepam.restaurant.entity.User;
+import com.exampleepam.restaurant.service.forecast.HistoryCollector;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Synthetic, seeded inputs for the benchmarks. Series carry a trend, a
+ * yearly season and noise with occasional empty months; interactions follow
+ * a skewed dish popularity so a few dishes dominate like in real menus.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {}
+
+    static List<Integer> monthlySeries(int months, long seed) {
+        Random rnd = new Random(seed);
+        double base = 40 + rnd.nextInt(60);
+        double trend = rnd.nextGaussian();
+        double amplitude = 5 + rnd.nextInt(20);
+        List<Integer> series = new ArrayList<>(months);
+        for (int i = 0; i < months; i++) {
+            double v = base + trend * i + amplitude * Math.sin(2 * Math.PI * i / 12) + rnd.nextGaussian() * 5;
+            series.add(rnd.nextInt(12) == 0 ? 0 : (int) Math.max(0, Math.round(v)));
+        }
+        return series;
+    }
+
+    /** Daily and hourly totals for one dish over the {@code days} before {@code today}. */
+    static HistoryCollector.History history(long dishId, LocalDate today, int days, long seed) {
+        Random rnd = new Random(seed);
+        List<DishDemandRollup> rows = new ArrayList<>();
+        Map<YearMonth, Integer> monthly = new TreeMap<>();
+        for (int i = days; i >= 0; i--) {
+            LocalDate day = today.minusDays(i);
+            int total = 0;
+            for (int h = 10; h < 23; h++) {
+                int qty = rnd.nextInt(h >= 12 && h <= 14 || h >= 18 && h <= 20 ? 6 : 2);
+                rows.add(new DishDemandRollup(dishId, RollupGrain.HOUR, day.atTime(h, 0), qty));
+                total += qty;
+            }
+            rows.add(new DishDemandRollup(dishId, RollupGrain.DAY, day.atStartOfDay(), total));
+            monthly.merge(YearMonth.from(day), total, Integer::sum);
+        }
+        monthly.forEach((ym, total) ->
+                rows.add(new DishDemandRollup(dishId, RollupGrain.MONTH, ym.atDay(1).atStartOfDay(), total)));
+        return HistoryCollector.History.of(rows, today.minusDays(days).atStartOfDay(), days);
+    }
+
+    static List<Review> reviews(int users, int dishes, int perUser, long seed) {
+        Random rnd = new Random(seed);
+        List<Dish> dishList = new ArrayList<>(dishes);
+        for (int d = 1; d <= dishes; d++) {
+            Dish dish = new Dish();
+            dish.setId((long) d);
+            dishList.add(dish);
+        }
+        List<Review> reviews = new ArrayList<>(users * perUser);
+        for (int u = 1; u <= users; u++) {
+            User user = new User();
+            user.setId((long) u);
+            for (int i = 0; i < perUser; i++) {
+                Review review = new Review();
+                review.setUser(user);
+                review.setDish(dishList.get(skewedDish(rnd, dishes) - 1));
+                review.setRating(1 + rnd.nextInt(5));
+                reviews.add(review);
+            }
+        }
+        return reviews;
+    }
+
+    static List<OrderLineDto> orderLines(int users, int dishes, int perUser, long seed) {
+        Random rnd = new Random(seed);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+        List<OrderLineDto> lines = new ArrayList<>(users * perUser);
+        for (int u = 1; u <= users; u++) {
+            for (int i = 0; i < perUser; i++) {
+                lines.add(new OrderLineDto(skewedDish(rnd, dishes), u,
+                        start.plusHours(rnd.nextInt(24 * 365)), 1 + rnd.nextInt(3)));
+            }
+        }
+        return lines;
+    }
+
+    private static int skewedDish(Random rnd, int dishes) {
+        double r = rnd.nextDouble();
+        return 1 + (int) (dishes * r * r);
+    }
+}
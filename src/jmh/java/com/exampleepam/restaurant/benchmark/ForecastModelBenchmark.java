@@ -0,0 +1,84 @@
+package com.exampleepam.restaurant.benchmark;
+
+import com.exampleepam.restaurant.service.forecast.ArimaModel;
+import com.exampleepam.restaurant.service.forecast.ForecastEvaluator;
+import com.exampleepam.restaurant.service.forecast.ForecastResult;
+import com.exampleepam.restaurant.service.forecast.HoltWintersModel;
+import com.exampleepam.restaurant.service.forecast.SeriesBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Monthly model fits, as run once per dish on every forecast refresh. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForecastModelBenchmark {
+
+    private static final int HORIZON = 12;
+    private static final int BATCH_DISHES = 256;
+
+    @Param({"24", "60", "120"})
+    public int months;
+
+    private final HoltWintersModel holtWinters = new HoltWintersModel(12);
+    private final ArimaModel arima = new ArimaModel();
+    private List<Integer> series;
+    private SeriesBatch batch;
+
+    @Setup
+    public void setUp() {
+        series = BenchmarkData.monthlySeries(months, 42L);
+        List<List<Integer>> dishes = new ArrayList<>(BATCH_DISHES);
+        for (int i = 0; i < BATCH_DISHES; i++) {
+            dishes.add(BenchmarkData.monthlySeries(months, 42L + i));
+        }
+        batch = SeriesBatch.of(dishes);
+    }
+
+    @Benchmark
+    public ForecastResult holtWinters() {
+        return holtWinters.forecast(series, HORIZON);
+    }
+
+    @Benchmark
+    public ForecastResult arima() {
+        return arima.forecast(series, HORIZON);
+    }
+
+    /** One refresh worth of dishes fitted in a single batched call. */
+    @Benchmark
+    public List<ForecastResult> holtWintersBatch() {
+        return holtWinters.forecastBatch(batch, HORIZON);
+    }
+
+    @Benchmark
+    public List<ForecastResult> arimaBatch() {
+        return arima.forecastBatch(batch, HORIZON);
+    }
+
+    @Benchmark
+    public ForecastEvaluator.Metrics crossValidateHoltWinters() {
+        return ForecastEvaluator.crossValidate(series, holtWinters, 3);
+    }
+
+    @Benchmark
+    public ForecastEvaluator.Metrics crossValidateArima() {
+        return ForecastEvaluator.crossValidate(series, arima, 3);
+    }
+}
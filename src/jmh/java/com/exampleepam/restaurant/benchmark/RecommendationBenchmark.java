@@ -0,0 +1,101 @@
+package com.exampleepam.restaurant.benchmark;
+
+import com.exampleepam.restaurant.dto.order.OrderLineDto;
+import com.exampleepam.restaurant.entity.Review;
+import com.exampleepam.restaurant.service.FactorizationService;
+import com.exampleepam.restaurant.service.recommendation.CollaborativePredictor;
+import com.exampleepam.restaurant.service.recommendation.RatingMatrixBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/** Rating matrix construction, factorization training and user-based prediction. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecommendationBenchmark {
+
+    private static final int REVIEWS_PER_USER = 5;
+    private static final int ORDER_LINES_PER_USER = 15;
+
+    @Param({"100", "1000", "5000"})
+    public int users;
+
+    @Param({"50", "200"})
+    public int dishes;
+
+    private final RatingMatrixBuilder matrixBuilder = new RatingMatrixBuilder();
+    private final CollaborativePredictor predictor = new CollaborativePredictor();
+    private List<Review> reviews;
+    private List<OrderLineDto> orderLines;
+    private RatingMatrixBuilder.RatingData ratingData;
+    private FactorizationService trained;
+    private FactorizationService singleThreaded;
+    private FactorizationService parallel;
+    private List<Long> catalogue;
+    private long userId;
+
+    @Setup
+    public void setUp() {
+        reviews = BenchmarkData.reviews(users, dishes, REVIEWS_PER_USER, 42L);
+        orderLines = BenchmarkData.orderLines(users, dishes, ORDER_LINES_PER_USER, 43L);
+        ratingData = matrixBuilder.build(reviews, orderLines);
+        trained = new FactorizationService();
+        trained.train(reviews, orderLines);
+        singleThreaded = new FactorizationService(8, 25, 0.02, 0.05, 0L, 1);
+        parallel = new FactorizationService(8, 25, 0.02, 0.05, 0L, 0);
+        catalogue = LongStream.rangeClosed(1, dishes).boxed().toList();
+        userId = users / 2;
+    }
+
+    @Benchmark
+    public RatingMatrixBuilder.RatingData buildMatrix() {
+        return matrixBuilder.build(reviews, orderLines);
+    }
+
+    @TearDown
+    public void tearDown() {
+        trained.shutdown();
+        singleThreaded.shutdown();
+        parallel.shutdown();
+    }
+
+    @Benchmark
+    public FactorizationService trainFactorization() {
+        singleThreaded.train(reviews, orderLines);
+        return singleThreaded;
+    }
+
+    @Benchmark
+    public FactorizationService trainFactorizationParallel() {
+        parallel.train(reviews, orderLines);
+        return parallel;
+    }
+
+    @Benchmark
+    public Map<Long, Double> scoreCatalogue() {
+        return trained.predictAll(userId, catalogue);
+    }
+
+    @Benchmark
+    public Map<Long, Double> predictCollaborative() {
+        return predictor.predict(userId, ratingData);
+    }
+}
@@ -0,0 +1,67 @@
+package com.exampleepam.restaurant.benchmark;
+
+import com.exampleepam.restaurant.service.forecast.DailyForecaster;
+import com.exampleepam.restaurant.service.forecast.HistoryCollector;
+import com.exampleepam.restaurant.service.forecast.HourlyForecaster;
+import com.exampleepam.restaurant.service.forecast.ScaleData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Daily and hourly disaggregation of a monthly forecast for one dish. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScaleForecastBenchmark {
+
+    private static final long DISH_ID = 1L;
+    private static final int HOURLY_HISTORY_DAYS = 30;
+
+    @Param({"90", "365", "730"})
+    public int historyDays;
+
+    private final DailyForecaster dailyForecaster = new DailyForecaster();
+    private final HourlyForecaster hourlyForecaster = new HourlyForecaster();
+    private HistoryCollector.History history;
+    private LocalDate today;
+    private LocalDateTime now;
+    private Map<YearMonth, Integer> monthForecast;
+    private ScaleData daily;
+
+    @Setup
+    public void setUp() {
+        today = LocalDate.now();
+        now = today.atTime(15, 0);
+        history = BenchmarkData.history(DISH_ID, today, historyDays, 42L);
+        YearMonth current = YearMonth.from(today);
+        monthForecast = Map.of(current, 900, current.plusMonths(1), 950);
+        daily = dailyForecaster.forecast(DISH_ID, history, today, monthForecast);
+    }
+
+    @Benchmark
+    public ScaleData daily() {
+        return dailyForecaster.forecast(DISH_ID, history, today, monthForecast);
+    }
+
+    @Benchmark
+    public ScaleData hourly() {
+        return hourlyForecaster.forecast(DISH_ID, history, today, now, daily, HOURLY_HISTORY_DAYS);
+    }
+}
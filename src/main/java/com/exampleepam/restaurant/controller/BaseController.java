@@ -11,10 +11,13 @@ public class BaseController {
     protected static final String FILTER_CATEGORY_PARAM = "filterCategory";
     protected static final String REVERSE_SORT_DIR_PARAM = "reverseSortDir";
     protected static final String STATUS_PARAM = "status";
+    protected static final String CURSOR_PARAM = "cursor";
+    protected static final String WITH_TOTAL_PARAM = "withTotal";
 
     // Attributes
     protected static final String DISH_LIST_ATTRIBUTE = "dishList";
     protected static final String ORDER_LIST_ATTRIBUTE = "orderList";
+    protected static final String KEYSET_ATTRIBUTE = "keyset";
     public static final String USER_BALANCE_SESSION_ATTRIBUTE = "userBalance";
     public static final String USER_CART_ITEMS_SESSION_ATTRIBUTE = "userCartItemsTotalNumber";
     protected static final String ORDER_CREATION_TIME_FIELD = "creationDateTime";
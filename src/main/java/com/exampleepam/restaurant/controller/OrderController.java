@@ -4,6 +4,7 @@ import static com.exampleepam.restaurant.util.ControllerUtil.filterItemsWithoutO
 
 import com.exampleepam.restaurant.dto.order.OrderCreationDto;
 import com.exampleepam.restaurant.dto.order.OrderResponseDto;
+import com.exampleepam.restaurant.entity.paging.KeysetPaged;
 import com.exampleepam.restaurant.entity.paging.Paged;
 import com.exampleepam.restaurant.exception.InsufficientFundsException;
 import com.exampleepam.restaurant.security.AuthenticatedUser;
@@ -149,6 +150,33 @@ public class OrderController extends BaseController {
     return ORDER_HISTORY_PAGE;
   }
 
+  /**
+   * Keyset-paginated order history, newest first; see AdminOrderController#findKeysetPage.
+   */
+  @GetMapping("/history/seek")
+  public String getUserOrdersKeyset(
+      @RequestParam(value = STATUS_PARAM, defaultValue = DEFAULT_CATEGORY) String statusParam,
+      @RequestParam(value = PAGE_SIZE_PARAM, defaultValue = "10") int pageSize,
+      @RequestParam(value = CURSOR_PARAM, required = false) String cursor,
+      @RequestParam(value = WITH_TOTAL_PARAM, defaultValue = "false") boolean withTotal,
+      @AuthenticationPrincipal AuthenticatedUser authenticatedUser,
+      Model model) {
+
+    KeysetPaged<OrderResponseDto> pagedOrder = orderService.findKeysetPageByUser(pageSize,
+        statusParam, cursor, withTotal, authenticatedUser);
+
+    model.addAttribute(ORDER_STATUS_ATTRIBUTE_NAME, statusParam);
+    model.addAttribute(CURRENT_PAGE_PARAM, STARTING_PAGE_NUMBER);
+    model.addAttribute(SORT_FIELD_PARAM, ORDER_CREATION_TIME_FIELD);
+    model.addAttribute(PAGE_SIZE_PARAM, pageSize);
+    model.addAttribute(SORT_DIR_PARAM, DESCENDING_ORDER_SORTING);
+    model.addAttribute(REVERSE_SORT_DIR_PARAM, ASCENDING_ORDER_SORTING);
+    model.addAttribute(WITH_TOTAL_PARAM, withTotal);
+    model.addAttribute(KEYSET_ATTRIBUTE, true);
+    model.addAttribute(ORDER_LIST_ATTRIBUTE, pagedOrder);
+    return ORDER_HISTORY_PAGE;
+  }
+
   @GetMapping
   public String getMappingSupport() {
     return REDIRECT_TO_MENU;
@@ -5,6 +5,7 @@ import com.exampleepam.restaurant.dto.forecast.DishForecastDto;
 import com.exampleepam.restaurant.service.ForecastSummaryService;
 import com.exampleepam.restaurant.entity.Category;
 import com.exampleepam.restaurant.service.DishForecastService;
+import com.exampleepam.restaurant.service.ForecastScheduler;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -12,9 +13,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 
 /**
@@ -29,17 +32,19 @@ public class AdminDishForecastController extends BaseController {
     private static final String FILTER_ATTR = "filter";
     private static final String TYPE_ATTR = "type";
     private static final String SUMMARY_ATTR = "summary";
-    private static final int HISTORY_DAYS = 7;
     private static final int PAGE_SIZE = 6;
 
     private final DishForecastService forecastService;
     private final ForecastSummaryService summaryService;
+    private final ForecastScheduler forecastScheduler;
 
     @Autowired
     public AdminDishForecastController(DishForecastService forecastService,
-                                       ForecastSummaryService summaryService) {
+                                       ForecastSummaryService summaryService,
+                                       ForecastScheduler forecastScheduler) {
         this.forecastService = forecastService;
         this.summaryService = summaryService;
+        this.forecastScheduler = forecastScheduler;
     }
 
     @GetMapping
@@ -49,7 +54,8 @@ public class AdminDishForecastController extends BaseController {
                                @RequestParam(value = "page", defaultValue = "0") int page,
                                Model model) {
         Pageable pageable = PageRequest.of(page, PAGE_SIZE);
-        Page<DishForecastDto> forecasts = forecastService.getDishForecasts(HISTORY_DAYS, filter, type, modelName, pageable);
+        boolean refreshing = forecastScheduler.refreshIfStale(modelName);
+        Page<DishForecastDto> forecasts = forecastService.getStoredForecasts(filter, type, modelName, pageable);
         model.addAttribute(FORECASTS_ATTR, forecasts.getContent());
         model.addAttribute(SUMMARY_ATTR, summaryService.summarize(forecasts.getContent()));
         model.addAttribute("page", forecasts);
@@ -59,9 +65,32 @@ public class AdminDishForecastController extends BaseController {
         model.addAttribute("models", java.util.List.of("holt","arima"));
         model.addAttribute("metrics", forecastService.getModelMetrics());
         model.addAttribute("categories", Category.values());
+        model.addAttribute("refreshing", refreshing);
         return FORECAST_PAGE;
     }
 
+    /**
+     * Starts recomputing the model's forecasts in the background and goes
+     * back to the page, which keeps showing the previous results until the
+     * new ones are published.
+     */
+    @PostMapping("/refresh")
+    public String refresh(@RequestParam(value = "filter", required = false) String filter,
+                          @RequestParam(value = "type", required = false) Category type,
+                          @RequestParam(value = "model", defaultValue = "holt") String modelName,
+                          RedirectAttributes redirectAttributes) {
+        forecastScheduler.refreshAsync(modelName);
+        redirectAttributes.addAttribute("model", modelName);
+        if (filter != null && !filter.isBlank()) {
+            redirectAttributes.addAttribute(FILTER_ATTR, filter);
+        }
+        if (type != null) {
+            redirectAttributes.addAttribute("type", type);
+        }
+        redirectAttributes.addFlashAttribute("refreshStarted", true);
+        return "redirect:/admin/dish-forecast";
+    }
+
     @GetMapping("/details")
     @ResponseBody
     public DishForecastService.ForecastDetails details(@RequestParam("model") String model,
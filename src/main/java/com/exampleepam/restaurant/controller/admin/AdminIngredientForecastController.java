@@ -4,6 +4,7 @@ import com.exampleepam.restaurant.controller.BaseController;
 import com.exampleepam.restaurant.dto.forecast.IngredientForecastDto;
 import com.exampleepam.restaurant.entity.Category;
 import com.exampleepam.restaurant.service.IngredientForecastService;
+import com.exampleepam.restaurant.service.ForecastScheduler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -11,9 +12,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 /**
  * Controller providing ingredient forecasting information for managers.
@@ -25,14 +28,16 @@ public class AdminIngredientForecastController extends BaseController {
     private static final String FORECAST_PAGE = "ingredient-forecast";
     private static final String FORECASTS_ATTR = "forecasts";
     private static final String FILTER_ATTR = "filter";
-    private static final int HISTORY_DAYS = 7;
     private static final int PAGE_SIZE = 6;
 
     private final IngredientForecastService forecastService;
+    private final ForecastScheduler forecastScheduler;
 
     @Autowired
-    public AdminIngredientForecastController(IngredientForecastService forecastService) {
+    public AdminIngredientForecastController(IngredientForecastService forecastService,
+                                             ForecastScheduler forecastScheduler) {
         this.forecastService = forecastService;
+        this.forecastScheduler = forecastScheduler;
     }
 
     @GetMapping
@@ -42,7 +47,8 @@ public class AdminIngredientForecastController extends BaseController {
                                @RequestParam(value = "page", defaultValue = "0") int page,
                                Model model) {
         Pageable pageable = PageRequest.of(page, PAGE_SIZE);
-        Page<IngredientForecastDto> forecasts = forecastService.getIngredientForecasts(HISTORY_DAYS, filter, type, modelName, pageable);
+        boolean refreshing = forecastScheduler.refreshIfStale(modelName);
+        Page<IngredientForecastDto> forecasts = forecastService.getStoredForecasts(filter, type, modelName, pageable);
         model.addAttribute(FORECASTS_ATTR, forecasts.getContent());
         model.addAttribute("page", forecasts);
         model.addAttribute(FILTER_ATTR, filter);
@@ -50,9 +56,32 @@ public class AdminIngredientForecastController extends BaseController {
         model.addAttribute("model", modelName);
         model.addAttribute("models", java.util.List.of("holt","arima"));
         model.addAttribute("categories", Category.values());
+        model.addAttribute("refreshing", refreshing);
         return FORECAST_PAGE;
     }
 
+    /**
+     * Starts recomputing the model's forecasts in the background and goes
+     * back to the page, which keeps showing the previous results until the
+     * new ones are published.
+     */
+    @PostMapping("/refresh")
+    public String refresh(@RequestParam(value = "filter", required = false) String filter,
+                          @RequestParam(value = "type", required = false) Category type,
+                          @RequestParam(value = "model", defaultValue = "holt") String modelName,
+                          RedirectAttributes redirectAttributes) {
+        forecastScheduler.refreshAsync(modelName);
+        redirectAttributes.addAttribute("model", modelName);
+        if (filter != null && !filter.isBlank()) {
+            redirectAttributes.addAttribute(FILTER_ATTR, filter);
+        }
+        if (type != null) {
+            redirectAttributes.addAttribute("type", type);
+        }
+        redirectAttributes.addFlashAttribute("refreshStarted", true);
+        return "redirect:/admin/ingredient-forecast";
+    }
+
     @GetMapping("/details")
     @ResponseBody
     public java.util.List<com.exampleepam.restaurant.entity.IngredientForecast> details(@RequestParam("ingredientId") long id) {
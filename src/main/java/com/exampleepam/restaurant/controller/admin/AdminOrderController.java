@@ -2,6 +2,7 @@ package com.exampleepam.restaurant.controller.admin;
 
 import com.exampleepam.restaurant.controller.BaseController;
 import com.exampleepam.restaurant.dto.order.OrderResponseDto;
+import com.exampleepam.restaurant.entity.paging.KeysetPaged;
 import com.exampleepam.restaurant.entity.paging.Paged;
 import com.exampleepam.restaurant.exception.UnauthorizedActionException;
 import com.exampleepam.restaurant.security.AuthenticatedUser;
@@ -96,6 +97,33 @@ public class AdminOrderController extends BaseController {
         return ORDER_MANAGEMENT_PAGE;
     }
 
+    /**
+     * Keyset-paginated order list, newest first. Follows {@code cursor} links
+     * instead of page numbers, so deep pages cost the same as the first.
+     */
+    @GetMapping("/seek")
+    public String findKeysetPage(@RequestParam(value = STATUS_PARAM, defaultValue = DEFAULT_STATUS) String statusParam,
+                                 @RequestParam(value = PAGE_SIZE_PARAM, defaultValue = "10") int pageSize,
+                                 @RequestParam(value = CURSOR_PARAM, required = false) String cursor,
+                                 @RequestParam(value = WITH_TOTAL_PARAM, defaultValue = "false") boolean withTotal,
+                                 Model model) {
+
+        KeysetPaged<OrderResponseDto> pagedOrder = orderService.findKeysetPage(pageSize, statusParam,
+                cursor, withTotal);
+
+        model.addAttribute(STATUS_PARAM, statusParam);
+        model.addAttribute(CURRENT_PAGE_PARAM, DEFAULT_PAGE_NUMBER);
+        model.addAttribute(SORT_FIELD_PARAM, ORDER_CREATION_TIME_FIELD);
+        model.addAttribute(PAGE_SIZE_PARAM, pageSize);
+        model.addAttribute(SORT_DIR_PARAM, DESCENDING_ORDER_SORTING);
+        model.addAttribute(REVERSE_SORT_DIR_PARAM, ASCENDING_ORDER_SORTING);
+        model.addAttribute(WITH_TOTAL_PARAM, withTotal);
+        model.addAttribute(KEYSET_ATTRIBUTE, true);
+        model.addAttribute(ORDER_LIST_ATTRIBUTE, pagedOrder);
+
+        return ORDER_MANAGEMENT_PAGE;
+    }
+
     @PutMapping(value = "/{orderId}/{action}/page/{pageNo}")
     public String changeOrderStatus(@PathVariable(value = ACTION_PARAM) String action,
                                     @PathVariable(value = ORDER_ID_PARAM) Long orderId,
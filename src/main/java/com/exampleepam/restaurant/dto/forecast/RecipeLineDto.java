@@ -0,0 +1,12 @@
+package com.exampleepam.restaurant.dto.forecast;
+
+import com.exampleepam.restaurant.entity.Category;
+import com.exampleepam.restaurant.entity.MeasureUnit;
+
+/**
+ * Flat read-only projection of one recipe entry: how much of which
+ * ingredient one portion of a dish needs, with the few dish and ingredient
+ * attributes ingredient forecasting uses.
+ */
+public record RecipeLineDto(long dishId, Category category, long ingredientId, String ingredientName,
+                            MeasureUnit unit, int quantity) {}
@@ -0,0 +1,10 @@
+package com.exampleepam.restaurant.dto.order;
+
+import java.time.LocalDateTime;
+
+/**
+ * Flat read-only projection of one order item: which user ordered how many
+ * portions of which dish and when. Used by analytics paths that only need
+ * these four values and must not build a persistence context.
+ */
+public record OrderLineDto(long dishId, long userId, LocalDateTime creationDateTime, int quantity) {}
@@ -0,0 +1,7 @@
+package com.exampleepam.restaurant.dto.review;
+
+/**
+ * Average rating and number of reviews of one dish, as aggregated by the
+ * database for a batch of dishes.
+ */
+public record DishRatingSummary(long dishId, double averageRating, long reviewCount) {}
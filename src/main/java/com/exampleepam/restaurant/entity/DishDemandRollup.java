@@ -0,0 +1,52 @@
+package com.exampleepam.restaurant.entity;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated quantity of a dish sold in completed orders within one
+ * hour, day or month bucket. Rows are maintained incrementally when orders
+ * are completed so forecasting never has to rescan the order table.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "dish_demand_rollup",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"dish_id", "grain", "bucket_start"}),
+        indexes = @Index(columnList = "bucket_start"))
+public class DishDemandRollup extends AbstractBaseEntity {
+
+    /**
+     * Plain id instead of an association: rollups must survive dish deletion
+     * and are never navigated to the dish itself.
+     */
+    @Column(name = "dish_id", nullable = false)
+    private long dishId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 5)
+    private RollupGrain grain;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    private int quantity;
+
+    public DishDemandRollup(long dishId, RollupGrain grain, LocalDateTime bucketStart, int quantity) {
+        this.dishId = dishId;
+        this.grain = grain;
+        this.bucketStart = bucketStart;
+        this.quantity = quantity;
+    }
+}
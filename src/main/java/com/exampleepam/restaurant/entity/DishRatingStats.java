@@ -0,0 +1,77 @@
+package com.exampleepam.restaurant.entity;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+/**
+ * Running rating totals of one dish: sum and number of ratings plus how
+ * many reviews gave each star value. Kept in step with the reviews table
+ * so listings read an average without aggregating over every review.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "dish_rating_stats")
+public class DishRatingStats extends AbstractBaseEntity {
+
+    /** Plain id for the same reason as {@link DishDemandRollup#getDishId()}. */
+    @Column(name = "dish_id", nullable = false, unique = true)
+    private long dishId;
+
+    @Column(name = "rating_sum", nullable = false)
+    private long ratingSum;
+
+    @Column(name = "review_count", nullable = false)
+    private long reviewCount;
+
+    @Column(name = "rating_1", nullable = false)
+    private int rating1;
+
+    @Column(name = "rating_2", nullable = false)
+    private int rating2;
+
+    @Column(name = "rating_3", nullable = false)
+    private int rating3;
+
+    @Column(name = "rating_4", nullable = false)
+    private int rating4;
+
+    @Column(name = "rating_5", nullable = false)
+    private int rating5;
+
+    public DishRatingStats(long dishId) {
+        this.dishId = dishId;
+    }
+
+    /**
+     * Adds {@code count} reviews with the given rating; a negative count
+     * removes them. Ratings outside 1..5 only affect the sum and count.
+     */
+    public void add(int rating, int count) {
+        ratingSum += (long) count * rating;
+        reviewCount += count;
+        switch (rating) {
+            case 1 -> rating1 += count;
+            case 2 -> rating2 += count;
+            case 3 -> rating3 += count;
+            case 4 -> rating4 += count;
+            case 5 -> rating5 += count;
+            default -> { }
+        }
+    }
+
+    public double getAverageRating() {
+        return reviewCount <= 0 ? 0 : (double) ratingSum / reviewCount;
+    }
+
+    /** Number of reviews per star value, index 0 holding one-star reviews. */
+    public int[] getHistogram() {
+        return new int[]{rating1, rating2, rating3, rating4, rating5};
+    }
+}
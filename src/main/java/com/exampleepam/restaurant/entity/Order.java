@@ -12,6 +12,7 @@ import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
@@ -30,7 +31,9 @@ import java.util.List;
 @AllArgsConstructor
 @Getter
 @Setter
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_created_id", columnList = "creationDateTime, id"),
+        @Index(name = "idx_orders_user_created_id", columnList = "user_id, creationDateTime, id")})
 @ToString
 public class Order extends AbstractBaseEntity {
 
@@ -0,0 +1,24 @@
+package com.exampleepam.restaurant.entity;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Time grain of a {@link DishDemandRollup} bucket
+ */
+public enum RollupGrain {
+    HOUR,
+    DAY,
+    MONTH;
+
+    /**
+     * Truncates a timestamp to the start of the bucket it belongs to.
+     */
+    public LocalDateTime bucketStart(LocalDateTime dateTime) {
+        return switch (this) {
+            case HOUR -> dateTime.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> dateTime.truncatedTo(ChronoUnit.DAYS);
+            case MONTH -> dateTime.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package com.exampleepam.restaurant.entity.paging;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.domain.Page;
+
+/**
+ * A {@link Paged} produced by keyset pagination. It has no page numbers:
+ * {@code nextCursor} points to the following page and is {@code null} on
+ * the last one. {@code approximateTotal} is only filled when requested.
+ */
+@Getter
+@Setter
+public class KeysetPaged<T> extends Paged<T> {
+
+    private String cursor;
+    private String nextCursor;
+    private Long approximateTotal;
+
+    public KeysetPaged(Page<T> page, Paging paging, String cursor, String nextCursor, Long approximateTotal) {
+        super(page, paging);
+        this.cursor = cursor;
+        this.nextCursor = nextCursor;
+        this.approximateTotal = approximateTotal;
+    }
+}
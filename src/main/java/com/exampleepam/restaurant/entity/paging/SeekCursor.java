@@ -0,0 +1,38 @@
+package com.exampleepam.restaurant.entity.paging;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Position of the last row shown by a keyset page, ordered by creation time
+ * and id. The next page starts strictly after it, so reaching it costs an
+ * index seek instead of skipping all preceding rows.
+ */
+public record SeekCursor(LocalDateTime creationDateTime, long id) {
+
+    private static final char SEPARATOR = '_';
+
+    public String encode() {
+        return creationDateTime.toString() + SEPARATOR + id;
+    }
+
+    /**
+     * Parses a cursor produced by {@link #encode()}. Returns {@code null} for a
+     * blank or malformed value, which callers treat as the first page.
+     */
+    public static SeekCursor decode(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        int separator = value.lastIndexOf(SEPARATOR);
+        if (separator <= 0) {
+            return null;
+        }
+        try {
+            return new SeekCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.exampleepam.restaurant.repository;
+
+import com.exampleepam.restaurant.entity.DishDemandRollup;
+import com.exampleepam.restaurant.entity.RollupGrain;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DishDemandRollupRepository extends JpaRepository<DishDemandRollup, Long> {
+
+    List<DishDemandRollup> findByBucketStartGreaterThanEqual(LocalDateTime start);
+
+    /**
+     * Adds {@code delta} to an existing bucket in place, so concurrent
+     * increments of the same row are serialized by the row lock.
+     */
+    @Modifying
+    @Query("UPDATE DishDemandRollup r SET r.quantity = r.quantity + :delta " +
+            "WHERE r.dishId = :dishId AND r.grain = :grain AND r.bucketStart = :bucketStart")
+    int increment(@Param("dishId") long dishId, @Param("grain") RollupGrain grain,
+                  @Param("bucketStart") LocalDateTime bucketStart, @Param("delta") int delta);
+
+    /**
+     * Creates a bucket unless a concurrent transaction already created it;
+     * returns 0 in that case instead of failing on the unique key.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO dish_demand_rollup (id, dish_id, grain, bucket_start, quantity) " +
+            "VALUES (nextval('seq_gen'), :dishId, :grain, :bucketStart, :quantity) " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("dishId") long dishId, @Param("grain") String grain,
+                       @Param("bucketStart") LocalDateTime bucketStart, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("DELETE FROM DishDemandRollup r " +
+            "WHERE r.dishId = :dishId AND r.grain = :grain AND r.bucketStart = :bucketStart AND r.quantity <= 0")
+    int deleteIfEmpty(@Param("dishId") long dishId, @Param("grain") RollupGrain grain,
+                      @Param("bucketStart") LocalDateTime bucketStart);
+}
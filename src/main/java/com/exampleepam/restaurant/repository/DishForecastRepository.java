@@ -3,15 +3,29 @@ package com.exampleepam.restaurant.repository;
 import com.exampleepam.restaurant.entity.Dish;
 import com.exampleepam.restaurant.entity.DishForecast;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface DishForecastRepository extends JpaRepository<DishForecast, Long> {
     List<DishForecast> findByDishAndDateAfter(Dish dish, LocalDate date);
-    void deleteByGeneratedAtBefore(LocalDate date);
-    void deleteByDishAndGeneratedAt(Dish dish, LocalDate generatedAt);
-}
 
+    @Modifying
+    @Query("DELETE FROM DishForecast f WHERE f.generatedAt < :date")
+    int deleteByGeneratedAtBefore(@Param("date") LocalDate date);
+
+    /**
+     * Removes the rows generated on the given day for all listed dishes in a
+     * single statement, without loading them first.
+     */
+    @Modifying
+    @Query("DELETE FROM DishForecast f WHERE f.generatedAt = :generatedAt AND f.dish.id IN :dishIds")
+    int deleteByDishIdInAndGeneratedAt(@Param("dishIds") Collection<Long> dishIds,
+                                       @Param("generatedAt") LocalDate generatedAt);
+}
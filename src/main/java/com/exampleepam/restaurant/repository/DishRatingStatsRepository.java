@@ -0,0 +1,59 @@
+package com.exampleepam.restaurant.repository;
+
+import com.exampleepam.restaurant.entity.DishRatingStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DishRatingStatsRepository extends JpaRepository<DishRatingStats, Long> {
+
+    List<DishRatingStats> findByDishIdIn(Collection<Long> dishIds);
+
+    /**
+     * Loads every row for update, so reviews written while the totals are
+     * reconciled wait until the reconciled values are committed.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM DishRatingStats s")
+    List<DishRatingStats> findAllForUpdate();
+
+    /**
+     * Adds the totals of {@code delta} to the row of its dish in place, so
+     * concurrent reviews of the same dish are serialized by the row lock.
+     */
+    @Modifying
+    @Query("UPDATE DishRatingStats s SET " +
+            "s.ratingSum = s.ratingSum + :#{#delta.ratingSum}, " +
+            "s.reviewCount = s.reviewCount + :#{#delta.reviewCount}, " +
+            "s.rating1 = s.rating1 + :#{#delta.rating1}, " +
+            "s.rating2 = s.rating2 + :#{#delta.rating2}, " +
+            "s.rating3 = s.rating3 + :#{#delta.rating3}, " +
+            "s.rating4 = s.rating4 + :#{#delta.rating4}, " +
+            "s.rating5 = s.rating5 + :#{#delta.rating5} " +
+            "WHERE s.dishId = :#{#delta.dishId}")
+    int addTotals(@Param("delta") DishRatingStats delta);
+
+    /**
+     * Creates an all-zero row for the dish unless a concurrent transaction
+     * already created one; returns 0 in that case instead of failing on the
+     * unique key.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO dish_rating_stats " +
+            "(id, dish_id, rating_sum, review_count, rating_1, rating_2, rating_3, rating_4, rating_5) " +
+            "VALUES (nextval('seq_gen'), :dishId, 0, 0, 0, 0, 0, 0, 0) " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertEmpty(@Param("dishId") long dishId);
+
+    @Modifying
+    @Query("DELETE FROM DishRatingStats s WHERE s.dishId = :dishId AND s.reviewCount <= 0")
+    int deleteIfEmpty(@Param("dishId") long dishId);
+}
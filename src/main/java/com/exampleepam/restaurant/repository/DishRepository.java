@@ -1,11 +1,13 @@
 package com.exampleepam.restaurant.repository;
 
+import com.exampleepam.restaurant.dto.forecast.RecipeLineDto;
 import com.exampleepam.restaurant.entity.Category;
 import com.exampleepam.restaurant.entity.Dish;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -31,4 +33,13 @@ public interface DishRepository extends JpaRepository<Dish, Long> {
     Page<Dish> findAllByArchivedTrue(Pageable pageable);
 
     List<Dish> findAllByArchivedTrue(Sort sort);
+
+    /**
+     * Every recipe entry of every dish, archived ones included, as flat rows
+     * in insertion order. Loads no Dish or Ingredient entities.
+     */
+    @Query("SELECT new com.exampleepam.restaurant.dto.forecast.RecipeLineDto(" +
+            "d.id, d.category, i.id, i.name, i.unit, di.quantity) " +
+            "FROM DishIngredient di JOIN di.dish d JOIN di.ingredient i ORDER BY di.id")
+    List<RecipeLineDto> findRecipeLines();
 }
@@ -3,15 +3,29 @@ package com.exampleepam.restaurant.repository;
 import com.exampleepam.restaurant.entity.Ingredient;
 import com.exampleepam.restaurant.entity.IngredientForecast;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface IngredientForecastRepository extends JpaRepository<IngredientForecast, Long> {
     List<IngredientForecast> findByIngredientAndDateAfter(Ingredient ingredient, LocalDate date);
-    void deleteByGeneratedAtBefore(LocalDate date);
-    void deleteByIngredientAndGeneratedAt(Ingredient ingredient, LocalDate generatedAt);
-}
 
+    @Modifying
+    @Query("DELETE FROM IngredientForecast f WHERE f.generatedAt < :date")
+    int deleteByGeneratedAtBefore(@Param("date") LocalDate date);
+
+    /**
+     * Removes the rows generated on the given day for all listed ingredients
+     * in a single statement, without loading them first.
+     */
+    @Modifying
+    @Query("DELETE FROM IngredientForecast f WHERE f.generatedAt = :generatedAt AND f.ingredient.id IN :ingredientIds")
+    int deleteByIngredientIdInAndGeneratedAt(@Param("ingredientIds") Collection<Long> ingredientIds,
+                                             @Param("generatedAt") LocalDate generatedAt);
+}
@@ -1,35 +1,107 @@
 package com.exampleepam.restaurant.repository;
 
+import com.exampleepam.restaurant.dto.order.OrderLineDto;
 import com.exampleepam.restaurant.entity.Order;
 import com.exampleepam.restaurant.entity.Status;
+import com.exampleepam.restaurant.entity.paging.SeekCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    Page<Order> findOrdersByStatus(Status status, Pageable pageable);
+    /*
+     * Listing pages are read in two phases: one of the id queries below
+     * selects and counts the page, then findAllForListingByIdIn loads those
+     * orders with everything the order DTO shows. The number of queries per
+     * page stays constant instead of growing with the distinct dishes on it.
+     */
+
+    @Query("SELECT o.id FROM Order o")
+    Page<Long> findPageIds(Pageable pageable);
+
+    @Query("SELECT o.id FROM Order o WHERE o.status IN :statusList")
+    Page<Long> findPageIdsWhereStatusOneOf(@Param("statusList") Collection<Status> statusList,
+                                           Pageable pageable);
+
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId")
+    Page<Long> findPageIdsByUserId(@Param("userId") long userId, Pageable pageable);
+
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId AND o.status IN :statusList")
+    Page<Long> findPageIdsByUserIdWhereStatusOneOf(@Param("userId") long userId,
+                                                   @Param("statusList") Collection<Status> statusList,
+                                                   Pageable pageable);
+
+    /**
+     * Loads the given orders together with their user, review, items and the
+     * items' dishes in one query. The result is in no particular order.
+     */
+    @Query("SELECT DISTINCT o FROM Order o JOIN FETCH o.user LEFT JOIN FETCH o.review " +
+            "LEFT JOIN FETCH o.orderItems i LEFT JOIN FETCH i.dish WHERE o.id IN :ids")
+    List<Order> findAllForListingByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Keyset queries select the sort key of every row rather than only its id,
+     * so the next page's cursor is taken from the id page itself.
+     */
+    String SEEK_KEY = "new com.exampleepam.restaurant.entity.paging.SeekCursor(o.creationDateTime, o.id)";
 
-    @Query("SELECT o FROM Order o WHERE o.status IN :statusList")
-    Page<Order> findOrdersWhereStatusOneOf(@Param(value = "statusList") List<Status> statusList, Pageable pageable);
+    /**
+     * First keyset page: keys of the newest orders with one of the given statuses. The
+     * pageable only limits the rows; no count query is issued.
+     */
+    @Query("SELECT " + SEEK_KEY + " FROM Order o WHERE o.status IN :statuses " +
+            "ORDER BY o.creationDateTime DESC, o.id DESC")
+    List<SeekCursor> findKeysetFirst(@Param("statuses") Collection<Status> statuses, Pageable pageable);
+
+    /**
+     * Keyset page following the order with the given creation time and id.
+     */
+    @Query("SELECT " + SEEK_KEY + " FROM Order o WHERE o.status IN :statuses " +
+            "AND (o.creationDateTime < :time OR (o.creationDateTime = :time AND o.id < :id)) " +
+            "ORDER BY o.creationDateTime DESC, o.id DESC")
+    List<SeekCursor> findKeysetAfter(@Param("statuses") Collection<Status> statuses,
+                                     @Param("time") LocalDateTime time, @Param("id") long id,
+                                     Pageable pageable);
+
+    @Query("SELECT " + SEEK_KEY + " FROM Order o WHERE o.user.id = :userId AND o.status IN :statuses " +
+            "ORDER BY o.creationDateTime DESC, o.id DESC")
+    List<SeekCursor> findKeysetFirstByUserId(@Param("userId") long userId,
+                                             @Param("statuses") Collection<Status> statuses, Pageable pageable);
 
-    @Query("SELECT o FROM Order o WHERE o.user.id = :id")
-    Page<Order> findAllOrdersByUserId(@Param(value = "id") long id, Pageable pageable);
+    @Query("SELECT " + SEEK_KEY + " FROM Order o WHERE o.user.id = :userId AND o.status IN :statuses " +
+            "AND (o.creationDateTime < :time OR (o.creationDateTime = :time AND o.id < :id)) " +
+            "ORDER BY o.creationDateTime DESC, o.id DESC")
+    List<SeekCursor> findKeysetAfterByUserId(@Param("userId") long userId,
+                                             @Param("statuses") Collection<Status> statuses,
+                                             @Param("time") LocalDateTime time, @Param("id") long id,
+                                             Pageable pageable);
 
-    @Query("SELECT o FROM Order o WHERE o.status IN :statusList AND o.id = :id")
-    Page<Order> findOrdersByUserIdWhereStatusOneOf(
-            @Param(value = "id") long id,
-            @Param(value = "statusList") List<Status> statusList, Pageable pageable);
+    long countByStatusIn(Collection<Status> statuses);
 
-//    @Query("SELECT o FROM Order o WHERE o.status = :status AND o.id = :id")
-Page<Order> findOrdersByStatusAndUserId(@Param(value = "status") Status status,
-                                            @Param(value = "id") long id, Pageable pageable);
+    long countByUserIdAndStatusIn(long userId, Collection<Status> statuses);
+
+    /**
+     * Planner estimate of the number of rows in the orders table of the
+     * current schema. Cheap, but only as fresh as the last ANALYZE; negative
+     * if the table was never analysed. PostgreSQL only.
+     */
+    @Query(value = "SELECT CAST(reltuples AS BIGINT) FROM pg_class " +
+            "WHERE relname = 'orders' AND relnamespace = CAST(current_schema() AS regnamespace)", nativeQuery = true)
+    Long estimateRowCount();
 
     List<Order> findByStatusAndCreationDateTimeAfter(Status status, LocalDateTime dateTime);
 
@@ -40,4 +112,17 @@ Page<Order> findOrdersByStatusAndUserId(@Param(value = "status") Status status,
      * serialise.
      */
     List<Order> findByStatus(Status status);
+
+    /**
+     * Streams one flat row per order item of orders with the given status,
+     * without materializing Order, User, OrderItem or Dish entities. Rows are
+     * read through a forward-only cursor, so the caller must consume the
+     * stream inside a transaction and close it.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT new com.exampleepam.restaurant.dto.order.OrderLineDto(" +
+            "i.dish.id, o.user.id, o.creationDateTime, i.quantity) " +
+            "FROM OrderItem i JOIN i.order o WHERE o.status = :status")
+    Stream<OrderLineDto> streamLinesByStatus(@Param("status") Status status);
 }
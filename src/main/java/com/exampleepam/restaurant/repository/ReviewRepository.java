@@ -28,6 +28,13 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     @Query("select count(r) from Review r where r.dish.id = :dishId")
     Long countByDishId(@Param("dishId") Long dishId);
 
+    /**
+     * Number of reviews per dish and rating value. Each Object[] holds the dish
+     * id, the rating and the count. Used to rebuild the dish rating stats.
+     */
+    @Query("select r.dish.id, r.rating, count(r) from Review r group by r.dish.id, r.rating")
+    List<Object[]> countRatingsByDish();
+
     /**
      * Fetch all reviews together with their associated user and dish.
      * This helps avoid lazy loading overhead when performing recommendation
@@ -6,7 +6,10 @@ import com.exampleepam.restaurant.entity.Dish;
 import com.exampleepam.restaurant.repository.DishRepository;
 import com.exampleepam.restaurant.service.forecast.ForecastModel;
 import com.exampleepam.restaurant.service.forecast.ForecastResult;
+import com.exampleepam.restaurant.service.forecast.CrossValidationCache;
+import com.exampleepam.restaurant.service.forecast.DishCrossValidationJob;
 import com.exampleepam.restaurant.service.forecast.ForecastEvaluator;
+import com.exampleepam.restaurant.service.forecast.ForecastResultStore;
 import com.exampleepam.restaurant.service.forecast.HistoryCollector;
 import com.exampleepam.restaurant.service.forecast.ScaleData;
 import com.exampleepam.restaurant.service.forecast.MonthlyResult;
@@ -16,15 +19,18 @@ import com.exampleepam.restaurant.service.forecast.HourlyForecaster;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
 
 /**
  * Service that produces demand forecasts for dishes. Forecasting uses Holt's
@@ -33,24 +39,35 @@ import java.util.stream.Collectors;
  * shape both the expected level and the trajectory of future demand. The
  * resulting predictions are rounded to integers since fractional portions of
  * dishes cannot be prepared.
+ * <p>
+ * Dishes are forecast independently, so the CPU-bound model fitting fans out
+ * over a bounded pool sized by {@code forecast.parallelism} (defaults to the
+ * number of cores). Monthly models are fitted in batches of dishes so models
+ * can evaluate many series per kernel call; the daily and hourly breakdowns
+ * then run per dish. Results are collected in dish order and persisted in a
+ * single batch afterwards, which keeps the output deterministic.
+ * <p>
+ * Every run also publishes its forecasts, model details and metrics to the
+ * {@link ForecastResultStore}, which serves the admin pages between
+ * refreshes; the service itself keeps no per-dish state.
  */
 @Service
 public class DishForecastService {
 
     private static final Logger log = LoggerFactory.getLogger(DishForecastService.class);
+    /** Smallest number of dishes worth a separate batched monthly fit. */
+    private static final int MIN_SLICE_SIZE = 64;
 
     private final DishRepository dishRepository;
     private final HistoryCollector historyCollector;
     private final MonthlyForecaster monthlyForecaster;
     private final DailyForecaster dailyForecaster;
     private final HourlyForecaster hourlyForecaster;
+    private final ForecastResultStore resultStore;
+    private final CrossValidationCache cvCache;
+    private final DishCrossValidationJob dishCrossValidationJob;
     private final Map<String, ForecastModel> models;
-    private final Map<String, Map<Long, ForecastResult>> latestResults = new HashMap<>();
-    private final Map<String, Map<Long, List<Integer>>> latestHistory = new HashMap<>();
-    private final Map<String, ForecastEvaluator.Metrics> modelMetrics = new HashMap<>();
-    private final Map<String, Map<Long, Boolean>> singlePointFlags = new HashMap<>();
-    private final Map<String, Map<Long, Boolean>> noDataFlags = new HashMap<>();
-    private final Map<String, Map<Long, Boolean>> emptyForecastFlags = new HashMap<>();
+    private final ForkJoinPool forecastPool;
 
     @Autowired
     public DishForecastService(DishRepository dishRepository,
@@ -58,30 +75,44 @@ public class DishForecastService {
                                MonthlyForecaster monthlyForecaster,
                                DailyForecaster dailyForecaster,
                                HourlyForecaster hourlyForecaster,
-                               List<ForecastModel> models) {
+                               ForecastResultStore resultStore,
+                               CrossValidationCache cvCache,
+                               DishCrossValidationJob dishCrossValidationJob,
+                               List<ForecastModel> models,
+                               @Value("${forecast.parallelism:0}") int parallelism) {
         this.dishRepository = dishRepository;
         this.historyCollector = historyCollector;
         this.monthlyForecaster = monthlyForecaster;
         this.dailyForecaster = dailyForecaster;
         this.hourlyForecaster = hourlyForecaster;
+        this.resultStore = resultStore;
+        this.cvCache = cvCache;
+        this.dishCrossValidationJob = dishCrossValidationJob;
         this.models = models.stream().collect(Collectors.toMap(ForecastModel::getName, m -> m));
+        this.forecastPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        forecastPool.shutdown();
     }
 
     /**
      * Builds forecast data for dishes across hourly, daily and monthly ranges.
+     * Runs without a transaction, so no connection is held while the history
+     * is collected and the models are cross-validated and fitted; with
+     * {@code persist} only the monthly rows are written in one.
      *
      * @param historyDays number of previous days to analyse for hourly trends
      * @param filter      optional dish name filter
      * @param type        optional dish category filter
      * @return page of forecast DTOs, possibly empty
      */
-    @Transactional
     public Page<DishForecastDto> getDishForecasts(int historyDays, String filter, Category type,
                                                   String modelName, Pageable pageable) {
         return getDishForecasts(historyDays, filter, type, modelName, pageable, false);
     }
 
-    @Transactional
     public Page<DishForecastDto> getDishForecasts(int historyDays, String filter, Category type,
                                                   String modelName, Pageable pageable, boolean persist) {
         LocalDate today = LocalDate.now();
@@ -89,11 +120,11 @@ public class DishForecastService {
 
         // 1. Load order history and aggregate to hourly/daily/monthly totals.
         HistoryCollector.History history = historyCollector.collect(start);
-        // evaluate models once per request using global monthly totals
+        // evaluate models on the global monthly totals; unchanged totals are served from the CV cache
         List<Integer> globalMonths = history.globalMonthlyTotals();
         for (var e : models.entrySet()) {
-            ForecastEvaluator.Metrics m = ForecastEvaluator.crossValidate(globalMonths, e.getValue(), 3);
-            modelMetrics.put(e.getKey(), m);
+            ForecastEvaluator.Metrics m = cvCache.crossValidate(globalMonths, e.getValue(), 3);
+            resultStore.putMetrics(e.getKey(), m);
             log.info("Model {} CV MAPE={} RMSE={}", e.getKey(), m.mape(), m.rmse());
         }
 
@@ -103,14 +134,106 @@ public class DishForecastService {
                 : PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("name"));
         Page<Dish> dishes = loadDishes(filter, type, sortedPageable);
 
-        // 3. Build forecast DTOs for each dish.
-        List<DishForecastDto> result = new ArrayList<>();
+        // 3. Compute forecasts for every dish in parallel and publish the results.
+        boolean complete = (filter == null || filter.isBlank()) && type == null && sortedPageable.isUnpaged();
+        List<DishForecastDto> result = computeAndRecord(dishes.getContent(), history, modelName, historyDays,
+                persist, complete);
+
+        return new PageImpl<>(result, pageable, dishes.getTotalElements());
+    }
+
+    /**
+     * Returns the forecasts of the last refresh, filtered by dish name and
+     * category and sorted by name. No model is fitted.
+     */
+    public Page<DishForecastDto> getStoredForecasts(String filter, Category type, String modelName,
+                                                    Pageable pageable) {
+        return resultStore.findDishes(modelName, filter, type, pageable);
+    }
+
+    /**
+     * Recomputes the forecasts of the given dishes only, e.g. after an order
+     * with them was completed. Forecasts of other dishes and the models'
+     * cross-validation metrics are left as they are. Runs without a
+     * transaction; only the monthly rows are persisted in one.
+     *
+     * @return forecast DTOs of the dishes that exist and are not archived
+     */
+    public List<DishForecastDto> forecastDishes(Collection<Long> dishIds, String modelName, int historyDays,
+                                                boolean persist) {
+        List<Dish> dishes = dishRepository.findAllById(dishIds).stream()
+                .filter(d -> !d.isArchived())
+                .sorted(Comparator.comparing(Dish::getName))
+                .toList();
+        if (dishes.isEmpty()) {
+            return List.of();
+        }
+        HistoryCollector.History history = historyCollector.collect(LocalDate.now().minusYears(3).atStartOfDay());
+        return computeAndRecord(dishes, history, modelName, historyDays, persist, false);
+    }
+
+    /**
+     * Fits every dish on the forecast pool, optionally persists the monthly
+     * projections in one batch and publishes the results to the store.
+     * A {@code complete} run covers every active dish and replaces the
+     * model's stored results; otherwise only the given dishes are updated.
+     */
+    private List<DishForecastDto> computeAndRecord(List<Dish> dishes, HistoryCollector.History history,
+                                                   String modelName, int historyDays, boolean persist,
+                                                   boolean complete) {
+        LocalDate today = LocalDate.now();
         LocalDateTime now = LocalDateTime.now();
-        for (Dish dish : dishes.getContent()) {
-            result.add(buildForecastForDish(dish, history, today, now, historyDays, modelName, persist));
+        ForecastModel model = models.get(modelName);
+        // no repository access inside the tasks
+        List<MonthlyResult> monthly = forecastMonthly(dishes, history, model);
+        List<CompletableFuture<DishComputation>> tasks = new ArrayList<>(dishes.size());
+        for (int i = 0; i < dishes.size(); i++) {
+            Dish dish = dishes.get(i);
+            MonthlyResult monthResult = monthly.get(i);
+            tasks.add(CompletableFuture.supplyAsync(
+                    () -> computeForecastForDish(dish, monthResult, history, today, now, historyDays), forecastPool));
         }
+        List<DishComputation> computed = tasks.stream().map(CompletableFuture::join).toList();
 
-        return new PageImpl<>(result, pageable, dishes.getTotalElements());
+        if (persist) {
+            Map<Dish, MonthlyResult> toPersist = new LinkedHashMap<>();
+            computed.forEach(c -> toPersist.put(c.dish(), c.monthly()));
+            monthlyForecaster.persist(toPersist);
+        }
+        List<DishForecastDto> result = new ArrayList<>(computed.size());
+        List<ForecastResultStore.StoredDish> stored = new ArrayList<>(computed.size());
+        for (DishComputation c : computed) {
+            result.add(c.dto());
+            stored.add(new ForecastResultStore.StoredDish(c.dto(), c.dish().getCategory(), c.monthly()));
+        }
+        if (complete) {
+            resultStore.replaceDishes(modelName, stored);
+        } else {
+            resultStore.putDishes(modelName, stored);
+        }
+        dishCrossValidationJob.submit(modelName, stored);
+        return result;
+    }
+
+    /**
+     * Fits the monthly models of all dishes. The dishes are split into at most
+     * one contiguous slice per pool thread, each fitted with one batched model
+     * call, so series of a slice share the model's batch kernels while the
+     * slices still run in parallel. Results are in dish order.
+     */
+    private List<MonthlyResult> forecastMonthly(List<Dish> dishes, HistoryCollector.History history,
+                                                ForecastModel model) {
+        int slices = Math.max(1, Math.min(forecastPool.getParallelism(), dishes.size() / MIN_SLICE_SIZE));
+        int sliceSize = (dishes.size() + slices - 1) / slices;
+        List<CompletableFuture<List<MonthlyResult>>> tasks = new ArrayList<>(slices);
+        for (int from = 0; from < dishes.size(); from += sliceSize) {
+            List<Dish> slice = dishes.subList(from, Math.min(from + sliceSize, dishes.size()));
+            tasks.add(CompletableFuture.supplyAsync(
+                    () -> monthlyForecaster.forecastAll(slice, history, model), forecastPool));
+        }
+        List<MonthlyResult> results = new ArrayList<>(dishes.size());
+        tasks.forEach(t -> results.addAll(t.join()));
+        return results;
     }
 
     /** Fetches dishes applying optional name and category filters. */
@@ -127,27 +250,22 @@ public class DishForecastService {
     }
 
     /**
-     * Builds forecasts for a single dish. The method generates monthly
-     * predictions using Holt's linear trend and then distributes the monthly
-     * values down to days and hours.
+     * Builds forecasts for a single dish from its monthly predictions by
+     * distributing the monthly values down to days and hours. Runs on the
+     * forecast pool, so it must not touch shared state or repositories.
      */
-    private DishForecastDto buildForecastForDish(Dish dish, HistoryCollector.History history, LocalDate today,
-                                                LocalDateTime now, int historyDays, String modelName, boolean persist) {
+    private DishComputation computeForecastForDish(Dish dish, MonthlyResult monthResult,
+                                                   HistoryCollector.History history, LocalDate today,
+                                                   LocalDateTime now, int historyDays) {
         long id = dish.getId();
 
         Map<String, List<String>> labelsMap = new HashMap<>();
         Map<String, List<Integer>> actualMap = new HashMap<>();
         Map<String, List<Integer>> forecastMap = new HashMap<>();
 
-        MonthlyResult monthResult = monthlyForecaster.forecast(dish, history, models.get(modelName), persist);
         if (monthResult.noData()) {
             log.warn("Dish {} has no completed order history", id);
         }
-        latestResults.computeIfAbsent(modelName, k -> new HashMap<>()).put(id, monthResult.result());
-        latestHistory.computeIfAbsent(modelName, k -> new HashMap<>()).put(id, monthResult.modelHistory());
-        singlePointFlags.computeIfAbsent(modelName, k -> new HashMap<>()).put(id, monthResult.singlePoint());
-        noDataFlags.computeIfAbsent(modelName, k -> new HashMap<>()).put(id, monthResult.noData());
-        emptyForecastFlags.computeIfAbsent(modelName, k -> new HashMap<>()).put(id, monthResult.emptyForecast());
         labelsMap.put("monthly", monthResult.scale().labels());
         actualMap.put("monthly", monthResult.scale().actual());
         forecastMap.put("monthly", monthResult.scale().forecast());
@@ -162,26 +280,32 @@ public class DishForecastService {
         actualMap.put("hourly", hourly.actual());
         forecastMap.put("hourly", hourly.forecast());
 
-        return new DishForecastDto(id, dish.getName(), dish.getimagePath(), labelsMap, actualMap, forecastMap,
-                monthResult.singlePoint(), monthResult.noData(), monthResult.emptyForecast());
+        DishForecastDto dto = new DishForecastDto(id, dish.getName(), dish.getimagePath(), labelsMap, actualMap,
+                forecastMap, monthResult.singlePoint(), monthResult.noData(), monthResult.emptyForecast());
+        return new DishComputation(dish, monthResult, dto);
     }
 
+    private record DishComputation(Dish dish, MonthlyResult monthly, DishForecastDto dto) {}
+
+    /**
+     * Model output behind a dish's forecast, read from one stored snapshot so
+     * the history, result and flags always belong to the same run.
+     */
     public ForecastDetails getDetails(String modelName, long dishId) {
-        Map<Long, List<Integer>> h = latestHistory.getOrDefault(modelName, Map.of());
-        Map<Long, ForecastResult> r = latestResults.getOrDefault(modelName, Map.of());
-        Map<Long, Boolean> sp = singlePointFlags.getOrDefault(modelName, Map.of());
-        Map<Long, Boolean> nd = noDataFlags.getOrDefault(modelName, Map.of());
-        Map<Long, Boolean> ef = emptyForecastFlags.getOrDefault(modelName, Map.of());
-        return new ForecastDetails(h.getOrDefault(dishId, List.of()),
-                r.get(dishId), sp.getOrDefault(dishId, false), nd.getOrDefault(dishId, false),
-                ef.getOrDefault(dishId, false));
+        return resultStore.findDish(modelName, dishId)
+                .map(d -> {
+                    MonthlyResult m = d.monthly();
+                    return new ForecastDetails(m.modelHistory(), m.result(), m.singlePoint(), m.noData(),
+                            m.emptyForecast(), d.metrics());
+                })
+                .orElseGet(() -> new ForecastDetails(List.of(), null, false, false, false, null));
     }
 
     public record ForecastDetails(List<Integer> history, ForecastResult result, boolean singlePoint, boolean noData,
-                                  boolean emptyForecast) {}
+                                  boolean emptyForecast, ForecastEvaluator.Metrics metrics) {}
 
     public Map<String, ForecastEvaluator.Metrics> getModelMetrics() {
-        return modelMetrics;
+        return resultStore.metrics();
     }
 
     // Legacy Holt linear helpers removed in favour of ForecastModel implementation.
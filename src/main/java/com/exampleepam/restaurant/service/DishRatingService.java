@@ -0,0 +1,178 @@
+package com.exampleepam.restaurant.service;
+
+import com.exampleepam.restaurant.dto.dish.DishResponseDto;
+import com.exampleepam.restaurant.dto.review.DishRatingSummary;
+import com.exampleepam.restaurant.entity.DishRatingStats;
+import com.exampleepam.restaurant.repository.DishRatingStatsRepository;
+import com.exampleepam.restaurant.repository.ReviewRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Supplies average ratings and review counts for dish listings from the
+ * {@code dish_rating_stats} table. Reviews update the running totals as they
+ * are written, so a read costs one indexed row per dish regardless of how
+ * many reviews the dish has. A nightly job reconciles the totals with the
+ * reviews table.
+ */
+@Slf4j
+@Service
+public class DishRatingService {
+
+    private final DishRatingStatsRepository statsRepository;
+    private final ReviewRepository reviewRepository;
+
+    @Autowired
+    public DishRatingService(DishRatingStatsRepository statsRepository, ReviewRepository reviewRepository) {
+        this.statsRepository = statsRepository;
+        this.reviewRepository = reviewRepository;
+    }
+
+    /**
+     * Rating summaries keyed by dish id. Dishes without reviews are absent.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, DishRatingSummary> summarize(Collection<Long> dishIds) {
+        if (dishIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, DishRatingSummary> result = new HashMap<>();
+        for (DishRatingStats stats : statsRepository.findByDishIdIn(dishIds)) {
+            if (stats.getReviewCount() > 0) {
+                result.put(stats.getDishId(), new DishRatingSummary(
+                        stats.getDishId(), stats.getAverageRating(), stats.getReviewCount()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Average rating of a single dish, or zero when it has no reviews.
+     */
+    public double getAverageRating(long dishId) {
+        DishRatingSummary summary = summarize(List.of(dishId)).get(dishId);
+        return summary == null ? 0 : summary.averageRating();
+    }
+
+    /**
+     * Sets {@code averageRating} and {@code reviewCount} on every DTO; dishes
+     * without reviews get zero for both.
+     */
+    public void decorate(Collection<DishResponseDto> dishes) {
+        Set<Long> ids = new HashSet<>();
+        for (DishResponseDto dto : dishes) {
+            ids.add(dto.getId());
+        }
+        Map<Long, DishRatingSummary> summaries = summarize(ids);
+        for (DishResponseDto dto : dishes) {
+            DishRatingSummary summary = summaries.get(dto.getId());
+            dto.setAverageRating(summary == null ? 0 : summary.averageRating());
+            dto.setReviewCount(summary == null ? 0 : summary.reviewCount());
+        }
+    }
+
+    /**
+     * Adds ({@code sign = 1}) or removes ({@code sign = -1}) one rating of a
+     * dish. Joins the caller's transaction so the totals commit or roll back
+     * together with the review itself. The row is changed with an in-place
+     * increment, and a dish's first review creates it without failing when
+     * another first review of the same dish gets there first.
+     */
+    @Transactional
+    public void recordRating(long dishId, int rating, int sign) {
+        DishRatingStats delta = new DishRatingStats(dishId);
+        delta.add(rating, sign);
+        while (statsRepository.addTotals(delta) == 0) {
+            if (sign < 0) {
+                return;
+            }
+            statsRepository.insertEmpty(dishId);
+        }
+        if (sign < 0) {
+            statsRepository.deleteIfEmpty(dishId);
+        }
+    }
+
+    /**
+     * Backfills the table on first start after the upgrade.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initializeStats() {
+        if (statsRepository.count() == 0) {
+            reconcile();
+        }
+    }
+
+    /**
+     * Recomputes every dish's totals from the reviews table and corrects the
+     * rows that drifted, e.g. after reviews were edited directly in the database.
+     * The existing rows are locked before the reviews are counted, so a review
+     * committed in the meantime is either counted here or applied on top of
+     * the reconciled row once the lock is released, never lost.
+     */
+    @Scheduled(cron = "0 30 2 * * *")
+    @Transactional
+    public void reconcile() {
+        List<DishRatingStats> current = statsRepository.findAllForUpdate();
+        Map<Long, DishRatingStats> expected = new HashMap<>();
+        for (Object[] row : reviewRepository.countRatingsByDish()) {
+            long dishId = ((Number) row[0]).longValue();
+            int rating = ((Number) row[1]).intValue();
+            int count = ((Number) row[2]).intValue();
+            expected.computeIfAbsent(dishId, DishRatingStats::new).add(rating, count);
+        }
+
+        int written = 0;
+        int removed = 0;
+        for (DishRatingStats stats : current) {
+            DishRatingStats target = expected.remove(stats.getDishId());
+            if (target == null) {
+                statsRepository.delete(stats);
+                removed++;
+            } else if (!matches(stats, target)) {
+                copyTotals(target, stats);
+                written++;
+            }
+        }
+        for (DishRatingStats target : expected.values()) {
+            // a row created by a concurrent first review already holds its totals
+            if (statsRepository.insertEmpty(target.getDishId()) > 0) {
+                statsRepository.addTotals(target);
+                written++;
+            }
+        }
+        if (written > 0 || removed > 0) {
+            log.info("Reconciled dish rating stats: {} rows written, {} removed", written, removed);
+        }
+    }
+
+    private static boolean matches(DishRatingStats a, DishRatingStats b) {
+        return a.getRatingSum() == b.getRatingSum()
+                && a.getReviewCount() == b.getReviewCount()
+                && Arrays.equals(a.getHistogram(), b.getHistogram());
+    }
+
+    private static void copyTotals(DishRatingStats from, DishRatingStats to) {
+        to.setRatingSum(from.getRatingSum());
+        to.setReviewCount(from.getReviewCount());
+        to.setRating1(from.getRating1());
+        to.setRating2(from.getRating2());
+        to.setRating3(from.getRating3());
+        to.setRating4(from.getRating4());
+        to.setRating5(from.getRating5());
+    }
+}
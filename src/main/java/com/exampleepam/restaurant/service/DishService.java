@@ -8,13 +8,12 @@ import com.exampleepam.restaurant.entity.paging.Paged;
 import com.exampleepam.restaurant.entity.paging.Paging;
 import com.exampleepam.restaurant.mapper.DishMapper;
 import com.exampleepam.restaurant.repository.DishRepository;
-import com.exampleepam.restaurant.repository.ReviewRepository;
+import com.exampleepam.restaurant.service.forecast.BillOfMaterials;
 import com.exampleepam.restaurant.util.FileUploadUtil;
 import com.exampleepam.restaurant.util.FolderDeleteUtil;
 import com.exampleepam.restaurant.util.ServiceUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheConfig;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -38,16 +37,21 @@ public class DishService {
     private final DishRepository dishRepository;
     private final DishMapper dishMapper;
     private final ServiceUtil serviceUtil;
-    private final ReviewRepository reviewRepository;
+    private final DishRatingService dishRatingService;
+    private final MenuCacheEvictor menuCacheEvictor;
+    private final BillOfMaterials billOfMaterials;
     private static final String CATEGORY_ALL = "all";
 
     @Autowired
     public DishService(DishRepository dishRepository, DishMapper dishMapper, ServiceUtil serviceUtil,
-                       ReviewRepository reviewRepository) {
+                       DishRatingService dishRatingService, MenuCacheEvictor menuCacheEvictor,
+                       BillOfMaterials billOfMaterials) {
         this.dishRepository = dishRepository;
         this.dishMapper = dishMapper;
         this.serviceUtil = serviceUtil;
-        this.reviewRepository = reviewRepository;
+        this.dishRatingService = dishRatingService;
+        this.menuCacheEvictor = menuCacheEvictor;
+        this.billOfMaterials = billOfMaterials;
     }
 
     /**
@@ -61,7 +65,7 @@ public class DishService {
      * @return a Paged object with a sorted and filtered by category list of DishResponseDTOs
      * or an empty list if nothing is found
      */
-    @Cacheable
+    @Cacheable(key = "T(com.exampleepam.restaurant.service.MenuPageKey).of(#p0, #p1, #p2, #p3, #p4)")
     public Paged<DishResponseDto> findPaginated(int currentPage, int pageSize, String sortField,
                                                 String sortDir, String category) {
 
@@ -83,13 +87,8 @@ public class DishService {
                             Category.valueOf(cat.trim().toUpperCase(Locale.ENGLISH)), pageable);
         }
 
-        Page<DishResponseDto> dishResponseDtoPage = dishPage
-                .map(dishMapper::toDishResponseDto)
-                .map(dto -> {
-                    setAverageRating(dto);
-                    setReviewCount(dto);
-                    return dto;
-                });
+        Page<DishResponseDto> dishResponseDtoPage = dishPage.map(dishMapper::toDishResponseDto);
+        dishRatingService.decorate(dishResponseDtoPage.getContent());
 
         return new Paged<>(dishResponseDtoPage, Paging.of(dishPage.getTotalPages(), currentPage, pageSize));
     }
@@ -100,10 +99,13 @@ public class DishService {
      * @param dishCreationDto dish to be saved
      * @return persisted id
      */
-    @CacheEvict(allEntries = true)
     public long save(DishCreationDto dishCreationDto) {
+        Category previous = findCategory(dishCreationDto.getId());
         Dish dish = dishMapper.toDish(dishCreationDto);
-        return dishRepository.save(dish).getId();
+        long id = dishRepository.save(dish).getId();
+        menuCacheEvictor.evictListings(id, previous, dish.getCategory());
+        billOfMaterials.invalidate();
+        return id;
     }
 
     /**
@@ -113,10 +115,12 @@ public class DishService {
      * @param multipartFile   image to be saved
      * @return persisted dish id
      */
-    @CacheEvict(allEntries = true)
     public long saveWithFiles(DishCreationDto dishCreationDto, java.util.List<MultipartFile> multipartFiles) {
+        Category previous = findCategory(dishCreationDto.getId());
         Dish dish = dishMapper.toDish(dishCreationDto);
         long persistedDishId = dishRepository.save(dish).getId();
+        menuCacheEvictor.evictListings(persistedDishId, previous, dish.getCategory());
+        billOfMaterials.invalidate();
         String uploadDir = "dish-images/" + persistedDishId;
         try {
             FolderDeleteUtil.deleteDishFolder(persistedDishId);
@@ -137,12 +141,14 @@ public class DishService {
     /**
      * Updates existing dish and processes image additions/removals.
      */
-    @CacheEvict(allEntries = true)
     public void updateWithFiles(DishCreationDto dto, java.util.List<MultipartFile> newFiles,
                                 java.util.Map<String, MultipartFile> replaceFiles,
                                 java.util.List<String> deleteFileNames) {
+        Category previous = findCategory(dto.getId());
         Dish dish = dishMapper.toDish(dto);
         dishRepository.save(dish);
+        menuCacheEvictor.evictListings(dish.getId(), previous, dish.getCategory());
+        billOfMaterials.invalidate();
         String uploadDir = "dish-images/" + dish.getId();
         try {
             if (deleteFileNames != null) {
@@ -172,7 +178,6 @@ public class DishService {
     /**
      * Legacy method for backward compatibility when only one file was supported.
      */
-    @CacheEvict(allEntries = true)
     public long saveWithFile(DishCreationDto dto, MultipartFile file) {
         java.util.List<MultipartFile> list = new java.util.ArrayList<>();
         list.add(file);
@@ -189,8 +194,7 @@ public class DishService {
     public DishResponseDto getDishById(long id) {
         Dish dish = dishRepository.getById(id);
         DishResponseDto dto = dishMapper.toDishResponseDto(dish);
-        setAverageRating(dto);
-        setReviewCount(dto);
+        dishRatingService.decorate(List.of(dto));
         return dto;
     }
 
@@ -208,8 +212,7 @@ public class DishService {
         List<Dish> dishes = dishRepository.findDishesByCategoryAndArchivedFalse(
                 Category.valueOf(category.toUpperCase(Locale.ENGLISH)), sort);
         List<DishResponseDto> result = dishMapper.toDishResponseDtoList(dishes);
-        assignAverageRatings(result);
-        assignReviewCounts(result);
+        dishRatingService.decorate(result);
         return result;
     }
 
@@ -224,47 +227,27 @@ public class DishService {
         Sort sort = serviceUtil.getSort(sortField, sortDir);
         List<Dish> dishes = dishRepository.findAllByArchivedFalse(sort);
         List<DishResponseDto> result = dishMapper.toDishResponseDtoList(dishes);
-        assignAverageRatings(result);
-        assignReviewCounts(result);
+        dishRatingService.decorate(result);
         return result;
     }
 
-    private void assignAverageRatings(List<DishResponseDto> dishes) {
-        dishes.forEach(this::setAverageRating);
-    }
-
-    private void assignReviewCounts(List<DishResponseDto> dishes) {
-        dishes.forEach(this::setReviewCount);
-    }
-
-    private void setAverageRating(DishResponseDto dto) {
-        Double avg = reviewRepository.getAverageRatingByDishId(dto.getId());
-        dto.setAverageRating(avg == null ? 0 : avg);
-    }
-
-    private void setReviewCount(DishResponseDto dto) {
-        Long count = reviewRepository.countByDishId(dto.getId());
-        dto.setReviewCount(count == null ? 0 : count);
-    }
-
     /**
      * Archive a Dish instead of deleting it. The dish images and reviews remain
      * intact, but it will no longer be shown on the public menu.
      *
      * @param id id of the Dish to be archived
      */
-    @CacheEvict(allEntries = true)
     public void archiveDishById(long id) {
         dishRepository.findById(id).ifPresent(dish -> {
             dish.setArchived(true);
             dishRepository.save(dish);
+            menuCacheEvictor.evictListings(id, dish.getCategory());
         });
     }
 
     /**
      * Alias for archiveDishById used by tests.
      */
-    @CacheEvict(allEntries = true)
     public void deleteDishById(long id) {
         archiveDishById(id);
     }
@@ -272,20 +255,26 @@ public class DishService {
     /**
      * Restore an archived Dish so it appears on the menu again.
      */
-    @CacheEvict(allEntries = true)
     public void restoreDishById(long id) {
         dishRepository.findById(id).ifPresent(dish -> {
             dish.setArchived(false);
             dishRepository.save(dish);
+            menuCacheEvictor.evictListings(id, dish.getCategory());
         });
     }
 
     /**
      * Permanently delete a Dish and its files.
      */
-    @CacheEvict(allEntries = true)
     public void hardDeleteDish(long id) {
+        Category category = findCategory(id);
         dishRepository.deleteById(id);
         FolderDeleteUtil.deleteDishFolder(id);
+        menuCacheEvictor.evictListings(id, category);
+        billOfMaterials.invalidate();
+    }
+
+    private Category findCategory(long id) {
+        return id == 0 ? null : dishRepository.findById(id).map(Dish::getCategory).orElse(null);
     }
 }
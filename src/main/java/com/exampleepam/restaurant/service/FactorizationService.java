@@ -1,28 +1,42 @@
 package com.exampleepam.restaurant.service;
 
-import com.exampleepam.restaurant.entity.Order;
-import com.exampleepam.restaurant.entity.OrderItem;
+import com.exampleepam.restaurant.dto.order.OrderLineDto;
 import com.exampleepam.restaurant.entity.Review;
+import com.exampleepam.restaurant.service.recommendation.InteractionLog;
+import com.exampleepam.restaurant.service.recommendation.LongIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Lightweight matrix factorization with SGD for implicit+explicit feedback.
  * - Uses user/item biases and global mean for better accuracy.
  * - Trains on: reviews (explicit rating) + orders (implicit = 1.0).
- * - Thread-safe for reads: training builds new factor maps and swaps them atomically.
+ * - Thread-safe for reads: training builds a new model and swaps it atomically.
+ * - New interactions are folded in online with a few SGD steps on the affected
+ *   user and item between full retrains.
+ * - User and dish ids are remapped to dense indexes; factors live row-major in
+ *   one contiguous array per side and biases in primitive arrays.
+ * - With more than one training thread each epoch is split into contiguous
+ *   slices of the shuffled interactions that update the shared arrays without
+ *   locks (Hogwild). One thread gives a reproducible, seed-determined model.
  * - Hyperparameters are configurable via constructor.
  */
 @Service
 public class FactorizationService {
 
-    // Model (published atomically after each train)
-    private volatile Map<Long, double[]> userFactors = Collections.emptyMap();
-    private volatile Map<Long, double[]> itemFactors = Collections.emptyMap();
-    private volatile Map<Long, Double> userBias = Collections.emptyMap();
-    private volatile Map<Long, Double> itemBias = Collections.emptyMap();
-    private volatile double globalMean = 0.0;
+    private static final int ONLINE_STEPS = 3;
+    private static final int MIN_INTERACTIONS_PER_THREAD = 4096;
+
+    // Model (published atomically after each train and whenever an online update adds a user or dish)
+    private volatile Model model = Model.EMPTY;
 
     // Hyperparameters
     private final int factors;
@@ -30,128 +44,200 @@ public class FactorizationService {
     private final double alpha;   // learning rate
     private final double lambda;  // L2 reg
     private final long seed;
+    private final int threads;
+
+    // Online updates and the final swap of a train run are serialized on updateLock
+    private final Object updateLock = new Object();
+    private final Object trainLock = new Object();
+    private final Random onlineRnd;
+    private List<Interaction> pending; // observed while a train run is in progress
+
+    private final ForkJoinPool sgdPool;
 
     public FactorizationService() {
         // Sensible defaults; tune if needed
         this(8, 25, 0.02, 0.05, 0L);
     }
 
+    @Autowired
+    public FactorizationService(@Value("${recommendation.factorization.threads:1}") int threads) {
+        this(8, 25, 0.02, 0.05, 0L, threads);
+    }
+
     public FactorizationService(int factors, int epochs, double alpha, double lambda, long seed) {
+        this(factors, epochs, alpha, lambda, seed, 1);
+    }
+
+    /**
+     * @param threads SGD worker threads; 0 means one per available core. Only 1
+     *                trains deterministically: with more, the lock-free updates
+     *                race and the factors vary between runs on the same data
+     */
+    public FactorizationService(int factors, int epochs, double alpha, double lambda, long seed, int threads) {
         if (factors <= 0) throw new IllegalArgumentException("factors must be > 0");
         if (epochs <= 0) throw new IllegalArgumentException("epochs must be > 0");
         if (alpha <= 0) throw new IllegalArgumentException("alpha must be > 0");
         if (lambda < 0) throw new IllegalArgumentException("lambda must be >= 0");
+        if (threads < 0) throw new IllegalArgumentException("threads must be >= 0");
         this.factors = factors;
         this.epochs = epochs;
         this.alpha = alpha;
         this.lambda = lambda;
         this.seed = seed;
+        this.onlineRnd = new Random(seed + 1);
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.sgdPool = this.threads > 1 ? new ForkJoinPool(this.threads) : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (sgdPool != null) sgdPool.shutdownNow();
     }
 
     public boolean isReady() {
-        return !userFactors.isEmpty() && !itemFactors.isEmpty();
+        return !model.isEmpty();
     }
 
     /**
-     * Trains the model on given reviews (explicit) and orders (implicit=1.0).
-     * Safe for concurrent readers of predict(): swaps in new maps at the end.
+     * Trains the model on given reviews (explicit) and order lines (implicit=1.0).
+     * Safe for concurrent readers of predict(): swaps in the new model at the end.
+     * Interactions observed online while training runs are replayed onto the
+     * new model before it is published, so they are not lost by the swap.
      */
-    public void train(List<Review> reviews, List<Order> orders) {
+    public void train(List<Review> reviews, List<OrderLineDto> orderLines) {
         Objects.requireNonNull(reviews, "reviews");
-        Objects.requireNonNull(orders, "orders");
-
-        // Local working state
-        Map<Long, double[]> uFac = new HashMap<>();
-        Map<Long, double[]> iFac = new HashMap<>();
-        Map<Long, Double> uBias = new HashMap<>();
-        Map<Long, Double> iBias = new HashMap<>();
-        List<Interaction> interactions = new ArrayList<>(Math.max(16, reviews.size() + orders.size() * 3));
-
-        Random rnd = new Random(seed);
-
-        // Build interactions + initialize parameters
-        double sumRatings = 0.0;
-        int countRatings = 0;
-
-        for (Review r : reviews) {
-            long uid = r.getUser().getId();
-            long did = r.getDish().getId();
-            double rating = r.getRating(); // assume already normalized or raw star value
+        Objects.requireNonNull(orderLines, "orderLines");
+        train(InteractionLog.of(reviews, orderLines));
+    }
 
-            uFac.computeIfAbsent(uid, k -> randomVector(rnd));
-            iFac.computeIfAbsent(did, k -> randomVector(rnd));
-            uBias.putIfAbsent(uid, 0.0);
-            iBias.putIfAbsent(did, 0.0);
+    /**
+     * Trains on an interaction log: reviews as explicit ratings, order lines
+     * as implicit 1.0. Same model as {@link #train(List, List)} on the same
+     * interactions in the same order.
+     */
+    public void train(InteractionLog interactions) {
+        Objects.requireNonNull(interactions, "interactions");
 
-            interactions.add(new Interaction(uid, did, rating));
-            sumRatings += rating;
-            countRatings++;
+        synchronized (trainLock) {
+            synchronized (updateLock) {
+                pending = new ArrayList<>();
+            }
+            Model trained = null;
+            try {
+                trained = fit(interactions);
+            } finally {
+                synchronized (updateLock) {
+                    if (trained != null) {
+                        if (!trained.isEmpty()) {
+                            for (Interaction in : pending) {
+                                trained = applyOnline(trained, in);
+                            }
+                        }
+                        model = trained;
+                    }
+                    pending = null;
+                }
+            }
         }
+    }
 
-        for (Order o : orders) {
-            long uid = o.getUser().getId();
-            uFac.computeIfAbsent(uid, k -> randomVector(rnd));
-            uBias.putIfAbsent(uid, 0.0);
-
-            for (OrderItem it : o.getOrderItems()) {
-                long did = it.getDish().getId();
-                iFac.computeIfAbsent(did, k -> randomVector(rnd));
-                iBias.putIfAbsent(did, 0.0);
-
-                // Implicit positive signal
-                interactions.add(new Interaction(uid, did, 1.0));
-                sumRatings += 1.0;
-                countRatings++;
+    /**
+     * Folds a single new interaction into the current model with a few SGD
+     * steps on the affected user and item only. Unseen users or dishes get
+     * fresh random vectors. Does nothing before the first full train, which
+     * will pick the interaction up from the database.
+     */
+    public void observe(long userId, long dishId, double rating) {
+        Interaction in = new Interaction(userId, dishId, rating);
+        synchronized (updateLock) {
+            if (pending != null) {
+                pending.add(in);
             }
+            Model current = model;
+            if (current.isEmpty()) return;
+            model = applyOnline(current, in);
         }
+    }
 
-        if (interactions.isEmpty()) {
+    private Model fit(InteractionLog interactions) {
+        int n = interactions.size();
+        if (n == 0) {
             // Publish empty model
-            this.userFactors = Collections.emptyMap();
-            this.itemFactors = Collections.emptyMap();
-            this.userBias = Collections.emptyMap();
-            this.itemBias = Collections.emptyMap();
-            this.globalMean = 0.0;
-            return;
+            return Model.EMPTY;
         }
 
-        double gMean = sumRatings / countRatings;
+        // Local working state: interactions as parallel primitive arrays
+        LongIndex users = new LongIndex();
+        LongIndex items = new LongIndex();
+        int[] iu = new int[n];
+        int[] ii = new int[n];
+        double[] ratings = new double[n];
+        double[] uFac = new double[16 * factors];
+        double[] iFac = new double[16 * factors];
 
-        // Shuffle each epoch for better SGD
-        for (int ep = 0; ep < epochs; ep++) {
-            Collections.shuffle(interactions, rnd);
-            for (Interaction in : interactions) {
-                double[] uf = uFac.get(in.userId);
-                double[] ifc = iFac.get(in.itemId);
-                double ub = uBias.get(in.userId);
-                double ib = iBias.get(in.itemId);
+        Random rnd = new Random(seed);
 
-                double pred = gMean + ub + ib + dot(uf, ifc);
-                double err = in.rating - pred;
+        // Build interactions + initialize parameters; order lines carry the implicit 1.0
+        double sumRatings = 0.0;
+        int count = 0;
+
+        for (int k = 0; k < n; k++) {
+            int u = users.size();
+            iu[count] = users.add(interactions.userId(k));
+            if (iu[count] == u) uFac = initRow(uFac, u, rnd);
+            int i = items.size();
+            ii[count] = items.add(interactions.dishId(k));
+            if (ii[count] == i) iFac = initRow(iFac, i, rnd);
+
+            double rating = interactions.rating(k);
+            ratings[count++] = rating;
+            sumRatings += rating;
+        }
 
-                // Update biases
-                double newUb = ub + alpha * (err - lambda * ub);
-                double newIb = ib + alpha * (err - lambda * ib);
-                uBias.put(in.userId, newUb);
-                iBias.put(in.itemId, newIb);
+        double gMean = sumRatings / count;
+        double[] uBias = new double[users.size()];
+        double[] iBias = new double[items.size()];
 
-                // Update factors
-                for (int f = 0; f < factors; f++) {
-                    double ufOld = uf[f];
-                    double ifOld = ifc[f];
+        Sgd sgd = new Sgd(iu, ii, ratings, uFac, iFac, uBias, iBias, gMean);
+        int workers = Math.min(threads, n / MIN_INTERACTIONS_PER_THREAD);
 
-                    uf[f] += alpha * (err * ifOld - lambda * ufOld);
-                    ifc[f] += alpha * (err * ufOld - lambda * ifOld);
+        // Shuffle each epoch for better SGD (same swap sequence as Collections.shuffle)
+        int[] order = new int[n];
+        for (int k = 0; k < n; k++) order[k] = k;
+        for (int ep = 0; ep < epochs; ep++) {
+            for (int k = n; k > 1; k--) {
+                int j = rnd.nextInt(k);
+                int tmp = order[k - 1];
+                order[k - 1] = order[j];
+                order[j] = tmp;
+            }
+            if (sgdPool == null || workers < 2) {
+                sgd.run(order, 0, n);
+                continue;
+            }
+            List<Callable<Void>> slices = new ArrayList<>(workers);
+            for (int w = 0; w < workers; w++) {
+                int from = (int) ((long) n * w / workers);
+                int to = (int) ((long) n * (w + 1) / workers);
+                slices.add(() -> {
+                    sgd.run(order, from, to);
+                    return null;
+                });
+            }
+            // invokeAll is the per-epoch barrier; completed futures publish the workers' writes
+            for (Future<Void> slice : sgdPool.invokeAll(slices)) {
+                try {
+                    slice.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Factorization training interrupted", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Factorization training failed", e.getCause());
                 }
             }
         }
 
-        // Publish atomically for readers
-        this.userFactors = Collections.unmodifiableMap(uFac);
-        this.itemFactors = Collections.unmodifiableMap(iFac);
-        this.userBias = Collections.unmodifiableMap(uBias);
-        this.itemBias = Collections.unmodifiableMap(iBias);
-        this.globalMean = gMean;
+        return new Model(users, items, uFac, iFac, uBias, iBias, gMean);
     }
 
     /**
@@ -159,19 +245,41 @@ public class FactorizationService {
      * Range depends on your input ratings; consider downstream clipping if needed.
      */
     public double predict(long userId, long dishId) {
-        double[] uf = userFactors.get(userId);
-        double[] ifc = itemFactors.get(dishId);
-        Double ub = userBias.get(userId);
-        Double ib = itemBias.get(dishId);
+        Model m = model;
+        int u = m.users.indexOf(userId);
+        int i = m.items.indexOf(dishId);
 
-        double pred = globalMean;
-        if (ub != null) pred += ub;
-        if (ib != null) pred += ib;
-        if (uf != null && ifc != null) pred += dot(uf, ifc);
+        double pred = m.globalMean;
+        if (u >= 0) pred += m.userBias[u];
+        if (i >= 0) pred += m.itemBias[i];
+        if (u >= 0 && i >= 0) pred += dot(m.userFactors, u * factors, m.itemFactors, i * factors, factors);
 
         return pred;
     }
 
+    /**
+     * Scores every given dish for one user, resolving the user row once. Same
+     * values as calling {@link #predict} per dish.
+     */
+    public Map<Long, Double> predictAll(long userId, Collection<Long> dishIds) {
+        Model m = model;
+        int u = m.users.indexOf(userId);
+        double base = m.globalMean + (u >= 0 ? m.userBias[u] : 0.0);
+        int uo = u * factors;
+
+        Map<Long, Double> scores = new HashMap<>(Math.max(16, dishIds.size() * 2));
+        for (Long dishId : dishIds) {
+            int i = m.items.indexOf(dishId);
+            double pred = base;
+            if (i >= 0) {
+                pred += m.itemBias[i];
+                if (u >= 0) pred += dot(m.userFactors, uo, m.itemFactors, i * factors, factors);
+            }
+            scores.put(dishId, pred);
+        }
+        return scores;
+    }
+
     /**
      * Quick sanity check: RMSE on provided reviews only.
      * Useful for monitoring training stability/regressions.
@@ -192,6 +300,140 @@ public class FactorizationService {
 
     // --- internals ---
 
+    /**
+     * Applies {@link #ONLINE_STEPS} SGD steps for one interaction. Existing
+     * rows are updated in place, which a concurrent reader may observe
+     * mid-step as a slightly perturbed score. A new user or dish is added to a
+     * grown copy of the model that is then published. Caller holds {@code updateLock}.
+     */
+    private Model applyOnline(Model m, Interaction in) {
+        if (m.users.indexOf(in.userId) < 0 || m.items.indexOf(in.itemId) < 0) {
+            m = m.withRows(in.userId, in.itemId, this);
+        }
+        int u = m.users.indexOf(in.userId);
+        int i = m.items.indexOf(in.itemId);
+        int uo = u * factors;
+        int io = i * factors;
+        double[] uf = m.userFactors;
+        double[] ifc = m.itemFactors;
+
+        for (int step = 0; step < ONLINE_STEPS; step++) {
+            double ub = m.userBias[u];
+            double ib = m.itemBias[i];
+            double err = in.rating - (m.globalMean + ub + ib + dot(uf, uo, ifc, io, factors));
+            m.userBias[u] = ub + alpha * (err - lambda * ub);
+            m.itemBias[i] = ib + alpha * (err - lambda * ib);
+            for (int f = 0; f < factors; f++) {
+                double ufOld = uf[uo + f];
+                double ifOld = ifc[io + f];
+                uf[uo + f] += alpha * (err * ifOld - lambda * ufOld);
+                ifc[io + f] += alpha * (err * ufOld - lambda * ifOld);
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Dense model snapshot. Indexes are never modified once published; factor
+     * and bias arrays may hold spare capacity beyond the indexed rows.
+     */
+    private static final class Model {
+        static final Model EMPTY = new Model(new LongIndex(), new LongIndex(),
+                new double[0], new double[0], new double[0], new double[0], 0.0);
+
+        final LongIndex users;
+        final LongIndex items;
+        final double[] userFactors; // row-major, users.size() x factors
+        final double[] itemFactors; // row-major, items.size() x factors
+        final double[] userBias;
+        final double[] itemBias;
+        final double globalMean;
+
+        Model(LongIndex users, LongIndex items, double[] userFactors, double[] itemFactors,
+              double[] userBias, double[] itemBias, double globalMean) {
+            this.users = users;
+            this.items = items;
+            this.userFactors = userFactors;
+            this.itemFactors = itemFactors;
+            this.userBias = userBias;
+            this.itemBias = itemBias;
+            this.globalMean = globalMean;
+        }
+
+        boolean isEmpty() {
+            return users.size() == 0 || items.size() == 0;
+        }
+
+        /** Copy of this model with rows for any of the two ids not yet indexed. */
+        Model withRows(long userId, long dishId, FactorizationService owner) {
+            LongIndex newUsers = users.copy();
+            LongIndex newItems = items.copy();
+            double[] uf = Arrays.copyOf(userFactors, (users.size() + 1) * owner.factors);
+            double[] itf = Arrays.copyOf(itemFactors, (items.size() + 1) * owner.factors);
+            if (newUsers.indexOf(userId) < 0) {
+                uf = owner.initRow(uf, newUsers.add(userId), owner.onlineRnd);
+            }
+            if (newItems.indexOf(dishId) < 0) {
+                itf = owner.initRow(itf, newItems.add(dishId), owner.onlineRnd);
+            }
+            return new Model(newUsers, newItems, uf, itf,
+                    Arrays.copyOf(userBias, newUsers.size()), Arrays.copyOf(itemBias, newItems.size()),
+                    globalMean);
+        }
+    }
+
+    /** SGD over a slice of the shuffled interactions, writing the shared arrays in place. */
+    private final class Sgd {
+        private final int[] iu;
+        private final int[] ii;
+        private final double[] ratings;
+        private final double[] uFac;
+        private final double[] iFac;
+        private final double[] uBias;
+        private final double[] iBias;
+        private final double gMean;
+
+        private Sgd(int[] iu, int[] ii, double[] ratings, double[] uFac, double[] iFac,
+                    double[] uBias, double[] iBias, double gMean) {
+            this.iu = iu;
+            this.ii = ii;
+            this.ratings = ratings;
+            this.uFac = uFac;
+            this.iFac = iFac;
+            this.uBias = uBias;
+            this.iBias = iBias;
+            this.gMean = gMean;
+        }
+
+        private void run(int[] order, int from, int to) {
+            for (int k = from; k < to; k++) {
+                int in = order[k];
+                int u = iu[in];
+                int i = ii[in];
+                int uo = u * factors;
+                int io = i * factors;
+                double ub = uBias[u];
+                double ib = iBias[i];
+
+                double pred = gMean + ub + ib + dot(uFac, uo, iFac, io, factors);
+                double err = ratings[in] - pred;
+
+                // Update biases
+                uBias[u] = ub + alpha * (err - lambda * ub);
+                iBias[i] = ib + alpha * (err - lambda * ib);
+
+                // Update factors
+                for (int f = 0; f < factors; f++) {
+                    double ufOld = uFac[uo + f];
+                    double ifOld = iFac[io + f];
+
+                    uFac[uo + f] += alpha * (err * ifOld - lambda * ufOld);
+                    iFac[io + f] += alpha * (err * ufOld - lambda * ifOld);
+                }
+            }
+        }
+    }
+
     private static final class Interaction {
         final long userId;
         final long itemId;
@@ -199,15 +441,19 @@ public class FactorizationService {
         Interaction(long u, long i, double r) { this.userId = u; this.itemId = i; this.rating = r; }
     }
 
-    private double[] randomVector(Random rnd) {
-        double[] v = new double[factors];
-        for (int i = 0; i < factors; i++) v[i] = (rnd.nextDouble() - 0.5) * 0.02; // small values around 0
-        return v;
+    /** Fills row {@code row} with small random values, growing the matrix if needed. */
+    private double[] initRow(double[] matrix, int row, Random rnd) {
+        int offset = row * factors;
+        if (offset + factors > matrix.length) {
+            matrix = Arrays.copyOf(matrix, Math.max(offset + factors, matrix.length * 2));
+        }
+        for (int f = 0; f < factors; f++) matrix[offset + f] = (rnd.nextDouble() - 0.5) * 0.02; // small values around 0
+        return matrix;
     }
 
-    private static double dot(double[] a, double[] b) {
+    private static double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
         double s = 0.0;
-        for (int i = 0; i < a.length; i++) s += a[i] * b[i];
+        for (int f = 0; f < length; f++) s += a[aOffset + f] * b[bOffset + f];
         return s;
     }
 }
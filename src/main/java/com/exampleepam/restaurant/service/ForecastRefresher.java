@@ -0,0 +1,87 @@
+package com.exampleepam.restaurant.service;
+
+import com.exampleepam.restaurant.service.forecast.OrderCompletedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Refreshes dish and ingredient forecasts after orders are completed,
+ * off the request thread. Completions are collected for
+ * {@code forecast.refresh.debounce-ms}; then the dishes of all collected
+ * orders are recomputed once, so a burst of completions costs one refresh
+ * per window instead of one full recompute per order.
+ */
+@Component
+public class ForecastRefresher {
+
+    private static final Logger log = LoggerFactory.getLogger(ForecastRefresher.class);
+    private static final int HISTORY_DAYS = 7;
+
+    private final ForecastScheduler forecastScheduler;
+    private final long debounceMillis;
+    private final Set<Long> pendingDishes = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "forecast-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Autowired
+    public ForecastRefresher(ForecastScheduler forecastScheduler,
+                             @Value("${forecast.refresh.debounce-ms:5000}") long debounceMillis) {
+        this.forecastScheduler = forecastScheduler;
+        this.debounceMillis = debounceMillis;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues the order's dishes once the completing transaction has committed,
+     * so the refresh sees the updated demand rollup.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCompleted(OrderCompletedEvent event) {
+        pendingDishes.addAll(event.dishIds());
+        if (scheduled.compareAndSet(false, true)) {
+            executor.schedule(this::flush, debounceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Recomputes forecasts for every dish queued so far. Runs on the single
+     * refresh thread and goes through {@link ForecastScheduler}, so it never
+     * overlaps another partial or a full refresh.
+     */
+    void flush() {
+        scheduled.set(false);
+        Set<Long> dishIds = new HashSet<>();
+        for (Long id : pendingDishes) {
+            if (pendingDishes.remove(id)) {
+                dishIds.add(id);
+            }
+        }
+        if (dishIds.isEmpty()) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        forecastScheduler.refreshDishes(dishIds, HISTORY_DAYS);
+        log.info("Refreshed forecasts for {} dishes in {} ms", dishIds.size(), System.currentTimeMillis() - started);
+    }
+}
@@ -1,40 +1,172 @@
 package com.exampleepam.restaurant.service;
 
-import com.exampleepam.restaurant.entity.Category;
+import com.exampleepam.restaurant.dto.forecast.DishForecastDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import com.exampleepam.restaurant.service.forecast.DemandRollupStore;
 import com.exampleepam.restaurant.service.forecast.ForecastModel;
+import com.exampleepam.restaurant.service.forecast.ForecastResultStore;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Component
 public class ForecastScheduler {
 
+    private static final Logger log = LoggerFactory.getLogger(ForecastScheduler.class);
+
     private final DishForecastService dishForecastService;
     private final IngredientForecastService ingredientForecastService;
     private final java.util.List<ForecastModel> models;
+    private final DemandRollupStore demandRollupStore;
+    private final ForecastResultStore resultStore;
+    private final long retryMillis;
+    private final Set<String> queuedModels = ConcurrentHashMap.newKeySet();
+    private final Map<String, Integer> pendingRuns = new ConcurrentHashMap<>();
+    private final Map<String, Long> failedAt = new ConcurrentHashMap<>();
+    private final ExecutorService recomputeExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "forecast-recompute");
+        t.setDaemon(true);
+        return t;
+    });
 
     public ForecastScheduler(DishForecastService dishForecastService,
                              IngredientForecastService ingredientForecastService,
-                             java.util.List<ForecastModel> models) {
+                             java.util.List<ForecastModel> models,
+                             DemandRollupStore demandRollupStore,
+                             ForecastResultStore resultStore,
+                             @Value("${forecast.store.retry-interval:PT15M}") Duration retryInterval) {
         this.dishForecastService = dishForecastService;
         this.ingredientForecastService = ingredientForecastService;
         this.models = models;
+        this.demandRollupStore = demandRollupStore;
+        this.resultStore = resultStore;
+        this.retryMillis = retryInterval.toMillis();
     }
 
-    /** Trigger an initial refresh right after the application is ready so the UI has data. */
+    @PreDestroy
+    void shutdown() {
+        recomputeExecutor.shutdownNow();
+    }
+
+    /**
+     * Trigger an initial refresh right after the application is ready so the UI has data.
+     * An empty demand rollup is backfilled from completed orders first; a
+     * non-empty one is used as it is.
+     */
     @EventListener(ApplicationReadyEvent.class)
     public void initializeForecasts() {
+        if (demandRollupStore.isEmpty()) {
+            demandRollupStore.rebuild();
+        }
         refreshForecasts();
     }
 
     /** Refresh forecasts once per day. */
     @Scheduled(cron = "0 0 2 * * *")
-    public void refreshForecasts() {
+    public synchronized void refreshForecasts() {
+        for (ForecastModel m : models) {
+            refreshModel(m.getName());
+        }
+    }
+
+    /**
+     * Queues a background refresh of a model whose stored forecasts are
+     * missing or stale and returns at once, so page views keep serving the
+     * stored results. Nothing is queued while a refresh of the model is
+     * already queued or running, or for {@code forecast.store.retry-interval}
+     * after one failed.
+     *
+     * @return whether a refresh of the model is queued or running
+     */
+    public boolean refreshIfStale(String modelName) {
+        if (resultStore.isFresh(modelName)) {
+            return false;
+        }
+        Long failed = failedAt.get(modelName);
+        if (!pendingRuns.containsKey(modelName)
+                && (failed == null || System.currentTimeMillis() - failed >= retryMillis)) {
+            queue(modelName, true);
+        }
+        return pendingRuns.containsKey(modelName);
+    }
+
+    /**
+     * Queues a full refresh of the model on a background thread and returns
+     * at once; used by the recompute button. A request for a model whose
+     * refresh is queued but not yet started is dropped. The refresh waits
+     * for any other one in progress, so two never overlap.
+     *
+     * @return whether a refresh was queued
+     */
+    public boolean refreshAsync(String modelName) {
+        return queue(modelName, false);
+    }
+
+    /**
+     * Partial refresh of the given dishes for every model, used after orders
+     * are completed. Holds the same lock as the full refreshes, so a partial
+     * refresh never interleaves with one and cannot be overwritten by an
+     * older snapshot.
+     */
+    public synchronized void refreshDishes(Collection<Long> dishIds, int historyDays) {
         for (ForecastModel m : models) {
-            dishForecastService.getDishForecasts(7, null, null, m.getName(), org.springframework.data.domain.Pageable.unpaged(), true);
-            ingredientForecastService.getIngredientForecasts(7, null, null, m.getName(), org.springframework.data.domain.Pageable.unpaged(), true);
+            try {
+                ingredientForecastService.refreshForDishes(dishIds, m.getName(), historyDays);
+            } catch (RuntimeException e) {
+                log.error("Forecast refresh for model {} failed", m.getName(), e);
+            }
         }
     }
+
+    /**
+     * Queues a full refresh of the model. With {@code onlyIfStale} the run is
+     * skipped when another refresh has made the model fresh in the meantime.
+     */
+    private boolean queue(String modelName, boolean onlyIfStale) {
+        if (models.stream().noneMatch(m -> m.getName().equals(modelName)) || !queuedModels.add(modelName)) {
+            return false;
+        }
+        pendingRuns.merge(modelName, 1, Integer::sum);
+        recomputeExecutor.execute(() -> {
+            queuedModels.remove(modelName);
+            try {
+                synchronized (this) {
+                    if (!onlyIfStale || !resultStore.isFresh(modelName)) {
+                        refreshModel(modelName);
+                    }
+                }
+                failedAt.remove(modelName);
+            } catch (RuntimeException e) {
+                failedAt.put(modelName, System.currentTimeMillis());
+                log.error("Forecast recompute for model {} failed", modelName, e);
+            } finally {
+                pendingRuns.computeIfPresent(modelName, (k, runs) -> runs == 1 ? null : runs - 1);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Full refresh of one model as a two-stage pipeline: the dish stage fits
+     * every active dish once, and the ingredient stage aggregates exactly
+     * that snapshot instead of running the dishes again.
+     */
+    private void refreshModel(String modelName) {
+        java.util.List<DishForecastDto> dishForecasts = dishForecastService.getDishForecasts(
+                7, null, null, modelName, org.springframework.data.domain.Pageable.unpaged(), true).getContent();
+        ingredientForecastService.publishFromDishForecasts(modelName, dishForecasts, true);
+    }
 }
 
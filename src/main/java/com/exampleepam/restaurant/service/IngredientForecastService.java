@@ -3,158 +3,301 @@ package com.exampleepam.restaurant.service;
 import com.exampleepam.restaurant.dto.forecast.DishForecastDto;
 import com.exampleepam.restaurant.dto.forecast.IngredientForecastDto;
 import com.exampleepam.restaurant.entity.Category;
-import com.exampleepam.restaurant.entity.Dish;
-import com.exampleepam.restaurant.entity.DishIngredient;
-import com.exampleepam.restaurant.entity.MeasureUnit;
 import com.exampleepam.restaurant.entity.Ingredient;
 import com.exampleepam.restaurant.entity.IngredientForecast;
-import com.exampleepam.restaurant.repository.DishRepository;
 import com.exampleepam.restaurant.repository.IngredientForecastRepository;
 import com.exampleepam.restaurant.repository.IngredientRepository;
+import com.exampleepam.restaurant.service.forecast.BillOfMaterials;
+import com.exampleepam.restaurant.service.forecast.ForecastResultStore;
+import com.exampleepam.restaurant.service.forecast.RecipeMatrix;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Service producing aggregated forecasts for ingredients based on dish forecasts.
+ * <p>
+ * Aggregation is a product of the {@link RecipeMatrix} from
+ * {@link BillOfMaterials} with the dish demand of each scale, laid out as a
+ * dense primitive matrix with one row per dish forecast. The recipes are
+ * compiled once and rebuilt only after a dish changes, so a run reads no
+ * dish or ingredient entities.
  */
 @Service
 public class IngredientForecastService {
 
     private final DishForecastService dishForecastService;
-    private final DishRepository dishRepository;
+    private final BillOfMaterials billOfMaterials;
     private final IngredientRepository ingredientRepository;
     private final IngredientForecastRepository forecastRepository;
+    private final ForecastResultStore resultStore;
+    private final TransactionTemplate transaction;
     private static final Logger log = LoggerFactory.getLogger(IngredientForecastService.class);
 
     @Autowired
     public IngredientForecastService(DishForecastService dishForecastService,
-                                     DishRepository dishRepository,
+                                     BillOfMaterials billOfMaterials,
                                      IngredientRepository ingredientRepository,
-                                     IngredientForecastRepository forecastRepository) {
+                                     IngredientForecastRepository forecastRepository,
+                                     ForecastResultStore resultStore,
+                                     PlatformTransactionManager transactionManager) {
         this.dishForecastService = dishForecastService;
-        this.dishRepository = dishRepository;
+        this.billOfMaterials = billOfMaterials;
         this.ingredientRepository = ingredientRepository;
         this.forecastRepository = forecastRepository;
+        this.resultStore = resultStore;
+        this.transaction = new TransactionTemplate(transactionManager);
     }
 
     /**
-     * Build ingredient forecasts by aggregating dish forecasts. Each ingredient
-     * contribution equals the forecasted dish demand multiplied by the amount
-     * of that ingredient used in the dish.
+     * Ingredient stage of a full refresh: aggregates the dish forecasts the
+     * dish stage has just produced for every active dish, publishes the
+     * totals and per-category aggregates to the store and optionally
+     * persists them. Each ingredient contribution equals the forecasted dish
+     * demand multiplied by the amount of that ingredient used in the dish.
+     * No model is fitted here.
      */
     @Transactional
-    public Page<IngredientForecastDto> getIngredientForecasts(int historyDays, String filter, Category type,
-                                                             String modelName, Pageable pageable) {
-        return getIngredientForecasts(historyDays, filter, type, modelName, pageable, false);
+    public void publishFromDishForecasts(String modelName, List<DishForecastDto> dishForecasts, boolean persist) {
+        RecipeMatrix recipes = billOfMaterials.current();
+        Demand demand = new Demand(dishForecasts);
+        Map<Long, IngredientForecastDto> aggMap = aggregateIngredientData(recipes, demand, null, null, null);
+        log.debug("Aggregated {} dish forecasts to {} ingredient entries", dishForecasts.size(), aggMap.size());
+        resultStore.replaceIngredients(modelName, aggMap.values(), aggregateByCategory(recipes, demand, null));
+        if (persist) {
+            persistForecasts(aggMap.values(), true);
+        }
     }
 
-    @Transactional
-    public Page<IngredientForecastDto> getIngredientForecasts(int historyDays, String filter, Category type,
-                                                             String modelName, Pageable pageable, boolean persist) {
-        Map<Long, Dish> dishMap = dishRepository.findAll().stream()
-                .collect(Collectors.toMap(Dish::getId, d -> d));
-        Page<DishForecastDto> dishForecasts = fetchDishForecasts(historyDays, type, modelName, persist);
-        log.debug("Fetched {} dish forecasts for ingredients", dishForecasts.getContent().size());
-        Map<Long, IngredientForecastDto> aggMap = aggregateIngredientData(dishForecasts, dishMap, filter);
-        log.debug("Aggregated to {} ingredient entries", aggMap.size());
-        if (persist) {
-            persistForecasts(aggMap.values());
+    /**
+     * Recomputes and persists the forecasts of the given dishes only, then
+     * rebuilds the totals of the ingredients they use from the stored dish
+     * snapshot: other dishes sharing those ingredients contribute the
+     * forecast of their last run and are not fitted again. Unrelated dishes
+     * and ingredients are not touched. No transaction is held while the
+     * models are fitted; only the persist runs in one.
+     * <p>
+     * Until the model has completed a full refresh the snapshot lacks the
+     * other dishes, so only the dishes are refreshed and the ingredient
+     * totals are left to the next full refresh.
+     */
+    public void refreshForDishes(Collection<Long> dishIds, String modelName, int historyDays) {
+        List<DishForecastDto> refreshed = dishForecastService.forecastDishes(dishIds, modelName, historyDays, true);
+        if (!resultStore.hasSnapshot(modelName)) {
+            log.debug("No full {} snapshot yet, ingredient totals left to the next full refresh", modelName);
+            return;
         }
-        List<IngredientForecastDto> list = new ArrayList<>(aggMap.values());
-        list.sort(Comparator.comparing(IngredientForecastDto::getName));
-        if (pageable == null || pageable.isUnpaged()) {
-            log.debug("Returning {} ingredient forecasts without pagination", list.size());
-            return new PageImpl<>(list);
+        RecipeMatrix recipes = billOfMaterials.current();
+        Set<Long> ingredientIds = recipes.ingredientIdsOf(dishIds);
+        if (ingredientIds.isEmpty()) {
+            return;
         }
+        List<DishForecastDto> dishForecasts = new ArrayList<>();
+        for (Long dishId : new TreeSet<>(recipes.dishIdsUsing(ingredientIds))) {
+            resultStore.findDish(modelName, dishId).ifPresent(d -> dishForecasts.add(d.forecast()));
+        }
+        Demand demand = new Demand(dishForecasts);
+        Map<Long, IngredientForecastDto> aggMap = aggregateIngredientData(recipes, demand, null, null, ingredientIds);
+        transaction.executeWithoutResult(status -> persistForecasts(aggMap.values(), false));
+        resultStore.putIngredients(modelName, ingredientIds, aggMap.values(),
+                aggregateByCategory(recipes, demand, ingredientIds));
+        log.debug("Refreshed {} dish and {} ingredient forecasts", refreshed.size(), aggMap.size());
+    }
 
-        int start = (int) Math.min(pageable.getOffset(), list.size());
-        int end = Math.min(start + pageable.getPageSize(), list.size());
-        List<IngredientForecastDto> content = list.subList(start, end);
-        log.debug("Returning {} ingredient forecasts", content.size());
-        return new PageImpl<>(content, pageable, list.size());
+    /**
+     * Returns the ingredient forecasts of the last refresh, filtered by
+     * ingredient name and sorted by name. With a category only the demand of
+     * that category's dishes is counted. No model is fitted.
+     */
+    public Page<IngredientForecastDto> getStoredForecasts(String filter, Category type, String modelName,
+                                                          Pageable pageable) {
+        return resultStore.findIngredients(modelName, filter, type, pageable);
     }
 
-    private Page<DishForecastDto> fetchDishForecasts(int historyDays, Category type, String modelName, boolean persist) {
-        return dishForecastService.getDishForecasts(historyDays, null, type, modelName, Pageable.unpaged(), persist);
+    /**
+     * Aggregates the dish forecasts of each category separately, optionally
+     * keeping only the given ingredients.
+     */
+    private Map<Category, Collection<IngredientForecastDto>> aggregateByCategory(RecipeMatrix recipes, Demand demand,
+                                                                                 Set<Long> ingredientIds) {
+        Set<Category> categories = EnumSet.noneOf(Category.class);
+        for (DishForecastDto df : demand.forecasts) {
+            int dish = recipes.dishIndex(df.getId());
+            if (dish >= 0 && recipes.category(dish) != null) {
+                categories.add(recipes.category(dish));
+            }
+        }
+        Map<Category, Collection<IngredientForecastDto>> result = new EnumMap<>(Category.class);
+        for (Category category : categories) {
+            result.put(category, aggregateIngredientData(recipes, demand, category, null, ingredientIds).values());
+        }
+        return result;
     }
 
     /**
-     * Combine dish forecasts into ingredient-level projections and apply an
-     * optional ingredient name filter.
+     * Combine dish forecasts into ingredient-level projections: for every
+     * ingredient used by a forecast dish (of {@code category}, if given),
+     * one sparse row times dense demand product per scale. Applies an
+     * optional ingredient name filter and id restriction. Each scale takes
+     * its labels from the longest series among the contributing dishes.
      */
-    private Map<Long, IngredientForecastDto> aggregateIngredientData(Page<DishForecastDto> dishForecasts,
-                                                                     Map<Long, Dish> dishMap,
-                                                                     String filter) {
-        Map<Long, IngredientForecastDto> aggMap = new LinkedHashMap<>();
+    private Map<Long, IngredientForecastDto> aggregateIngredientData(RecipeMatrix recipes, Demand demand,
+                                                                     Category category, String filter,
+                                                                     Set<Long> ingredientIds) {
+        List<DishForecastDto> forecasts = demand.forecasts;
+        int[] rowOf = new int[recipes.dishCount()];
+        Arrays.fill(rowOf, -1);
+        for (int k = 0; k < forecasts.size(); k++) {
+            int dish = recipes.dishIndex(forecasts.get(k).getId());
+            if (dish >= 0 && (category == null || recipes.category(dish) == category)) {
+                rowOf[dish] = k;
+            }
+        }
         String f = filter == null ? null : filter.toLowerCase();
-        for (DishForecastDto df : dishForecasts.getContent()) {
-            Dish dish = dishMap.get(df.getId());
-            if (dish == null) {
+        int[] row = new int[demand.maxWidth];
+        Map<Long, IngredientForecastDto> aggMap = new LinkedHashMap<>();
+        for (int j = 0; j < recipes.ingredientCount(); j++) {
+            long id = recipes.ingredientId(j);
+            String ingName = recipes.ingredientName(j);
+            if ((f != null && !ingName.toLowerCase().contains(f))
+                    || (ingredientIds != null && !ingredientIds.contains(id))) {
                 continue;
             }
-            for (DishIngredient di : dish.getIngredients()) {
-                String ingName = di.getIngredient().getName();
-                if (f != null && !ingName.toLowerCase().contains(f)) {
-                    continue;
+            boolean used = false;
+            boolean emptyForecast = false;
+            for (int p = recipes.rowStart(j); p < recipes.rowStart(j + 1); p++) {
+                int k = rowOf[recipes.dishAt(p)];
+                if (k >= 0) {
+                    used = true;
+                    emptyForecast |= forecasts.get(k).isEmptyForecast();
                 }
-                MeasureUnit unit = di.getIngredient().getUnit();
-                IngredientForecastDto dto = aggMap.computeIfAbsent(
-                        di.getIngredient().getId(),
-                        id -> new IngredientForecastDto(id, ingName, unit,
-                                new HashMap<>(), new HashMap<>(), new HashMap<>(), false, false, false));
-                for (String scale : df.getLabels().keySet()) {
-                    dto.getLabels().putIfAbsent(scale, new ArrayList<>(df.getLabels().get(scale)));
-                    List<Integer> aList = df.getActualData().get(scale);
-                    List<Integer> fList = df.getForecastData().get(scale);
-                    if (aList == null || fList == null) {
-                        continue; // nothing to aggregate
-                    }
-                    List<Integer> aAgg = dto.getActualData().computeIfAbsent(scale,
-                            s -> new ArrayList<>(Collections.nCopies(aList.size(), null)));
-                    List<Integer> fAgg = dto.getForecastData().computeIfAbsent(scale,
-                            s -> new ArrayList<>(Collections.nCopies(fList.size(), null)));
-                    for (int i = 0; i < aList.size(); i++) {
-                        Integer aVal = aList.get(i);
-                        if (aVal != null) {
-                            Integer curA = aAgg.get(i);
-                            aAgg.set(i, (curA == null ? 0 : curA) + aVal * di.getQuantity());
-                        }
-                        Integer fVal = fList.get(i);
-                        if (fVal != null) {
-                            Integer curF = fAgg.get(i);
-                            fAgg.set(i, (curF == null ? 0 : curF) + fVal * di.getQuantity());
-                        }
+            }
+            if (!used) {
+                continue;
+            }
+            IngredientForecastDto dto = new IngredientForecastDto(id, ingName, recipes.unit(j),
+                    new HashMap<>(), new HashMap<>(), new HashMap<>(), false, false, emptyForecast);
+            for (Map.Entry<String, Scale> e : demand.scales.entrySet()) {
+                Scale scale = e.getValue();
+                int source = -1;
+                for (int p = recipes.rowStart(j); p < recipes.rowStart(j + 1); p++) {
+                    int k = rowOf[recipes.dishAt(p)];
+                    if (k >= 0 && scale.length()[k] >= 0 && (source < 0
+                            || scale.length()[k] > scale.length()[source]
+                            || (scale.length()[k] == scale.length()[source] && k < source))) {
+                        source = k;
                     }
-                    dto.setEmptyForecast(dto.isEmptyForecast() || df.isEmptyForecast());
                 }
+                if (source < 0) {
+                    continue; // nothing to aggregate
+                }
+                int length = scale.length()[source];
+                dto.getLabels().put(e.getKey(), new ArrayList<>(forecasts.get(source).getLabels().get(e.getKey())));
+                recipes.multiplyRow(j, rowOf, scale.actual(), scale.width(), row);
+                dto.getActualData().put(e.getKey(), toList(row, length));
+                recipes.multiplyRow(j, rowOf, scale.forecast(), scale.width(), row);
+                dto.getForecastData().put(e.getKey(), toList(row, length));
             }
-        }
-        aggMap.values().forEach(dto -> {
             List<Integer> monthly = dto.getActualData().get("monthly");
             long nonZero = monthly == null ? 0 : monthly.stream().filter(v -> v != null && v > 0).count();
             dto.setNoData(nonZero == 0);
             dto.setSinglePoint(nonZero == 1);
             log.debug("Ingredient {} monthly totals {}", dto.getName(), monthly);
-        });
+            aggMap.put(id, dto);
+        }
         return aggMap;
     }
 
-    private void persistForecasts(Collection<IngredientForecastDto> dtos) {
-        forecastRepository.deleteByGeneratedAtBefore(java.time.LocalDate.now());
-        int saved = 0;
+    private static List<Integer> toList(int[] values, int length) {
+        List<Integer> list = new ArrayList<>(length);
+        for (int t = 0; t < length; t++) {
+            list.add(values[t] == RecipeMatrix.ABSENT ? null : values[t]);
+        }
+        return list;
+    }
+
+    /**
+     * Dish demand of one run as dense matrices, one per scale and series,
+     * with a row of {@code width} values per dish forecast and
+     * {@link RecipeMatrix#ABSENT} for missing values. {@code length[k]} is
+     * the number of labels of dish {@code k}, or {@code -1} when it lacks
+     * the scale.
+     */
+    private static final class Demand {
+        private final List<DishForecastDto> forecasts;
+        private final Map<String, Scale> scales = new LinkedHashMap<>();
+        private int maxWidth;
+
+        private Demand(List<DishForecastDto> forecasts) {
+            this.forecasts = forecasts;
+            Set<String> names = new LinkedHashSet<>();
+            forecasts.forEach(df -> names.addAll(df.getLabels().keySet()));
+            for (String name : names) {
+                int rows = forecasts.size();
+                int[] length = new int[rows];
+                int width = 0;
+                for (int k = 0; k < rows; k++) {
+                    DishForecastDto df = forecasts.get(k);
+                    List<String> labels = df.getLabels().get(name);
+                    boolean present = labels != null && df.getActualData().get(name) != null
+                            && df.getForecastData().get(name) != null;
+                    length[k] = present ? labels.size() : -1;
+                    width = Math.max(width, length[k]);
+                }
+                int[] actual = new int[rows * width];
+                int[] forecast = new int[rows * width];
+                for (int k = 0; k < rows; k++) {
+                    DishForecastDto df = forecasts.get(k);
+                    fill(actual, k * width, width, length[k] < 0 ? List.of() : df.getActualData().get(name));
+                    fill(forecast, k * width, width, length[k] < 0 ? List.of() : df.getForecastData().get(name));
+                }
+                scales.put(name, new Scale(width, length, actual, forecast));
+                maxWidth = Math.max(maxWidth, width);
+            }
+        }
+
+        private static void fill(int[] dest, int offset, int width, List<Integer> values) {
+            for (int t = 0; t < width; t++) {
+                Integer v = t < values.size() ? values.get(t) : null;
+                dest[offset + t] = v == null ? RecipeMatrix.ABSENT : v;
+            }
+        }
+    }
+
+    private record Scale(int width, int[] length, int[] actual, int[] forecast) {}
+
+    /**
+     * Replaces today's rows of the given ingredients with one set-based
+     * delete and JDBC-batched inserts. A full refresh also drops rows
+     * generated on earlier days ({@code pruneOlder}); a partial one must not,
+     * as it does not rewrite the other ingredients.
+     */
+    private void persistForecasts(Collection<IngredientForecastDto> dtos, boolean pruneOlder) {
+        java.time.LocalDate today = java.time.LocalDate.now();
+        if (pruneOlder) {
+            forecastRepository.deleteByGeneratedAtBefore(today);
+        }
+        if (dtos.isEmpty()) {
+            return;
+        }
+        Map<Long, Ingredient> ingredients = new HashMap<>();
+        for (Ingredient ingredient : ingredientRepository.findAllById(
+                dtos.stream().map(IngredientForecastDto::getId).toList())) {
+            ingredients.put(ingredient.getId(), ingredient);
+        }
+        forecastRepository.deleteByIngredientIdInAndGeneratedAt(ingredients.keySet(), today);
+        List<IngredientForecast> rows = new ArrayList<>();
         for (IngredientForecastDto dto : dtos) {
-            Ingredient ingredient = ingredientRepository.findById(dto.getId()).orElse(null);
+            Ingredient ingredient = ingredients.get(dto.getId());
             if (ingredient == null) continue;
-            forecastRepository.deleteByIngredientAndGeneratedAt(ingredient, java.time.LocalDate.now());
             List<Integer> monthly = dto.getForecastData().get("monthly");
             List<String> labels = dto.getLabels().get("monthly");
             if (monthly == null || labels == null) continue;
@@ -165,12 +308,12 @@ public class IngredientForecastService {
                 entity.setIngredient(ingredient);
                 entity.setDate(java.time.YearMonth.parse(labels.get(i)).atDay(1));
                 entity.setQuantity(val);
-                entity.setGeneratedAt(java.time.LocalDate.now());
-                forecastRepository.save(entity);
-                saved++;
+                entity.setGeneratedAt(today);
+                rows.add(entity);
             }
         }
-        log.debug("Persisted {} ingredient forecast rows", saved);
+        forecastRepository.saveAll(rows);
+        log.debug("Persisted {} ingredient forecast rows", rows.size());
     }
 
     public java.util.List<IngredientForecast> getDetails(long ingredientId) {
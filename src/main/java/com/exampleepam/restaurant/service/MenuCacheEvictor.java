@@ -0,0 +1,118 @@
+package com.exampleepam.restaurant.service;
+
+import com.exampleepam.restaurant.dto.dish.DishResponseDto;
+import com.exampleepam.restaurant.entity.Category;
+import com.exampleepam.restaurant.entity.paging.Paged;
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiPredicate;
+
+/**
+ * Removes only the menu pages a write can change instead of clearing the
+ * whole "menu" cache. A review changes the rating shown for one dish, so
+ * only pages listing that dish are dropped; adding, moving or archiving a
+ * dish shifts every page of the affected categories.
+ * <p>
+ * When called inside a transaction the eviction runs after commit, so a
+ * concurrent read cannot cache the old state again in between.
+ */
+@Slf4j
+@Component
+public class MenuCacheEvictor {
+
+    static final String CACHE_NAME = "menu";
+
+    private final CacheManager cacheManager;
+
+    @Autowired
+    public MenuCacheEvictor(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Drops cached pages that list the dish. Use when only the dish's
+     * displayed data changed, e.g. its rating.
+     */
+    public void evictDish(long dishId) {
+        afterCommit(() -> evictIf((key, value) -> lists(value, dishId)));
+    }
+
+    /**
+     * Drops every cached page of the given categories, of the full menu and
+     * of the archive, plus any other page listing the dish. Use when a dish is
+     * added, removed, archived or moved, since that shifts page contents.
+     */
+    public void evictListings(long dishId, Category... categories) {
+        Set<String> affected = new HashSet<>();
+        affected.add(MenuPageKey.CATEGORY_ALL);
+        affected.add(MenuPageKey.CATEGORY_ARCHIVED);
+        for (Category category : categories) {
+            if (category != null) {
+                affected.add(MenuPageKey.normalize(category.name()));
+            }
+        }
+        afterCommit(() -> evictIf((key, value) ->
+                (key instanceof MenuPageKey page && affected.contains(page.category())) || lists(value, dishId)));
+    }
+
+    private void evictIf(BiPredicate<Object, Object> predicate) {
+        org.springframework.cache.Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache == null) {
+            return;
+        }
+        Map<Object, Object> entries = asMap(cache.getNativeCache());
+        if (entries == null) {
+            cache.clear();
+            return;
+        }
+        int before = entries.size();
+        entries.entrySet().removeIf(e -> predicate.test(e.getKey(), e.getValue()));
+        log.debug("Evicted {} of {} menu pages", before - entries.size(), before);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Object> asMap(Object nativeCache) {
+        if (nativeCache instanceof Cache<?, ?> caffeine) {
+            return (Map<Object, Object>) caffeine.asMap();
+        }
+        if (nativeCache instanceof ConcurrentMap<?, ?> map) {
+            return (Map<Object, Object>) map;
+        }
+        return null;
+    }
+
+    private static boolean lists(Object value, long dishId) {
+        if (!(value instanceof Paged<?> paged) || paged.getPage() == null) {
+            return false;
+        }
+        for (Object item : paged.getPage().getContent()) {
+            if (item instanceof DishResponseDto dto && dto.getId() == dishId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void afterCommit(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        } else {
+            eviction.run();
+        }
+    }
+}
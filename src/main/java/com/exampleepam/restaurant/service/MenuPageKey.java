@@ -0,0 +1,22 @@
+package com.exampleepam.restaurant.service;
+
+import java.util.Locale;
+
+/**
+ * Key of one cached menu page. The category is normalised the same way
+ * {@link DishService#findPaginated} interprets it, so eviction can match
+ * pages by category.
+ */
+public record MenuPageKey(int page, int size, String sortField, String sortDir, String category) {
+
+    static final String CATEGORY_ALL = "all";
+    static final String CATEGORY_ARCHIVED = "archived";
+
+    public static MenuPageKey of(int page, int size, String sortField, String sortDir, String category) {
+        return new MenuPageKey(page, size, sortField, sortDir, normalize(category));
+    }
+
+    static String normalize(String category) {
+        return category == null ? CATEGORY_ALL : category.replace("\"", "").trim().toLowerCase(Locale.ENGLISH);
+    }
+}
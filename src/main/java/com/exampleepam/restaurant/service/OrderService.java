@@ -4,10 +4,13 @@ import com.exampleepam.restaurant.dto.order.OrderCreationDto;
 import com.exampleepam.restaurant.dto.order.OrderResponseDto;
 import com.exampleepam.restaurant.entity.Dish;
 import com.exampleepam.restaurant.entity.Order;
+import com.exampleepam.restaurant.entity.OrderItem;
 import com.exampleepam.restaurant.entity.Status;
 import com.exampleepam.restaurant.entity.User;
+import com.exampleepam.restaurant.entity.paging.KeysetPaged;
 import com.exampleepam.restaurant.entity.paging.Paged;
 import com.exampleepam.restaurant.entity.paging.Paging;
+import com.exampleepam.restaurant.entity.paging.SeekCursor;
 import com.exampleepam.restaurant.exception.EntityType;
 import com.exampleepam.restaurant.exception.ExceptionManager;
 import com.exampleepam.restaurant.mapper.OrderMapper;
@@ -16,10 +19,12 @@ import com.exampleepam.restaurant.repository.OrderRepository;
 import com.exampleepam.restaurant.repository.UserRepository;
 import com.exampleepam.restaurant.security.AuthenticatedUser;
 import com.exampleepam.restaurant.util.ServiceUtil;
-import com.exampleepam.restaurant.service.DishForecastService;
-import com.exampleepam.restaurant.service.IngredientForecastService;
-import com.exampleepam.restaurant.service.forecast.ForecastModel;
+import com.exampleepam.restaurant.service.forecast.DemandRollupStore;
+import com.exampleepam.restaurant.service.forecast.OrderCompletedEvent;
+import com.exampleepam.restaurant.service.recommendation.InteractionRecordedEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -28,11 +33,17 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.exampleepam.restaurant.exception.ExceptionManager.*;
@@ -54,16 +65,14 @@ public class OrderService {
     private final DishRepository dishRepository;
     private final UserService userService;
     private final ServiceUtil serviceUtil;
-    private final DishForecastService dishForecastService;
-    private final IngredientForecastService ingredientForecastService;
-    private final List<ForecastModel> models;
+    private final DemandRollupStore demandRollupStore;
+    private final ApplicationEventPublisher eventPublisher;
 
     public OrderService(OrderRepository orderRepository, OrderMapper orderMapper,
                         UserRepository userRepository, DishRepository dishRepository,
                         UserService userService, ServiceUtil serviceUtil,
-                        DishForecastService dishForecastService,
-                        IngredientForecastService ingredientForecastService,
-                        List<ForecastModel> models) {
+                        DemandRollupStore demandRollupStore,
+                        ApplicationEventPublisher eventPublisher) {
 
         this.orderRepository = orderRepository;
         this.orderMapper = orderMapper;
@@ -71,17 +80,21 @@ public class OrderService {
         this.dishRepository = dishRepository;
         this.userService = userService;
         this.serviceUtil = serviceUtil;
-        this.dishForecastService = dishForecastService;
-        this.ingredientForecastService = ingredientForecastService;
-        this.models = models;
+        this.demandRollupStore = demandRollupStore;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
-     * Deletes an Order by id
+     * Deletes an Order by id. A completed order is also subtracted from the
+     * demand rollup so forecasts stop counting it.
      *
      * @param id the order's id
      */
+    @Transactional
     public void delete(long id) {
+        orderRepository.findById(id)
+                .filter(order -> order.getStatus() == Status.COMPLETED)
+                .ifPresent(order -> demandRollupStore.recordOrder(order, -1));
         orderRepository.deleteById(id);
     }
 
@@ -97,29 +110,20 @@ public class OrderService {
      *                    else - filtered by the given status
      * @return a Paged object with a sorted and filtered by status list of OrderResponseDTOs
      */
+    @Transactional(readOnly = true)
     public Paged<OrderResponseDto> findPaginated(int currentPage, int pageSize, String sortField,
                                                  String sortDir, String status) {
         Sort sort = serviceUtil.getSort(sortField, sortDir);
 
         Pageable pageable = PageRequest.of(currentPage - 1, pageSize, sort);
 
+        Page<Long> idPage;
         if (status.equals(STATUS_ALL)) {
-            Page<Order> orderPage = orderRepository.findAll(pageable);
-            Page<OrderResponseDto> orderResponseDtoPage = toDtoPage(orderPage);
-            return new Paged<>(orderResponseDtoPage, Paging.of(orderPage.getTotalPages(), currentPage, pageSize));
-
-        } else if (status.equals(STATUS_ACTIVE)) {
-            Page<Order> orderPage = orderRepository.findOrdersWhereStatusOneOf(
-                    ACTIVE_STATUS_LIST, pageable);
-            Page<OrderResponseDto> orderResponseDtoPage = toDtoPage(orderPage);
-            return new Paged<>(orderResponseDtoPage, Paging.of(orderPage.getTotalPages(), currentPage, pageSize));
-
+            idPage = orderRepository.findPageIds(pageable);
         } else {
-            Page<Order> orderPage = orderRepository
-                    .findOrdersByStatus(Status.valueOf(status.toUpperCase(Locale.ENGLISH)), pageable);
-            Page<OrderResponseDto> orderResponseDtoPage = toDtoPage(orderPage);
-            return new Paged<>(orderResponseDtoPage, Paging.of(orderPage.getTotalPages(), currentPage, pageSize));
+            idPage = orderRepository.findPageIdsWhereStatusOneOf(resolveStatuses(status), pageable);
         }
+        return new Paged<>(toDtoPage(idPage), Paging.of(idPage.getTotalPages(), currentPage, pageSize));
     }
 
     /**
@@ -135,6 +139,7 @@ public class OrderService {
      * @param authenticatedUser filter orders by the given user
      * @return a Paged object with a sorted and filtered by status list of OrderResponseDTOs
      */
+    @Transactional(readOnly = true)
     public Paged<OrderResponseDto> findPaginatedByUser(int currentPage, int pageSize,
                                                        String sortField, String sortDir,
                                                        String status, AuthenticatedUser authenticatedUser) {
@@ -143,30 +148,121 @@ public class OrderService {
         Pageable pageable = PageRequest.of(currentPage - 1, pageSize, sort);
         long userId = userRepository.findByEmail(authenticatedUser.getUsername()).getId();
 
+        Page<Long> idPage;
         if (status.equals(STATUS_ALL)) {
-            Page<Order> orderPage = orderRepository.findAllOrdersByUserId(userId, pageable);
-            Page<OrderResponseDto> orderResponseDtoPage = toDtoPage(orderPage);
-            return new Paged<>(orderResponseDtoPage, Paging.of(orderPage.getTotalPages(), currentPage, pageSize));
+            idPage = orderRepository.findPageIdsByUserId(userId, pageable);
+        } else {
+            idPage = orderRepository.findPageIdsByUserIdWhereStatusOneOf(userId, resolveStatuses(status), pageable);
+        }
+        return new Paged<>(toDtoPage(idPage), Paging.of(idPage.getTotalPages(), currentPage, pageSize));
+    }
 
-        } else if (status.equals(STATUS_ACTIVE)) {
-            Page<Order> orderPage = orderRepository.findOrdersByUserIdWhereStatusOneOf(
-                    userId, ACTIVE_STATUS_LIST, pageable);
-            Page<OrderResponseDto> orderResponseDtoPage = toDtoPage(orderPage);
-            return new Paged<>(orderResponseDtoPage, Paging.of(orderPage.getTotalPages(), currentPage, pageSize));
 
-        } else {
-            Page<Order> orderPage = orderRepository
-                    .findOrdersByStatusAndUserId(Status.valueOf(status.toUpperCase(Locale.ENGLISH)), userId, pageable);
-            Page<OrderResponseDto> orderResponseDtoPage = toDtoPage(orderPage);
-            return new Paged<>(orderResponseDtoPage, Paging.of(orderPage.getTotalPages(), currentPage, pageSize));
+    /**
+     * Returns one page of orders, newest first, starting after the given
+     * cursor. Unlike {@link #findPaginated} it needs neither an OFFSET scan nor
+     * a count query, so every page costs the same as the first.
+     *
+     * @param pageSize  number of rows per page
+     * @param status    filter status, interpreted as in {@link #findPaginated}
+     * @param cursor    {@link SeekCursor} of the previous page's last row; blank for the first page
+     * @param withTotal whether to also fill an approximate total; for the
+     *                  unfiltered list it is the planner's row estimate, left
+     *                  empty until the table has been analysed
+     * @return a KeysetPaged with the page rows and the cursor of the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPaged<OrderResponseDto> findKeysetPage(int pageSize, String status, String cursor,
+                                                        boolean withTotal) {
+        Collection<Status> statuses = resolveStatuses(status);
+        SeekCursor after = SeekCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<SeekCursor> keys = after == null
+                ? orderRepository.findKeysetFirst(statuses, limit)
+                : orderRepository.findKeysetAfter(statuses, after.creationDateTime(), after.id(), limit);
+        Long total = null;
+        if (withTotal) {
+            total = status.equals(STATUS_ALL) ? estimateOrderCount() : orderRepository.countByStatusIn(statuses);
+        }
+        return toKeysetPaged(keys, pageSize, after, total);
+    }
+
+    /**
+     * Keyset variant of {@link #findPaginatedByUser}; see {@link #findKeysetPage}.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPaged<OrderResponseDto> findKeysetPageByUser(int pageSize, String status, String cursor,
+                                                              boolean withTotal,
+                                                              AuthenticatedUser authenticatedUser) {
+        long userId = userRepository.findByEmail(authenticatedUser.getUsername()).getId();
+        Collection<Status> statuses = resolveStatuses(status);
+        SeekCursor after = SeekCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<SeekCursor> keys = after == null
+                ? orderRepository.findKeysetFirstByUserId(userId, statuses, limit)
+                : orderRepository.findKeysetAfterByUserId(userId, statuses,
+                after.creationDateTime(), after.id(), limit);
+        Long total = withTotal ? orderRepository.countByUserIdAndStatusIn(userId, statuses) : null;
+        return toKeysetPaged(keys, pageSize, after, total);
+    }
+
+    /**
+     * The next cursor is the key of the last row of the id page, so an order
+     * deleted before its details are loaded cannot move the next page back.
+     */
+    private KeysetPaged<OrderResponseDto> toKeysetPaged(List<SeekCursor> keys, int pageSize,
+                                                        SeekCursor after, Long total) {
+        boolean hasNext = keys.size() > pageSize;
+        List<SeekCursor> page = hasNext ? keys.subList(0, pageSize) : keys;
+        List<OrderResponseDto> content = loadForListing(page.stream().map(SeekCursor::id).toList());
+        String nextCursor = hasNext && !page.isEmpty() ? page.get(page.size() - 1).encode() : null;
+        return new KeysetPaged<>(new PageImpl<>(content), Paging.of(1, 1, pageSize),
+                after == null ? null : after.encode(), nextCursor, total);
+    }
+
+    private Collection<Status> resolveStatuses(String status) {
+        if (status.equals(STATUS_ALL)) {
+            return EnumSet.allOf(Status.class);
+        } else if (status.equals(STATUS_ACTIVE)) {
+            return ACTIVE_STATUS_LIST;
         }
+        return List.of(Status.valueOf(status.toUpperCase(Locale.ENGLISH)));
+    }
 
+    /**
+     * The planner's row estimate, or {@code null} while it is unknown, i.e.
+     * before the first ANALYZE of the table.
+     */
+    private Long estimateOrderCount() {
+        Long estimate = orderRepository.estimateRowCount();
+        return estimate == null || estimate < 0 ? null : estimate;
     }
 
+    private Page<OrderResponseDto> toDtoPage(Page<Long> idPage) {
+        return new PageImpl<>(loadForListing(idPage.getContent()), idPage.getPageable(),
+                idPage.getTotalElements());
+    }
 
-    private Page<OrderResponseDto> toDtoPage(Page<Order> orderPage) {
-        return orderPage
-                .map(orderMapper::toOrderResponseDto);
+    /**
+     * Loads the orders with the given ids in one fetch-join query and maps
+     * them to DTOs in the order of {@code ids}.
+     */
+    private List<OrderResponseDto> loadForListing(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Order> byId = new HashMap<>();
+        for (Order order : orderRepository.findAllForListingByIdIn(ids)) {
+            byId.put(order.getId(), order);
+        }
+        List<OrderResponseDto> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Order order = byId.get(id);
+            if (order != null) {
+                result.add(orderMapper.toOrderResponseDto(order));
+            }
+        }
+        return result;
     }
 
     /**
@@ -231,10 +327,16 @@ public class OrderService {
         order.setStatus(nextStatus);
         order.setUpdateDateTime(LocalDateTime.now());
         if (nextStatus == Status.COMPLETED) {
-            for (ForecastModel m : models) {
-                dishForecastService.getDishForecasts(7, null, null, m.getName(), Pageable.unpaged(), true);
-                ingredientForecastService.getIngredientForecasts(7, null, null, m.getName(), Pageable.unpaged(), true);
+            demandRollupStore.recordOrder(order, 1);
+            Set<Long> dishIds = new HashSet<>();
+            for (OrderItem item : order.getOrderItems()) {
+                dishIds.add(item.getDish().getId());
+                eventPublisher.publishEvent(
+                        new InteractionRecordedEvent(order.getUser().getId(), item.getDish().getId(), 1.0));
             }
+            // forecasts and the recommendation model are updated after commit;
+            // see ForecastRefresher and RecommendationService
+            eventPublisher.publishEvent(new OrderCompletedEvent(order.getId(), dishIds));
         }
     }
 
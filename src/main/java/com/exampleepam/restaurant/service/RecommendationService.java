@@ -2,23 +2,25 @@ package com.exampleepam.restaurant.service;
 
 import com.exampleepam.restaurant.dto.dish.DishResponseDto;
 import com.exampleepam.restaurant.entity.Dish;
-import com.exampleepam.restaurant.entity.Order;
-import com.exampleepam.restaurant.entity.OrderItem;
-import com.exampleepam.restaurant.entity.Review;
-import com.exampleepam.restaurant.entity.Status;
 import com.exampleepam.restaurant.mapper.DishMapper;
 import com.exampleepam.restaurant.repository.DishRepository;
-import com.exampleepam.restaurant.repository.OrderRepository;
-import com.exampleepam.restaurant.repository.ReviewRepository;
 import com.exampleepam.restaurant.service.recommendation.CategoryFallback;
 import com.exampleepam.restaurant.service.recommendation.CollaborativePredictor;
-import com.exampleepam.restaurant.service.recommendation.RatingMatrixBuilder;
+import com.exampleepam.restaurant.service.recommendation.InteractionLoader;
+import com.exampleepam.restaurant.service.recommendation.InteractionLoader.Interactions;
+import com.exampleepam.restaurant.service.recommendation.InteractionRecordedEvent;
+import com.exampleepam.restaurant.service.recommendation.RecommendationCache;
 import com.exampleepam.restaurant.service.recommendation.RatingMatrixBuilder.RatingData;
 import java.util.*;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /** Service providing dish recommendations for users. */
 @Slf4j
@@ -31,46 +33,149 @@ public class RecommendationService {
 
     private final DishRepository dishRepository;
     private final DishMapper dishMapper;
-    private final ReviewRepository reviewRepository;
-    private final OrderRepository orderRepository;
+    private final InteractionLoader interactionLoader;
     private final FactorizationService factorizationService;
-    private final RatingMatrixBuilder ratingMatrixBuilder;
     private final CollaborativePredictor collaborativePredictor;
     private final CategoryFallback categoryFallback;
+    private final RecommendationCache recommendationCache;
+    private final DishRatingService dishRatingService;
+    private final TransactionTemplate readOnlyTransaction;
+    /** Scoring inputs of the last refresh; {@code null} until one found any interactions. */
+    private volatile ScoringInputs snapshot;
 
     @Autowired
     public RecommendationService(DishRepository dishRepository,
                                  DishMapper dishMapper,
-                                 ReviewRepository reviewRepository,
-                                 OrderRepository orderRepository,
+                                 InteractionLoader interactionLoader,
                                  FactorizationService factorizationService,
-                                 RatingMatrixBuilder ratingMatrixBuilder,
                                  CollaborativePredictor collaborativePredictor,
-                                 CategoryFallback categoryFallback) {
+                                 CategoryFallback categoryFallback,
+                                 RecommendationCache recommendationCache,
+                                 DishRatingService dishRatingService,
+                                 PlatformTransactionManager transactionManager) {
         this.dishRepository = dishRepository;
         this.dishMapper = dishMapper;
-        this.reviewRepository = reviewRepository;
-        this.orderRepository = orderRepository;
+        this.interactionLoader = interactionLoader;
         this.factorizationService = factorizationService;
-        this.ratingMatrixBuilder = ratingMatrixBuilder;
         this.collaborativePredictor = collaborativePredictor;
         this.categoryFallback = categoryFallback;
+        this.recommendationCache = recommendationCache;
+        this.dishRatingService = dishRatingService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
-    /** Recommend dishes for a user using CF + MF blend with category fallback. */
+    /**
+     * Recommend dishes for a user using CF + MF blend with category fallback.
+     * Requests up to the cache's top-N are served from {@link RecommendationCache}
+     * without a transaction. A missing or expired entry, or a request for more
+     * than top-N dishes, is scored against the interactions of the last
+     * refresh and the current factorization model, which already holds the
+     * user's newer interactions; nothing is loaded per request. Before the
+     * first refresh the category fallback is served and not cached.
+     */
     public List<DishResponseDto> getRecommendedDishes(long userId, int limit) {
         if (limit <= 0) return List.of();
 
-        log.debug("Generating recommendations for user {} limit {}", userId, limit);
+        final int topN = recommendationCache.getTopN();
+        final List<DishResponseDto> cached = limit <= topN ? recommendationCache.get(userId) : null;
+        if (cached != null) {
+            return new ArrayList<>(cached.subList(0, Math.min(limit, cached.size())));
+        }
+        final ScoringInputs inputs = snapshot;
+        if (inputs == null) {
+            return categoryFallback.recommend(userId, Set.of(), limit);
+        }
+        if (limit > topN) {
+            return readOnlyTransaction.execute(
+                    status -> computeRecommendations(userId, limit, inputs, new HashMap<>()));
+        }
+        log.debug("Recommendation cache miss for user {}", userId);
+        final long generation = recommendationCache.generation();
+        final List<DishResponseDto> top = readOnlyTransaction.execute(
+                status -> computeRecommendations(userId, topN, inputs, new HashMap<>()));
+        recommendationCache.putIfUnchanged(userId, top, generation);
+        return new ArrayList<>(top.subList(0, Math.min(limit, top.size())));
+    }
+
+    /**
+     * Recomputes top-N recommendations in the background. Reviews, orders and
+     * the rating matrix are loaded once, in a short read-only transaction of
+     * their own, and shared by every user; currently cached users are
+     * refreshed first, then other users with interactions until the cache is
+     * full. The factorization model is fully retrained here, off the request
+     * threads and outside any transaction; the new model is swapped in
+     * atomically. The lists are scored in a second read-only transaction,
+     * needed to map dishes, and stored after it ends; users who interacted
+     * since the inputs were read keep their evicted entry. The inputs are kept
+     * to serve cache misses until the next refresh. The first run starts right
+     * after startup.
+     */
+    @Scheduled(fixedDelayString = "${recommendation.cache.refresh-ms:900000}", initialDelay = 0)
+    public void refreshRecommendations() {
+        final long started = System.currentTimeMillis();
+        final long generation = recommendationCache.generation();
+        final Interactions inputs = interactionLoader.load();
+        if (inputs == null) {
+            snapshot = null;
+            recommendationCache.clear();
+            return;
+        }
+        factorizationService.train(inputs.interactions());
+        final ScoringInputs scoring = new ScoringInputs(inputs.ratingData(), inputs.dishIds());
+        snapshot = scoring;
+        log.info("Factorization retrained, trainRMSE={}", factorizationService.rmseOnReviews(inputs.reviews()));
+
+        final List<Long> cached = recommendationCache.userIds();
+        Collections.reverse(cached);
+        final Set<Long> targets = new LinkedHashSet<>(cached);
+        for (Long userId : inputs.ratingData().matrix().keySet()) {
+            if (targets.size() >= recommendationCache.getMaxUsers()) break;
+            targets.add(userId);
+        }
+
+        final int topN = recommendationCache.getTopN();
+        final Map<Long, List<DishResponseDto>> lists = readOnlyTransaction.execute(status -> {
+            final Map<Long, DishResponseDto> dishDtos = new HashMap<>();
+            final Map<Long, List<DishResponseDto>> computed = new LinkedHashMap<>();
+            for (Long userId : targets) {
+                computed.put(userId, computeRecommendations(userId, topN, scoring, dishDtos));
+            }
+            return computed;
+        });
+        int stored = 0;
+        for (Map.Entry<Long, List<DishResponseDto>> e : lists.entrySet()) {
+            if (recommendationCache.putIfUnchanged(e.getKey(), e.getValue(), generation)) stored++;
+        }
+        log.info("Refreshed recommendations for {} of {} users in {} ms",
+                stored, targets.size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Folds a new review ({@code rating}) or completed order line ({@code 1.0})
+     * into the factorization model and drops the user's cached list so the
+     * next view reflects it.
+     */
+    public void recordInteraction(long userId, long dishId, double rating) {
+        factorizationService.observe(userId, dishId, rating);
+        recommendationCache.evict(userId);
+    }
+
+    /**
+     * Records the interaction once the review or order completion that
+     * published it has committed.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInteractionRecorded(InteractionRecordedEvent event) {
+        recordInteraction(event.userId(), event.dishId(), event.rating());
+    }
 
-        // Load data
-        final List<Review> reviews = reviewRepository.findAllWithUserAndDish();
-        final List<Order> orders = orderRepository.findByStatus(Status.COMPLETED);
-        log.debug("Loaded {} reviews and {} completed orders", reviews.size(), orders.size());
-        if (reviews.isEmpty() && orders.isEmpty()) return List.of();
+    private List<DishResponseDto> computeRecommendations(long userId, int limit, ScoringInputs inputs,
+                                                         Map<Long, DishResponseDto> dishDtos) {
+        log.debug("Generating recommendations for user {} limit {}", userId, limit);
 
         // Build rating structures for user-based CF
-        final RatingData ratingData = ratingMatrixBuilder.build(reviews, orders);
+        final RatingData ratingData = inputs.ratingData();
         final Map<Long, Map<Long, Double>> ratingMatrix = ratingData.matrix();
         final Map<Long, Double> targetRatings = ratingMatrix.getOrDefault(userId, Map.of());
 
@@ -78,22 +183,12 @@ public class RecommendationService {
         final Map<Long, Double> cfRaw =
                 Optional.ofNullable(collaborativePredictor.predict(userId, ratingData)).orElseGet(Map::of);
 
-        // --- MF branch (biased MF) ---
-        if (!factorizationService.isReady()) {
-            factorizationService.train(reviews, orders);
-            final double trainRmse = factorizationService.rmseOnReviews(reviews);
-            log.info("Factorization trained, trainRMSE={}", trainRmse);
-        }
-
         // Candidates: every dish seen in reviews/orders, minus user's already-rated/ordered ones
-        final Set<Long> candidateIds = collectAllDishIds(reviews, orders);
+        final Set<Long> candidateIds = new HashSet<>(inputs.dishIds());
         candidateIds.removeAll(targetRatings.keySet());
 
-        // Score MF for candidates only
-        final Map<Long, Double> mfScores = new HashMap<>(candidateIds.size());
-        for (Long dishId : candidateIds) {
-            mfScores.put(dishId, factorizationService.predict(userId, dishId));
-        }
+        // Score MF (biased MF) for candidates only
+        final Map<Long, Double> mfScores = factorizationService.predictAll(userId, candidateIds);
 
         // Blend after z-normalization to make scales comparable
         final Map<Long, Double> cfNorm = normalizeZ(cfRaw);
@@ -117,10 +212,7 @@ public class RecommendationService {
                 .collect(Collectors.toList());
 
         // Fetch, map to DTOs, decorate, and final sort by blended score + tie-breakers
-        final List<Dish> dishes = dishRepository.findAllById(topIds);
-        final List<DishResponseDto> dtos = new ArrayList<>(dishMapper.toDishResponseDtoList(dishes));
-        assignAverageRatings(dtos);
-        assignReviewCounts(dtos);
+        final List<DishResponseDto> dtos = resolveDishes(topIds, dishDtos);
 
         dtos.sort(Comparator
                 .<DishResponseDto>comparingDouble(d -> -blended.getOrDefault(d.getId(), 0.0))
@@ -144,22 +236,28 @@ public class RecommendationService {
 
     // ------------ helpers ------------
 
-    private static Set<Long> collectAllDishIds(List<Review> reviews, List<Order> orders) {
-        final Set<Long> ids = new HashSet<>();
-        for (Review r : reviews) {
-            if (r == null || r.getDish() == null) continue;
-            final Long id = r.getDish().getId();
-            if (id != null) ids.add(id);
-        }
-        for (Order o : orders) {
-            if (o == null || o.getOrderItems() == null) continue;
-            for (OrderItem it : o.getOrderItems()) {
-                if (it == null || it.getDish() == null) continue;
-                final Long id = it.getDish().getId();
-                if (id != null) ids.add(id);
+    /**
+     * Maps dish ids to decorated DTOs in the given order, loading only ids not
+     * already present in {@code dishDtos}. The map is shared across users
+     * during a refresh so each dish is fetched once.
+     */
+    private List<DishResponseDto> resolveDishes(List<Long> ids, Map<Long, DishResponseDto> dishDtos) {
+        final Set<Long> missing = new LinkedHashSet<>(ids);
+        missing.removeAll(dishDtos.keySet());
+        if (!missing.isEmpty()) {
+            final List<Dish> dishes = dishRepository.findAllById(missing);
+            final List<DishResponseDto> loaded = dishMapper.toDishResponseDtoList(dishes);
+            dishRatingService.decorate(loaded);
+            for (DishResponseDto dto : loaded) {
+                dishDtos.put(dto.getId(), dto);
             }
         }
-        return ids;
+        final List<DishResponseDto> dtos = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            final DishResponseDto dto = dishDtos.get(id);
+            if (dto != null) dtos.add(dto);
+        }
+        return dtos;
     }
 
     private static Map<Long, Double> normalizeZ(Map<Long, Double> scores) {
@@ -194,17 +292,10 @@ public class RecommendationService {
         return out;
     }
 
-    private void assignAverageRatings(List<DishResponseDto> dtos) {
-        for (DishResponseDto dto : dtos) {
-            final Double avg = reviewRepository.getAverageRatingByDishId(dto.getId());
-            dto.setAverageRating(avg == null ? 0.0 : avg);
-        }
-    }
-
-    private void assignReviewCounts(List<DishResponseDto> dtos) {
-        for (DishResponseDto dto : dtos) {
-            final Long count = reviewRepository.countByDishId(dto.getId());
-            dto.setReviewCount(count == null ? 0 : count);
-        }
-    }
+    /**
+     * The part of a refresh's interactions needed to score a user: the rating
+     * matrix for CF and the candidate dishes. Review and order lists are only
+     * needed for training and are not kept.
+     */
+    private record ScoringInputs(RatingData ratingData, Set<Long> dishIds) {}
 }
@@ -14,6 +14,8 @@ import com.exampleepam.restaurant.repository.OrderRepository;
 import com.exampleepam.restaurant.repository.ReviewRepository;
 import com.exampleepam.restaurant.entity.paging.Paged;
 import com.exampleepam.restaurant.entity.paging.Paging;
+import com.exampleepam.restaurant.service.recommendation.InteractionRecordedEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -21,8 +23,8 @@ import org.springframework.data.domain.Sort;
 import com.exampleepam.restaurant.repository.UserRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
 import java.util.List;
@@ -37,16 +39,24 @@ public class ReviewService {
     private final DishMapper dishMapper;
     private final UserRepository userRepository;
     private final ReviewMapper reviewMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DishRatingService dishRatingService;
+    private final MenuCacheEvictor menuCacheEvictor;
 
     @Autowired
     public ReviewService(ReviewRepository reviewRepository, OrderRepository orderRepository, DishRepository dishRepository,
-                         DishMapper dishMapper, UserRepository userRepository, ReviewMapper reviewMapper) {
+                         DishMapper dishMapper, UserRepository userRepository, ReviewMapper reviewMapper,
+                         ApplicationEventPublisher eventPublisher, DishRatingService dishRatingService,
+                         MenuCacheEvictor menuCacheEvictor) {
         this.reviewRepository = reviewRepository;
         this.orderRepository = orderRepository;
         this.dishRepository = dishRepository;
         this.dishMapper = dishMapper;
         this.userRepository = userRepository;
         this.reviewMapper = reviewMapper;
+        this.eventPublisher = eventPublisher;
+        this.dishRatingService = dishRatingService;
+        this.menuCacheEvictor = menuCacheEvictor;
     }
 
 
@@ -66,7 +76,7 @@ public class ReviewService {
     /**
      * Save a single review for a dish by a user.
      */
-    @CacheEvict(cacheNames = "menu", allEntries = true)
+    @Transactional
     public void saveReview(ReviewDto reviewDto, Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
@@ -76,12 +86,15 @@ public class ReviewService {
         review.setUser(user);
         review.setDish(dish);
         reviewRepository.save(review);
+        dishRatingService.recordRating(dish.getId(), review.getRating(), 1);
+        menuCacheEvictor.evictDish(dish.getId());
+        eventPublisher.publishEvent(new InteractionRecordedEvent(userId, dish.getId(), review.getRating()));
     }
 
     /**
      * Submit multiple reviews for an order.
      */
-    @CacheEvict(cacheNames = "menu", allEntries = true)
+    @Transactional
     public void submitReviews(Long orderId, Long userId, List<ReviewDto> reviews) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new EntityNotFoundException("User not found"));
@@ -100,6 +113,9 @@ public class ReviewService {
             review.setDish(dish);
             review.setOrder(order);
             reviewRepository.save(review);
+            dishRatingService.recordRating(dish.getId(), review.getRating(), 1);
+            menuCacheEvictor.evictDish(dish.getId());
+            eventPublisher.publishEvent(new InteractionRecordedEvent(userId, dish.getId(), review.getRating()));
         });
         order.setReviewed(true);
         orderRepository.save(order);
@@ -140,15 +156,18 @@ public class ReviewService {
     }
 
     public double getAverageRatingForDish(Long dishId) {
-        Double avg = reviewRepository.getAverageRatingByDishId(dishId);
-        return avg == null ? 0 : avg;
+        return dishRatingService.getAverageRating(dishId);
     }
 
     /**
      * Delete a review by its id.
      */
-    @CacheEvict(cacheNames = "menu", allEntries = true)
+    @Transactional
     public void deleteReview(Long reviewId) {
-        reviewRepository.deleteById(reviewId);
+        reviewRepository.findById(reviewId).ifPresent(review -> {
+            dishRatingService.recordRating(review.getDish().getId(), review.getRating(), -1);
+            menuCacheEvictor.evictDish(review.getDish().getId());
+            reviewRepository.delete(review);
+        });
     }
 }
@@ -4,8 +4,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Minimal AR(1) (ARIMA(1,0,0)) with OLS phi, recursive forecast, and simple 95% CIs.
@@ -26,64 +28,94 @@ public class ArimaModel implements ForecastModel {
     @Override
     public ForecastResult forecast(List<Integer> history, int periods) {
         log.debug("ARIMA forecast requested with history={} periods={}", history, periods);
-
         if (history == null || history.isEmpty() || periods <= 0) {
-            int len = Math.max(periods, 0);
-            return new ForecastResult(
-                    Collections.nCopies(len, 0d),
-                    0, 0, 0,
-                    0, 0,
-                    Collections.nCopies(len, 0d),
-                    Collections.nCopies(len, 0d)
-            );
+            return emptyResult(periods);
         }
+        return forecastBatch(SeriesBatch.of(List.of(history)), periods).get(0);
+    }
 
-        final int n = history.size();
-
-        // Single-point fallback: naive repeat (and same for CIs)
-        if (n == 1) {
-            double val = history.get(0);
-            List<Double> fc = new ArrayList<>(Collections.nCopies(periods, val));
-            return new ForecastResult(
-                    fc, 1, 0, 0,
-                    0, 0,
-                    new ArrayList<>(Collections.nCopies(periods, val)),
-                    new ArrayList<>(Collections.nCopies(periods, val))
-            );
+    /**
+     * Fits all series with the same results as {@link #forecast}. The OLS
+     * sums of equally long series are accumulated column-major, one time
+     * step for all of them per pass, so the inner loop has unit stride and
+     * independent lanes; residuals and forecasts then run per series on
+     * scratch arrays shared by the whole length group.
+     */
+    @Override
+    public List<ForecastResult> forecastBatch(SeriesBatch batch, int periods) {
+        ForecastResult[] results = new ForecastResult[batch.size()];
+        for (Map.Entry<Integer, int[]> group : batch.indicesByLength().entrySet()) {
+            int n = group.getKey();
+            int[] rows = group.getValue();
+            if (n == 0 || periods <= 0) {
+                for (int i : rows) results[i] = emptyResult(periods);
+            } else if (n == 1) {
+                // Single-point fallback: naive repeat (and same for CIs)
+                for (int i : rows) results[i] = singlePoint(batch.get(i, 0), periods);
+            } else {
+                fitGroup(batch, rows, n, periods, results);
+            }
         }
+        return Arrays.asList(results);
+    }
+
+    private void fitGroup(SeriesBatch batch, int[] rows, int n, int periods, ForecastResult[] results) {
+        int lanes = rows.length;
+        double[] y = new double[n * lanes];
+        batch.copyColumns(rows, n, y);
 
         // OLS with intercept for y_t = c + phi * y_{t-1}
-        double sumX = 0.0, sumY = 0.0;
+        double[] sumX = new double[lanes];
+        double[] sumY = new double[lanes];
         for (int t = 1; t < n; t++) {
-            sumX += history.get(t - 1);
-            sumY += history.get(t);
+            int prev = (t - 1) * lanes;
+            int cur = t * lanes;
+            for (int s = 0; s < lanes; s++) {
+                sumX[s] += y[prev + s];
+                sumY[s] += y[cur + s];
+            }
         }
         int obs = n - 1;
-        double meanX = sumX / obs;
-        double meanY = sumY / obs;
-
-        double num = 0.0, den = 0.0;
+        double[] meanX = new double[lanes];
+        double[] meanY = new double[lanes];
+        for (int s = 0; s < lanes; s++) {
+            meanX[s] = sumX[s] / obs;
+            meanY[s] = sumY[s] / obs;
+        }
+        double[] num = new double[lanes];
+        double[] den = new double[lanes];
         for (int t = 1; t < n; t++) {
-            double x = history.get(t - 1) - meanX;
-            double y = history.get(t) - meanY;
-            num += x * y;
-            den += x * x;
+            int prev = (t - 1) * lanes;
+            int cur = t * lanes;
+            for (int s = 0; s < lanes; s++) {
+                double x = y[prev + s] - meanX[s];
+                double v = y[cur + s] - meanY[s];
+                num[s] += x * v;
+                den[s] += x * x;
+            }
         }
-        double phi = (den == 0.0) ? 0.0 : (num / den);
-        if (phi > PHI_CLAMP) phi = PHI_CLAMP;
-        if (phi < -PHI_CLAMP) phi = -PHI_CLAMP;
 
-        double intercept = meanY - phi * meanX;
+        double[] fitted = new double[n - 1];
+        double[] actual = new double[n - 1];
+        for (int s = 0; s < lanes; s++) {
+            double phi = (den[s] == 0.0) ? 0.0 : (num[s] / den[s]);
+            if (phi > PHI_CLAMP) phi = PHI_CLAMP;
+            if (phi < -PHI_CLAMP) phi = -PHI_CLAMP;
+            double intercept = meanY[s] - phi * meanX[s];
+            results[rows[s]] = fitSeries(y, lanes, s, n, phi, intercept, periods, fitted, actual);
+        }
+    }
 
+    /** Residual diagnostics and recursive forecast of lane {@code s}. */
+    private ForecastResult fitSeries(double[] y, int lanes, int s, int n, double phi, double intercept, int periods,
+                                     double[] fitted, double[] actual) {
         // Fit/diagnostics on t=1..n-1
-        List<Double> fitted = new ArrayList<>(n - 1);
-        List<Double> actual = new ArrayList<>(n - 1);
         double sse = 0.0;
         for (int t = 1; t < n; t++) {
-            double fit = intercept + phi * history.get(t - 1);
-            double act = history.get(t);
-            fitted.add(fit);
-            actual.add(act);
+            double fit = intercept + phi * y[(t - 1) * lanes + s];
+            double act = y[t * lanes + s];
+            fitted[t - 1] = fit;
+            actual[t - 1] = act;
             double e = act - fit;
             sse += e * e;
         }
@@ -98,7 +130,7 @@ public class ArimaModel implements ForecastModel {
         List<Double> lower = new ArrayList<>(periods);
         List<Double> upper = new ArrayList<>(periods);
 
-        double last = history.get(n - 1);
+        double last = y[(n - 1) * lanes + s];
         double denom = 1.0 - (phi * phi);
         for (int h = 1; h <= periods; h++) {
             last = intercept + phi * last;
@@ -120,4 +152,25 @@ public class ArimaModel implements ForecastModel {
         log.debug("ARIMA phi={} intercept={} rmse={} mape={}", phi, intercept, rmse, mape);
         return new ForecastResult(forecasts, phi, 0, intercept, mape, rmse, lower, upper);
     }
+
+    private static ForecastResult emptyResult(int periods) {
+        int len = Math.max(periods, 0);
+        return new ForecastResult(
+                Collections.nCopies(len, 0d),
+                0, 0, 0,
+                0, 0,
+                Collections.nCopies(len, 0d),
+                Collections.nCopies(len, 0d)
+        );
+    }
+
+    private static ForecastResult singlePoint(double val, int periods) {
+        List<Double> fc = new ArrayList<>(Collections.nCopies(periods, val));
+        return new ForecastResult(
+                fc, 1, 0, 0,
+                0, 0,
+                new ArrayList<>(Collections.nCopies(periods, val)),
+                new ArrayList<>(Collections.nCopies(periods, val))
+        );
+    }
 }
@@ -0,0 +1,68 @@
+package com.exampleepam.restaurant.service.forecast;
+
+import com.exampleepam.restaurant.repository.DishRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Holds the compiled {@link RecipeMatrix} of all dishes. The matrix is built
+ * from one flat projection query on first use and kept until a dish write
+ * calls {@link #invalidate()}, so ingredient forecasting does not load the
+ * dish catalogue on every run.
+ */
+@Component
+public class BillOfMaterials {
+
+    private static final Logger log = LoggerFactory.getLogger(BillOfMaterials.class);
+
+    private final DishRepository dishRepository;
+    private volatile RecipeMatrix matrix;
+
+    @Autowired
+    public BillOfMaterials(DishRepository dishRepository) {
+        this.dishRepository = dishRepository;
+    }
+
+    /** The current matrix, compiled from the database if recipes changed since the last call. */
+    public RecipeMatrix current() {
+        RecipeMatrix m = matrix;
+        if (m != null) {
+            return m;
+        }
+        synchronized (this) {
+            if (matrix == null) {
+                long started = System.currentTimeMillis();
+                matrix = RecipeMatrix.of(dishRepository.findRecipeLines());
+                log.debug("Compiled bill of materials for {} dishes and {} ingredients in {} ms",
+                        matrix.dishCount(), matrix.ingredientCount(), System.currentTimeMillis() - started);
+            }
+            return matrix;
+        }
+    }
+
+    /**
+     * Drops the matrix after a dish, its recipe or its category changed.
+     * Inside a transaction this happens after commit, so a concurrent
+     * rebuild cannot pick up the old recipes again.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clear();
+                }
+            });
+        } else {
+            clear();
+        }
+    }
+
+    private synchronized void clear() {
+        matrix = null;
+    }
+}
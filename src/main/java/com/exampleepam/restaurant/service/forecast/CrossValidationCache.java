@@ -0,0 +1,51 @@
+package com.exampleepam.restaurant.service.forecast;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Memoizes {@link ForecastEvaluator#crossValidate} results. Entries are keyed
+ * by a 64-bit fingerprint of the series, the model configuration and the
+ * fold count, so metrics are recomputed only when the evaluated history or
+ * the model actually changes; repeated refreshes over the same history are
+ * served from memory.
+ */
+@Component
+public class CrossValidationCache {
+
+    private final Cache<Key, ForecastEvaluator.Metrics> cache;
+
+    @Autowired
+    public CrossValidationCache(@Value("${forecast.cv.cache-size:10000}") long maxEntries) {
+        this.cache = Caffeine.newBuilder().maximumSize(maxEntries).build();
+    }
+
+    /** Cross-validates {@code history} with {@code model}, reusing a cached result when present. */
+    public ForecastEvaluator.Metrics crossValidate(List<Integer> history, ForecastModel model, int folds) {
+        Key key = new Key(model.getConfigKey(), folds, history.size(), fingerprint(history));
+        return cache.get(key, k -> ForecastEvaluator.crossValidate(history, model, folds));
+    }
+
+    /**
+     * 64-bit hash of the series (FNV-1a over the values, with a final
+     * avalanche step). Nulls hash like a distinct sentinel value.
+     */
+    static long fingerprint(List<Integer> series) {
+        long h = 0xcbf29ce484222325L;
+        for (Integer v : series) {
+            h ^= v == null ? 0x9e3779b97f4a7c15L : v;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private record Key(String modelConfig, int folds, int length, long fingerprint) {}
+}
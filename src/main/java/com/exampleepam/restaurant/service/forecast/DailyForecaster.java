@@ -2,8 +2,8 @@ package com.exampleepam.restaurant.service.forecast;
 
 import java.time.LocalDate;
 import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -12,74 +12,63 @@ import org.springframework.stereotype.Component;
 @Component
 public class DailyForecaster {
 
+    private static final int PAST_DAYS = 30;
+
+    /**
+     * Shows the last {@value #PAST_DAYS} days and today as actuals and splits
+     * the monthly forecast over the days up to the end of next month. Each
+     * month of the horizon is one contiguous run of days: its forecast minus
+     * the month-to-date actuals is spread as evenly as possible over the
+     * remaining days, earlier days taking the remainder, and the last day of
+     * the run absorbs any difference to the monthly forecast.
+     */
     public ScaleData forecast(long id,
                               HistoryCollector.History history,
                               LocalDate today,
                               Map<YearMonth, Integer> monthForecastMap) {
-        Map<LocalDate, Integer> dishDaily = history.dailyTotals.getOrDefault(id, Map.of());
+        int dishIndex = history.dishIndex(id);
         YearMonth currentMonth = YearMonth.now();
-        List<String> labels = new ArrayList<>();
-        List<Integer> actual = new ArrayList<>();
-        List<Integer> forecast = new ArrayList<>();
-
-        for (int i = -30; i <= 0; i++) {
-            LocalDate day = today.plusDays(i);
-            labels.add(day.toString());
-            actual.add(dishDaily.getOrDefault(day, 0));
-            forecast.add(null);
-        }
-
-        Map<YearMonth, Integer> remainingMonthly = new HashMap<>();
-        Map<YearMonth, Integer> allocatedDays = new HashMap<>();
-        LocalDate futureDay = today.plusDays(1);
         LocalDate horizonEnd = YearMonth.from(today.plusMonths(1)).atEndOfMonth();
-        while (!futureDay.isAfter(horizonEnd)) {
-            YearMonth ym = YearMonth.from(futureDay);
-            int monthPred = monthForecastMap.getOrDefault(ym, 0);
-            remainingMonthly.computeIfAbsent(ym, m -> {
-                int actualSoFar = dishDaily.entrySet().stream()
-                        .filter(e -> YearMonth.from(e.getKey()).equals(ym) && !e.getKey().isAfter(today))
-                        .mapToInt(Map.Entry::getValue)
-                        .sum();
-                return Math.max(0, monthPred - actualSoFar);
-            });
-            allocatedDays.putIfAbsent(ym, ym.equals(currentMonth) ? today.getDayOfMonth() : 0);
-            int usedDays = allocatedDays.get(ym);
+        int futureDays = (int) ChronoUnit.DAYS.between(today, horizonEnd);
+
+        int[] future = new int[futureDays];
+        LocalDate day = today.plusDays(1);
+        for (int i = 0; i < futureDays; ) {
+            YearMonth ym = YearMonth.from(day);
             int daysInMonth = ym.lengthOfMonth();
-            int remainingDays = daysInMonth - usedDays;
-            int remainingQty = remainingMonthly.get(ym);
-            int base = remainingDays > 0 ? remainingQty / remainingDays : 0;
-            int rem = remainingDays > 0 ? remainingQty % remainingDays : 0;
-            int dayIndex = usedDays - (ym.equals(currentMonth) ? today.getDayOfMonth() : 0);
-            int val = base + (dayIndex < rem ? 1 : 0);
-            remainingMonthly.put(ym, remainingQty - val);
-            allocatedDays.put(ym, usedDays + 1);
-            labels.add(futureDay.toString());
-            actual.add(null);
-            forecast.add(val);
-            futureDay = futureDay.plusDays(1);
+            int run = Math.min(futureDays - i, daysInMonth - day.getDayOfMonth() + 1);
+            Integer monthPred = monthForecastMap.get(ym);
+            int actualSoFar = history.dailySum(dishIndex, ym.atDay(1), today);
+            int remainingQty = Math.max(0, (monthPred == null ? 0 : monthPred) - actualSoFar);
+            int usedDays = ym.equals(currentMonth) ? today.getDayOfMonth() : 0;
+            int sum = 0;
+            for (int k = 0; k < run; k++) {
+                int remainingDays = daysInMonth - usedDays - k;
+                int val = remainingDays > 0
+                        ? remainingQty / remainingDays + (k < remainingQty % remainingDays ? 1 : 0)
+                        : 0;
+                remainingQty -= val;
+                future[i + k] = val;
+                sum += val;
+            }
+            if (monthPred != null) {
+                future[i + run - 1] += monthPred - sum;
+            }
+            i += run;
+            day = day.plusDays(run);
         }
-        reconcileDaily(monthForecastMap, labels, forecast);
-        return new ScaleData(labels, actual, forecast);
-    }
 
-    private void reconcileDaily(Map<YearMonth, Integer> monthForecastMap, List<String> labels, List<Integer> forecast) {
-        Map<YearMonth, Integer> sums = new HashMap<>();
-        for (int i = 0; i < labels.size(); i++) {
-            Integer val = forecast.get(i);
-            if (val == null) continue;
-            YearMonth ym = YearMonth.parse(labels.get(i).substring(0,7));
-            sums.merge(ym, val, Integer::sum);
-        }
-        for (Map.Entry<YearMonth, Integer> e : monthForecastMap.entrySet()) {
-            if (!sums.containsKey(e.getKey())) continue; // skip months outside the horizon
-            int diff = e.getValue() - sums.getOrDefault(e.getKey(), 0);
-            if (diff == 0) continue;
-            for (int i = labels.size() - 1; i >= 0; i--) {
-                if (forecast.get(i) == null) continue;
-                YearMonth ym = YearMonth.parse(labels.get(i).substring(0, 7));
-                if (ym.equals(e.getKey())) { forecast.set(i, forecast.get(i) + diff); break; }
-            }
+        int size = PAST_DAYS + 1 + futureDays;
+        List<String> labels = new ArrayList<>(size);
+        List<Integer> actual = new ArrayList<>(size);
+        List<Integer> forecast = new ArrayList<>(size);
+        day = today.minusDays(PAST_DAYS);
+        for (int i = 0; i < size; i++, day = day.plusDays(1)) {
+            labels.add(day.toString());
+            boolean past = i <= PAST_DAYS;
+            actual.add(past ? history.daily(dishIndex, day) : null);
+            forecast.add(past ? null : future[i - PAST_DAYS - 1]);
         }
+        return new ScaleData(labels, actual, forecast);
     }
 }
@@ -0,0 +1,126 @@
+package com.exampleepam.restaurant.service.forecast;
+
+import com.exampleepam.restaurant.dto.order.OrderLineDto;
+import com.exampleepam.restaurant.entity.DishDemandRollup;
+import com.exampleepam.restaurant.entity.Order;
+import com.exampleepam.restaurant.entity.OrderItem;
+import com.exampleepam.restaurant.entity.RollupGrain;
+import com.exampleepam.restaurant.entity.Status;
+import com.exampleepam.restaurant.repository.DishDemandRollupRepository;
+import com.exampleepam.restaurant.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the per-dish demand rollup table. Completed orders are folded
+ * into hour, day and month buckets as they happen, so reading history costs
+ * one row per dish and bucket instead of one entity graph per order.
+ */
+@Component
+public class DemandRollupStore {
+
+    private static final Logger log = LoggerFactory.getLogger(DemandRollupStore.class);
+
+    private final DishDemandRollupRepository rollupRepository;
+    private final OrderRepository orderRepository;
+
+    @Autowired
+    public DemandRollupStore(DishDemandRollupRepository rollupRepository,
+                             OrderRepository orderRepository) {
+        this.rollupRepository = rollupRepository;
+        this.orderRepository = orderRepository;
+    }
+
+    /**
+     * Adds ({@code sign = 1}) or removes ({@code sign = -1}) the quantities of
+     * a completed order from every bucket it falls into. Each bucket is
+     * changed with an in-place increment rather than read and written back,
+     * so orders completing at the same time for the same dish cannot lose
+     * updates. Buckets are touched in dish and grain order to keep the row
+     * lock order the same across transactions.
+     */
+    @Transactional
+    public void recordOrder(Order order, int sign) {
+        LocalDateTime dateTime = order.getCreationDateTime();
+        if (dateTime == null || order.getOrderItems() == null) {
+            return;
+        }
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (OrderItem item : order.getOrderItems()) {
+            quantities.merge(item.getDish().getId(), sign * item.getQuantity(), Integer::sum);
+        }
+        for (Map.Entry<Long, Integer> e : quantities.entrySet()) {
+            if (e.getValue() == 0) {
+                continue;
+            }
+            for (RollupGrain grain : RollupGrain.values()) {
+                addToBucket(e.getKey(), grain, grain.bucketStart(dateTime), e.getValue());
+            }
+        }
+        log.debug("Order {} folded into demand rollup with sign {}", order.getId(), sign);
+    }
+
+    private void addToBucket(long dishId, RollupGrain grain, LocalDateTime bucketStart, int delta) {
+        while (rollupRepository.increment(dishId, grain, bucketStart, delta) == 0) {
+            if (delta < 0) {
+                return;
+            }
+            if (rollupRepository.insertIfAbsent(dishId, grain.name(), bucketStart, delta) > 0) {
+                return;
+            }
+            // a concurrent transaction created the bucket in the meantime; add to its row
+        }
+        if (delta < 0) {
+            rollupRepository.deleteIfEmpty(dishId, grain, bucketStart);
+        }
+    }
+
+    public boolean isEmpty() {
+        return rollupRepository.count() == 0;
+    }
+
+    /**
+     * Recomputes the whole rollup from completed orders. Runs only at startup
+     * and only when the table is empty, i.e. after the first deployment. A
+     * non-empty table is never reconciled: orders changed outside
+     * {@link #recordOrder}, e.g. by a manual import, are missing from it
+     * until the table is emptied and the application restarted. Not safe to
+     * run while orders are being completed.
+     */
+    @Transactional
+    public void rebuild() {
+        Map<BucketKey, Integer> totals = new HashMap<>();
+        long lines = 0;
+        try (Stream<OrderLineDto> stream = orderRepository.streamLinesByStatus(Status.COMPLETED)) {
+            Iterator<OrderLineDto> it = stream.iterator();
+            while (it.hasNext()) {
+                OrderLineDto line = it.next();
+                if (line.creationDateTime() == null) continue;
+                for (RollupGrain grain : RollupGrain.values()) {
+                    totals.merge(new BucketKey(line.dishId(), grain, grain.bucketStart(line.creationDateTime())),
+                            line.quantity(), Integer::sum);
+                }
+                lines++;
+            }
+        }
+        rollupRepository.deleteAllInBatch();
+        List<DishDemandRollup> rows = new ArrayList<>(totals.size());
+        totals.forEach((key, qty) -> rows.add(new DishDemandRollup(key.dishId(), key.grain(), key.bucketStart(), qty)));
+        rollupRepository.saveAll(rows);
+        log.info("Rebuilt demand rollup with {} rows from {} completed order lines", rows.size(), lines);
+    }
+
+    private record BucketKey(long dishId, RollupGrain grain, LocalDateTime bucketStart) {}
+}
@@ -0,0 +1,84 @@
+package com.exampleepam.restaurant.service.forecast;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Optional per-dish cross-validation ({@code forecast.dish-cv.enabled}).
+ * After forecasts are published, the model history of every forecast dish
+ * is cross-validated on a background thread and the metrics are attached to
+ * the stored forecast. Evaluations go through {@link CrossValidationCache},
+ * so only dishes whose history changed since the last run cost a fit.
+ */
+@Component
+public class DishCrossValidationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(DishCrossValidationJob.class);
+    private static final int FOLDS = 3;
+
+    private final ForecastResultStore resultStore;
+    private final CrossValidationCache cvCache;
+    private final Map<String, ForecastModel> models;
+    private final boolean enabled;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "forecast-cv");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Autowired
+    public DishCrossValidationJob(ForecastResultStore resultStore,
+                                  CrossValidationCache cvCache,
+                                  List<ForecastModel> models,
+                                  @Value("${forecast.dish-cv.enabled:false}") boolean enabled) {
+        this.resultStore = resultStore;
+        this.cvCache = cvCache;
+        this.models = models.stream().collect(Collectors.toMap(ForecastModel::getName, Function.identity()));
+        this.enabled = enabled;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** Queues the given freshly stored dishes for evaluation; a no-op unless enabled. */
+    public void submit(String modelName, Collection<ForecastResultStore.StoredDish> dishes) {
+        ForecastModel model = models.get(modelName);
+        if (!enabled || model == null || dishes.isEmpty()) {
+            return;
+        }
+        List<ForecastResultStore.StoredDish> snapshot = List.copyOf(dishes);
+        executor.execute(() -> evaluate(modelName, model, snapshot));
+    }
+
+    private void evaluate(String modelName, ForecastModel model, List<ForecastResultStore.StoredDish> dishes) {
+        long started = System.currentTimeMillis();
+        List<ForecastResultStore.StoredDish> evaluated = new ArrayList<>(dishes.size());
+        try {
+            for (ForecastResultStore.StoredDish dish : dishes) {
+                ForecastEvaluator.Metrics metrics = cvCache.crossValidate(dish.monthly().modelHistory(), model, FOLDS);
+                evaluated.add(dish.withMetrics(metrics));
+            }
+        } catch (RuntimeException e) {
+            log.error("Per-dish cross-validation for model {} failed", modelName, e);
+            return;
+        }
+        resultStore.putDishMetrics(modelName, evaluated);
+        log.debug("Cross-validated {} dishes for model {} in {} ms", evaluated.size(), modelName,
+                System.currentTimeMillis() - started);
+    }
+}
@@ -37,6 +37,33 @@ public final class ForecastEvaluator {
         return count == 0 ? Double.NaN : Math.sqrt(sum / count);
     }
 
+    /** Primitive variant of {@link #mape(List, List)} for the model kernels. */
+    public static double mape(double[] actual, double[] forecast) {
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < actual.length; i++) {
+            double a = actual[i];
+            if (a == 0) continue;
+            sum += Math.abs((a - forecast[i]) / a);
+            count++;
+        }
+        return count == 0 ? Double.NaN : 100.0 * sum / count;
+    }
+
+    /** Primitive variant of {@link #rmse(List, List)} for the model kernels. */
+    public static double rmse(double[] actual, double[] forecast) {
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < actual.length; i++) {
+            double a = actual[i];
+            if (a == 0) continue;
+            double diff = a - forecast[i];
+            sum += diff * diff;
+            count++;
+        }
+        return count == 0 ? Double.NaN : Math.sqrt(sum / count);
+    }
+
     /** Metrics container for cross-validation results. */
     public record Metrics(double mape, double rmse) {}
 
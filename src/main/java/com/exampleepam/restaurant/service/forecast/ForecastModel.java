@@ -1,5 +1,6 @@
 package com.exampleepam.restaurant.service.forecast;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -10,6 +11,14 @@ public interface ForecastModel {
     /** @return short identifier used when selecting the model */
     String getName();
 
+    /**
+     * @return identifier of the model together with every setting that
+     *         changes its output, used to key cached evaluations
+     */
+    default String getConfigKey() {
+        return getName();
+    }
+
     /**
      * Produces forecasts for the supplied historical series.
      *
@@ -18,5 +27,21 @@ public interface ForecastModel {
      * @return result containing forecasts and model diagnostics
      */
     ForecastResult forecast(List<Integer> history, int periods);
+
+    /**
+     * Forecasts every series of the batch {@code periods} steps ahead, with
+     * the same results as calling {@link #forecast} on each of them. The
+     * default does exactly that; models override it to share scratch space
+     * and to run their recurrences over all series of one length together.
+     *
+     * @return results in batch order
+     */
+    default List<ForecastResult> forecastBatch(SeriesBatch batch, int periods) {
+        List<ForecastResult> results = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            results.add(forecast(batch.series(i), periods));
+        }
+        return results;
+    }
 }
 
@@ -0,0 +1,266 @@
+package com.exampleepam.restaurant.service.forecast;
+
+import com.exampleepam.restaurant.dto.forecast.DishForecastDto;
+import com.exampleepam.restaurant.dto.forecast.IngredientForecastDto;
+import com.exampleepam.restaurant.entity.Category;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Materialized dish and ingredient forecasts per model, as produced by the
+ * last refresh. The admin pages filter and page these results instead of
+ * refitting the models on every view; a model is recomputed only when it
+ * has no results yet, its last full refresh is older than
+ * {@code forecast.store.max-age}, or a refresh is requested explicitly.
+ * <p>
+ * Each model's results form an immutable snapshot. Writers build a new
+ * snapshot from the current one and publish it atomically, so readers,
+ * including the per-dish details, always see one consistent generation
+ * and replaced generations become garbage as soon as no reader holds
+ * them. Only registered models that have been run are held, and a full
+ * run drops dishes that are no longer forecast, so the store is bounded
+ * by the active catalogue.
+ */
+@Component
+public class ForecastResultStore {
+
+    private final long maxAgeMillis;
+    private final Clock clock;
+    private final Map<String, ModelResults> results = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ForecastResultStore(@Value("${forecast.store.max-age:PT25H}") Duration maxAge) {
+        this(maxAge, Clock.systemUTC());
+    }
+
+    public ForecastResultStore(Duration maxAge, Clock clock) {
+        this.maxAgeMillis = maxAge.toMillis();
+        this.clock = clock;
+    }
+
+    /** Whether the model was fully refreshed within the maximum age. */
+    public boolean isFresh(String modelName) {
+        ModelResults r = results.get(modelName);
+        return r != null && r.refreshedAt() > 0 && clock.millis() - r.refreshedAt() <= maxAgeMillis;
+    }
+
+    /**
+     * Whether the model has completed at least one full refresh, i.e. the
+     * stored dish forecasts cover the whole catalogue, however old they are.
+     */
+    public boolean hasSnapshot(String modelName) {
+        ModelResults r = results.get(modelName);
+        return r != null && r.refreshedAt() > 0;
+    }
+
+    /**
+     * Replaces all dish forecasts of a model after a full run. Dishes missing
+     * from {@code forecasts}, e.g. archived ones, are dropped.
+     */
+    public void replaceDishes(String modelName, Collection<StoredDish> forecasts) {
+        Map<Long, StoredDish> dishes = new HashMap<>();
+        forecasts.forEach(d -> dishes.put(d.forecast().getId(), d));
+        results.compute(modelName, (k, old) -> {
+            ModelResults base = old == null ? ModelResults.EMPTY : old;
+            return new ModelResults(Map.copyOf(dishes), base.ingredients(), base.ingredientsByCategory(),
+                    base.metrics(), base.refreshedAt());
+        });
+    }
+
+    /** Updates the forecasts of some dishes, leaving the others in place. */
+    public void putDishes(String modelName, Collection<StoredDish> forecasts) {
+        results.compute(modelName, (k, old) -> {
+            ModelResults base = old == null ? ModelResults.EMPTY : old;
+            Map<Long, StoredDish> dishes = new HashMap<>(base.dishes());
+            forecasts.forEach(d -> dishes.put(d.forecast().getId(), d));
+            return new ModelResults(Map.copyOf(dishes), base.ingredients(), base.ingredientsByCategory(),
+                    base.metrics(), base.refreshedAt());
+        });
+    }
+
+    /**
+     * Stores dishes with their per-dish cross-validation metrics attached.
+     * A dish whose forecast was replaced after it was evaluated is skipped,
+     * so metrics never describe a different run than the stored forecast.
+     */
+    public void putDishMetrics(String modelName, Collection<StoredDish> evaluated) {
+        results.computeIfPresent(modelName, (k, old) -> {
+            Map<Long, StoredDish> dishes = new HashMap<>(old.dishes());
+            for (StoredDish d : evaluated) {
+                dishes.computeIfPresent(d.forecast().getId(),
+                        (id, current) -> current.monthly() == d.monthly() ? d : current);
+            }
+            return new ModelResults(Map.copyOf(dishes), old.ingredients(), old.ingredientsByCategory(),
+                    old.metrics(), old.refreshedAt());
+        });
+    }
+
+    /** Records the cross-validation metrics of a model. */
+    public void putMetrics(String modelName, ForecastEvaluator.Metrics metrics) {
+        results.compute(modelName, (k, old) -> {
+            ModelResults base = old == null ? ModelResults.EMPTY : old;
+            return new ModelResults(base.dishes(), base.ingredients(), base.ingredientsByCategory(), metrics,
+                    base.refreshedAt());
+        });
+    }
+
+    /**
+     * Replaces all ingredient forecasts of a model and marks the model as
+     * fully refreshed. {@code byCategory} holds the aggregates restricted to
+     * the dishes of each category.
+     */
+    public void replaceIngredients(String modelName, Collection<IngredientForecastDto> all,
+                                   Map<Category, Collection<IngredientForecastDto>> byCategory) {
+        Map<Category, Map<Long, IngredientForecastDto>> categories = new EnumMap<>(Category.class);
+        byCategory.forEach((c, dtos) -> categories.put(c, index(dtos)));
+        long now = clock.millis();
+        results.compute(modelName, (k, old) -> {
+            ModelResults base = old == null ? ModelResults.EMPTY : old;
+            return new ModelResults(base.dishes(), index(all), Map.copyOf(categories), base.metrics(), now);
+        });
+    }
+
+    /**
+     * Updates the given ingredients after a partial refresh. An ingredient
+     * absent from a category's aggregates is no longer used by any dish of
+     * that category and is removed from it.
+     */
+    public void putIngredients(String modelName, Collection<Long> ingredientIds,
+                               Collection<IngredientForecastDto> all,
+                               Map<Category, Collection<IngredientForecastDto>> byCategory) {
+        results.compute(modelName, (k, old) -> {
+            ModelResults base = old == null ? ModelResults.EMPTY : old;
+            Map<Long, IngredientForecastDto> ingredients = merge(base.ingredients(), ingredientIds, all);
+            Map<Category, Map<Long, IngredientForecastDto>> categories = new EnumMap<>(Category.class);
+            for (Category c : Category.values()) {
+                Map<Long, IngredientForecastDto> merged = merge(base.ingredientsByCategory().getOrDefault(c, Map.of()),
+                        ingredientIds, byCategory.getOrDefault(c, List.of()));
+                if (!merged.isEmpty()) {
+                    categories.put(c, merged);
+                }
+            }
+            return new ModelResults(base.dishes(), ingredients, Map.copyOf(categories), base.metrics(),
+                    base.refreshedAt());
+        });
+    }
+
+    /** The stored forecast of one dish, if the model has forecast it. */
+    public Optional<StoredDish> findDish(String modelName, long dishId) {
+        return Optional.ofNullable(results.getOrDefault(modelName, ModelResults.EMPTY).dishes().get(dishId));
+    }
+
+    /** Cross-validation metrics of every model evaluated so far, by model name. */
+    public Map<String, ForecastEvaluator.Metrics> metrics() {
+        Map<String, ForecastEvaluator.Metrics> metrics = new TreeMap<>();
+        results.forEach((name, r) -> {
+            if (r.metrics() != null) {
+                metrics.put(name, r.metrics());
+            }
+        });
+        return metrics;
+    }
+
+    /** Dish forecasts of a model filtered by name and category, sorted by name. */
+    public Page<DishForecastDto> findDishes(String modelName, String filter, Category type, Pageable pageable) {
+        ModelResults r = results.getOrDefault(modelName, ModelResults.EMPTY);
+        String f = normalize(filter);
+        Predicate<StoredDish> matches = d -> (type == null || d.category() == type)
+                && (f == null || d.forecast().getName().toLowerCase().contains(f));
+        List<DishForecastDto> list = r.dishes().values().stream()
+                .filter(matches)
+                .map(StoredDish::forecast)
+                .sorted(Comparator.comparing(DishForecastDto::getName))
+                .toList();
+        return page(list, pageable);
+    }
+
+    /**
+     * Ingredient forecasts of a model filtered by ingredient name. With a
+     * category only the demand of that category's dishes is counted.
+     */
+    public Page<IngredientForecastDto> findIngredients(String modelName, String filter, Category type,
+                                                       Pageable pageable) {
+        ModelResults r = results.getOrDefault(modelName, ModelResults.EMPTY);
+        Map<Long, IngredientForecastDto> source = type == null
+                ? r.ingredients()
+                : r.ingredientsByCategory().getOrDefault(type, Map.of());
+        String f = normalize(filter);
+        List<IngredientForecastDto> list = source.values().stream()
+                .filter(i -> f == null || i.getName().toLowerCase().contains(f))
+                .sorted(Comparator.comparing(IngredientForecastDto::getName))
+                .toList();
+        return page(list, pageable);
+    }
+
+    private static Map<Long, IngredientForecastDto> index(Collection<IngredientForecastDto> dtos) {
+        Map<Long, IngredientForecastDto> map = new HashMap<>();
+        dtos.forEach(d -> map.put(d.getId(), d));
+        return Map.copyOf(map);
+    }
+
+    private static Map<Long, IngredientForecastDto> merge(Map<Long, IngredientForecastDto> base,
+                                                          Collection<Long> replacedIds,
+                                                          Collection<IngredientForecastDto> updates) {
+        Map<Long, IngredientForecastDto> map = new HashMap<>(base);
+        map.keySet().removeAll(replacedIds);
+        map.putAll(updates.stream().collect(Collectors.toMap(IngredientForecastDto::getId, Function.identity())));
+        return Map.copyOf(map);
+    }
+
+    private static String normalize(String filter) {
+        return filter == null || filter.isBlank() ? null : filter.toLowerCase();
+    }
+
+    private static <T> Page<T> page(List<T> list, Pageable pageable) {
+        if (pageable == null || pageable.isUnpaged()) {
+            return new PageImpl<>(list);
+        }
+        int start = (int) Math.min(pageable.getOffset(), list.size());
+        int end = Math.min(start + pageable.getPageSize(), list.size());
+        return new PageImpl<>(list.subList(start, end), pageable, list.size());
+    }
+
+    /**
+     * A dish forecast together with the dish category used for filtering,
+     * the monthly model output shown in the details panel and, when per-dish
+     * cross-validation is enabled, the dish's CV metrics.
+     */
+    public record StoredDish(DishForecastDto forecast, Category category, MonthlyResult monthly,
+                             ForecastEvaluator.Metrics metrics) {
+
+        public StoredDish(DishForecastDto forecast, Category category, MonthlyResult monthly) {
+            this(forecast, category, monthly, null);
+        }
+
+        public StoredDish withMetrics(ForecastEvaluator.Metrics metrics) {
+            return new StoredDish(forecast, category, monthly, metrics);
+        }
+    }
+
+    private record ModelResults(Map<Long, StoredDish> dishes,
+                                Map<Long, IngredientForecastDto> ingredients,
+                                Map<Category, Map<Long, IngredientForecastDto>> ingredientsByCategory,
+                                ForecastEvaluator.Metrics metrics,
+                                long refreshedAt) {
+        static final ModelResults EMPTY = new ModelResults(Map.of(), Map.of(), Map.of(), null, 0);
+    }
+}
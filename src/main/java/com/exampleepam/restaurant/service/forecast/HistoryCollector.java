@@ -1,10 +1,9 @@
 package com.exampleepam.restaurant.service.forecast;
 
-import com.exampleepam.restaurant.entity.Order;
-import com.exampleepam.restaurant.entity.OrderItem;
-import com.exampleepam.restaurant.entity.Status;
-import com.exampleepam.restaurant.repository.OrderRepository;
+import com.exampleepam.restaurant.entity.DishDemandRollup;
+import com.exampleepam.restaurant.repository.DishDemandRollupRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,65 +11,226 @@ import org.slf4j.LoggerFactory;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
-import java.util.HashMap;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.ArrayList;
 
 @Component
 public class HistoryCollector {
 
-    private final OrderRepository orderRepository;
+    private final DishDemandRollupRepository rollupRepository;
+    private final int hourlyDays;
     private static final Logger log = LoggerFactory.getLogger(HistoryCollector.class);
     private static final int MONTH_WINDOW = 36;
 
     @Autowired
-    public HistoryCollector(OrderRepository orderRepository) {
-        this.orderRepository = orderRepository;
+    public HistoryCollector(DishDemandRollupRepository rollupRepository,
+                            @Value("${forecast.history.hourly-days:90}") int hourlyDays) {
+        this.rollupRepository = rollupRepository;
+        this.hourlyDays = hourlyDays;
     }
 
+    /**
+     * Builds the history from the pre-aggregated demand rollup. Hour and day
+     * buckets before {@code start} are skipped; month buckets are kept for the
+     * whole month {@code start} falls into. Hours are kept only for the last
+     * {@code forecast.history.hourly-days} days before the latest bucket.
+     */
     public History collect(LocalDateTime start) {
-        List<Order> orders = orderRepository.findByStatusAndCreationDateTimeAfter(Status.COMPLETED, start);
-        log.debug("Fetched {} completed orders since {}", orders.size(), start);
-        if (orders.isEmpty()) {
+        LocalDateTime monthStart = start.toLocalDate().withDayOfMonth(1).atStartOfDay();
+        List<DishDemandRollup> rows = rollupRepository.findByBucketStartGreaterThanEqual(monthStart);
+        log.debug("Fetched {} demand rollup rows since {}", rows.size(), monthStart);
+        if (rows.isEmpty()) {
             log.warn("No completed orders found since {}", start);
         }
-        History history = new History();
-        for (Order order : orders) {
-            LocalDateTime dateTime = order.getCreationDateTime();
-            LocalDate date = dateTime.toLocalDate();
-            int hour = dateTime.getHour();
-            YearMonth ym = YearMonth.from(dateTime);
-            for (OrderItem item : order.getOrderItems()) {
-                long dishId = item.getDish().getId();
-                int qty = item.getQuantity();
-                history.hourlyTotals.computeIfAbsent(dishId, k -> new HashMap<>())
-                        .computeIfAbsent(date, d -> new int[24])[hour] += qty;
-                history.dailyTotals.computeIfAbsent(dishId, k -> new HashMap<>())
-                        .merge(date, qty, Integer::sum);
-                history.monthlyTotals.computeIfAbsent(dishId, k -> new HashMap<>())
-                        .merge(ym, qty, Integer::sum);
-                history.globalMonthly.merge(ym, qty, Integer::sum);
-            }
-        }
-        history.monthlyTotals.forEach((id, map) -> {
-            log.debug("Dish {} monthly totals {}", id, map);
-            if (map.isEmpty()) {
-                log.warn("Dish {} has no completed data", id);
-            }
-        });
-        boolean allZero = history.globalMonthly.values().stream().allMatch(v -> v == 0);
+        History history = History.of(rows, start, hourlyDays);
+        boolean allZero = Arrays.stream(history.globalMonthly).allMatch(v -> v == 0);
         if (allZero) {
             log.warn("Collected history contains only zero monthly totals");
         }
         return history;
     }
 
-    public static class History {
-        public final Map<Long, Map<LocalDate, int[]>> hourlyTotals = new HashMap<>();
-        public final Map<Long, Map<LocalDate, Integer>> dailyTotals = new HashMap<>();
-        public final Map<Long, Map<YearMonth, Integer>> monthlyTotals = new HashMap<>();
-        public final Map<YearMonth, Integer> globalMonthly = new HashMap<>();
+    /**
+     * Columnar demand history. Dishes are numbered densely in id order and
+     * every grain is one flat {@code int} array with a fixed-length row per
+     * dish, indexed by the offset of the day, hour or month from the start
+     * of that grain's window. Day and hour rows hold prefix sums, so a value
+     * or a range total is two array reads; hours are summed separately per
+     * hour of day. Values outside a window read as zero.
+     */
+    public static final class History {
+        private final long[] dishIds;
+        private final boolean[] hasMonthly;
+        private final LocalDate firstDay;
+        private final int days;
+        private final int[] dailyPrefix;
+        private final LocalDate firstHourDay;
+        private final int hourDays;
+        private final int[] hourlyPrefix;
+        private final YearMonth firstMonth;
+        private final int months;
+        private final int[] monthly;
+        private final int[] globalMonthly;
+
+        private History(long[] dishIds, LocalDate firstDay, int days, LocalDate firstHourDay, int hourDays,
+                        YearMonth firstMonth, int months) {
+            this.dishIds = dishIds;
+            this.hasMonthly = new boolean[dishIds.length];
+            this.firstDay = firstDay;
+            this.days = days;
+            this.dailyPrefix = new int[dishIds.length * (days + 1)];
+            this.firstHourDay = firstHourDay;
+            this.hourDays = hourDays;
+            this.hourlyPrefix = new int[dishIds.length * (hourDays + 1) * 24];
+            this.firstMonth = firstMonth;
+            this.months = months;
+            this.monthly = new int[dishIds.length * months];
+            this.globalMonthly = new int[months];
+        }
+
+        /**
+         * Builds a history from rollup rows with the same window rules as
+         * {@link HistoryCollector#collect}.
+         */
+        public static History of(Collection<DishDemandRollup> rows, LocalDateTime start, int hourlyDays) {
+            LocalDate firstDay = start.toLocalDate();
+            YearMonth firstMonth = YearMonth.from(start);
+            LocalDate lastDay = firstDay.minusDays(1);
+            YearMonth lastMonth = firstMonth;
+            for (DishDemandRollup row : rows) {
+                LocalDateTime bucket = row.getBucketStart();
+                switch (row.getGrain()) {
+                    case HOUR, DAY -> {
+                        if (!bucket.isBefore(start) && bucket.toLocalDate().isAfter(lastDay)) {
+                            lastDay = bucket.toLocalDate();
+                        }
+                    }
+                    case MONTH -> {
+                        if (YearMonth.from(bucket).isAfter(lastMonth)) {
+                            lastMonth = YearMonth.from(bucket);
+                        }
+                    }
+                }
+            }
+            LocalDate firstHourDay = lastDay.minusDays(hourlyDays);
+            if (firstHourDay.isBefore(firstDay)) {
+                firstHourDay = firstDay;
+            }
+            long[] dishIds = rows.stream().mapToLong(DishDemandRollup::getDishId).distinct().sorted().toArray();
+            History history = new History(dishIds, firstDay, offset(firstDay, lastDay) + 1,
+                    firstHourDay, Math.max(0, offset(firstHourDay, lastDay) + 1),
+                    firstMonth, (int) ChronoUnit.MONTHS.between(firstMonth, lastMonth) + 1);
+            for (DishDemandRollup row : rows) {
+                history.add(row, start);
+            }
+            history.accumulate();
+            return history;
+        }
+
+        private void add(DishDemandRollup row, LocalDateTime start) {
+            int dish = Arrays.binarySearch(dishIds, row.getDishId());
+            LocalDateTime bucket = row.getBucketStart();
+            int qty = row.getQuantity();
+            switch (row.getGrain()) {
+                case HOUR -> {
+                    int i = offset(firstHourDay, bucket.toLocalDate());
+                    if (bucket.isBefore(start) || i < 0) return;
+                    hourlyPrefix[(dish * (hourDays + 1) + i + 1) * 24 + bucket.getHour()] += qty;
+                }
+                case DAY -> {
+                    if (bucket.isBefore(start)) return;
+                    dailyPrefix[dish * (days + 1) + offset(firstDay, bucket.toLocalDate()) + 1] += qty;
+                }
+                case MONTH -> {
+                    int m = (int) ChronoUnit.MONTHS.between(firstMonth, YearMonth.from(bucket));
+                    if (m < 0) return;
+                    monthly[dish * months + m] += qty;
+                    globalMonthly[m] += qty;
+                    hasMonthly[dish] = true;
+                }
+            }
+        }
+
+        /** Turns the day and hour values into running sums along each dish row. */
+        private void accumulate() {
+            for (int dish = 0; dish < dishIds.length; dish++) {
+                int row = dish * (days + 1);
+                for (int i = 1; i <= days; i++) {
+                    dailyPrefix[row + i] += dailyPrefix[row + i - 1];
+                }
+                int hourRow = dish * (hourDays + 1) * 24;
+                for (int i = 24; i < (hourDays + 1) * 24; i++) {
+                    hourlyPrefix[hourRow + i] += hourlyPrefix[hourRow + i - 24];
+                }
+            }
+        }
+
+        private static int offset(LocalDate from, LocalDate day) {
+            return (int) ChronoUnit.DAYS.between(from, day);
+        }
+
+        /** Dense index of the dish, or {@code -1} when it has no demand in the window. */
+        public int dishIndex(long dishId) {
+            int dish = Arrays.binarySearch(dishIds, dishId);
+            return dish < 0 ? -1 : dish;
+        }
+
+        public int dishCount() {
+            return dishIds.length;
+        }
+
+        /** Quantity of the dish in the month. */
+        public int monthly(int dish, YearMonth month) {
+            int m = (int) ChronoUnit.MONTHS.between(firstMonth, month);
+            return dish < 0 || m < 0 || m >= months ? 0 : monthly[dish * months + m];
+        }
+
+        /** Quantity of the dish on the day. */
+        public int daily(int dish, LocalDate day) {
+            return dailySum(dish, day, day);
+        }
+
+        /** Total quantity of the dish over {@code [from, to]}, both inclusive. */
+        public int dailySum(int dish, LocalDate from, LocalDate to) {
+            if (dish < 0) {
+                return 0;
+            }
+            int lo = Math.max(0, offset(firstDay, from));
+            int hi = Math.min(days, offset(firstDay, to) + 1);
+            if (lo >= hi) {
+                return 0;
+            }
+            int row = dish * (days + 1);
+            return dailyPrefix[row + hi] - dailyPrefix[row + lo];
+        }
+
+        /** Quantity of the dish in one hour of the day. */
+        public int hourly(int dish, LocalDate day, int hour) {
+            return hourlySum(dish, day, day.plusDays(1), hour);
+        }
+
+        /** Total quantity of the dish in the given hour of day over the days {@code [from, until)}. */
+        public int hourlySum(int dish, LocalDate from, LocalDate until, int hour) {
+            if (dish < 0) {
+                return 0;
+            }
+            int lo = Math.max(0, offset(firstHourDay, from));
+            int hi = Math.min(hourDays, offset(firstHourDay, until));
+            if (lo >= hi) {
+                return 0;
+            }
+            int row = dish * (hourDays + 1);
+            return hourlyPrefix[(row + hi) * 24 + hour] - hourlyPrefix[(row + lo) * 24 + hour];
+        }
+
+        /** Quantity of all dishes in the month. */
+        public int globalMonthly(YearMonth month) {
+            int m = (int) ChronoUnit.MONTHS.between(firstMonth, month);
+            return m < 0 || m >= months ? 0 : globalMonthly[m];
+        }
 
         public List<Integer> globalMonthlyTotals() {
             YearMonth current = YearMonth.now();
@@ -78,13 +238,15 @@ public class HistoryCollector {
             List<Integer> list = new ArrayList<>();
             for (int i = 0; i <= MONTH_WINDOW; i++) {
                 YearMonth ym = start.plusMonths(i);
-                list.add(globalMonthly.getOrDefault(ym, 0));
+                list.add(globalMonthly(ym));
             }
             return list;
         }
 
+        /** Whether any monthly bucket was recorded for the dish. */
         public boolean hasMonthlyData(long dishId) {
-            return monthlyTotals.containsKey(dishId) && !monthlyTotals.get(dishId).isEmpty();
+            int dish = dishIndex(dishId);
+            return dish >= 0 && hasMonthly[dish];
         }
 
         /**
@@ -98,7 +260,7 @@ public class HistoryCollector {
                 w.write("month,quantity\n");
                 for (int i = 0; i <= MONTH_WINDOW; i++) {
                     YearMonth ym = start.plusMonths(i);
-                    int qty = globalMonthly.getOrDefault(ym, 0);
+                    int qty = globalMonthly(ym);
                     w.write(ym + "," + qty + "\n");
                 }
             }
@@ -8,7 +8,6 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Component;
 
@@ -21,20 +20,13 @@ public class HourlyForecaster {
                               LocalDateTime now,
                               ScaleData daily,
                               int historyDays) {
-        Map<LocalDate, int[]> dishHours = history.hourlyTotals.getOrDefault(id, Map.of());
-        List<int[]> pastArrays = dishHours.entrySet().stream()
-                .filter(e -> e.getKey().isBefore(today) && !e.getKey().isBefore(today.minusDays(historyDays)))
-                .sorted(Map.Entry.comparingByKey())
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toList());
+        int dishIndex = history.dishIndex(id);
+        LocalDate weightsFrom = today.minusDays(historyDays);
         double[] hourWeights = new double[24];
         double total = 0.0;
-        for (int[] arr : pastArrays) {
-            int dayTotal = Arrays.stream(arr).sum();
-            total += dayTotal;
-            for (int h = 0; h < 24; h++) {
-                hourWeights[h] += arr[h];
-            }
+        for (int h = 0; h < 24; h++) {
+            hourWeights[h] = history.hourlySum(dishIndex, weightsFrom, today, h);
+            total += hourWeights[h];
         }
         if (total == 0) {
             Arrays.fill(hourWeights, 1.0 / 24.0);
@@ -56,8 +48,7 @@ public class HourlyForecaster {
             int hour = dt.getHour();
             LocalDate d = dt.toLocalDate();
             if (dt.isBefore(now)) {
-                int[] arr = dishHours.getOrDefault(d, new int[24]);
-                actual.add(arr[hour]);
+                actual.add(history.hourly(dishIndex, d, hour));
                 forecast.add(null);
             } else {
                 int idx = daily.labels().indexOf(d.toString());
@@ -5,9 +5,11 @@ import com.exampleepam.restaurant.entity.DishForecast;
 import com.exampleepam.restaurant.repository.DishForecastRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -26,17 +28,49 @@ public class MonthlyForecaster {
         this.forecastRepository = forecastRepository;
     }
 
+    /**
+     * Fits the model to the dish's monthly history and projects the next
+     * twelve months. Pure computation with no repository access, so it can run
+     * on any thread; use {@link #persist} to store the results afterwards.
+     */
     public MonthlyResult forecast(Dish dish,
                                   HistoryCollector.History history,
-                                  ForecastModel model,
-                                  boolean persist) {
+                                  ForecastModel model) {
+        return forecastAll(List.of(dish), history, model).get(0);
+    }
+
+    /**
+     * Same as {@link #forecast} for every dish, in order, but fits all model
+     * histories in a single {@link ForecastModel#forecastBatch} call so models
+     * with a batch implementation can share work across dishes.
+     */
+    public List<MonthlyResult> forecastAll(List<Dish> dishes,
+                                           HistoryCollector.History history,
+                                           ForecastModel model) {
+        YearMonth currentMonth = YearMonth.now();
+        List<Prepared> prepared = new ArrayList<>(dishes.size());
+        List<List<Integer>> histories = new ArrayList<>(dishes.size());
+        for (Dish dish : dishes) {
+            Prepared p = prepare(dish, history, currentMonth);
+            prepared.add(p);
+            histories.add(p.modelHistory());
+        }
+        List<ForecastResult> fitted = model.forecastBatch(SeriesBatch.of(histories), 12);
+        List<MonthlyResult> results = new ArrayList<>(dishes.size());
+        for (int i = 0; i < prepared.size(); i++) {
+            results.add(complete(prepared.get(i), fitted.get(i), model, currentMonth));
+        }
+        return results;
+    }
+
+    /** Builds the display arrays and the trimmed model history of one dish. */
+    private Prepared prepare(Dish dish, HistoryCollector.History history, YearMonth currentMonth) {
         long id = dish.getId();
-        Map<YearMonth, Integer> dishMonthly = history.monthlyTotals.getOrDefault(id, Map.of());
-        boolean noData = dishMonthly.isEmpty();
+        int dishIndex = history.dishIndex(id);
+        boolean noData = !history.hasMonthlyData(id);
         if (noData) {
             log.warn("Dish {} has no completed orders in history", id);
         }
-        YearMonth currentMonth = YearMonth.now();
         YearMonth startMonth = currentMonth.minusMonths(MONTH_WINDOW);
 
         List<String> baseLabels = new ArrayList<>();
@@ -44,12 +78,12 @@ public class MonthlyForecaster {
         List<Integer> forecast = new ArrayList<>();
         for (int i = 0; i < MONTH_WINDOW; i++) {
             YearMonth ym = startMonth.plusMonths(i);
-            int val = dishMonthly.getOrDefault(ym, 0);
+            int val = history.monthly(dishIndex, ym);
             baseLabels.add(ym.toString());
             baseActual.add(val);
             forecast.add(null);
         }
-        int currentVal = dishMonthly.getOrDefault(currentMonth, 0);
+        int currentVal = history.monthly(dishIndex, currentMonth);
         baseLabels.add(currentMonth.toString());
         baseActual.add(currentVal);
         forecast.add(null);
@@ -79,34 +113,62 @@ public class MonthlyForecaster {
         if (singlePoint && !noData) {
             log.warn("Dish {} has a single data point; forecasts will repeat this value", id);
         }
-        ForecastResult result = model.forecast(modelHistory, 12);
+        return new Prepared(id, baseLabels, baseActual, forecast, modelHistory, singlePoint, noData);
+    }
+
+    private MonthlyResult complete(Prepared p, ForecastResult result, ForecastModel model, YearMonth currentMonth) {
         boolean emptyForecast = result.getForecasts().isEmpty();
         if (emptyForecast) {
-            log.warn("Dish {} model {} returned no forecasts; leaving projection empty", id, model.getName());
+            log.warn("Dish {} model {} returned no forecasts; leaving projection empty", p.id(), model.getName());
         }
-        log.debug("Dish {} predictions {}", id, result.getForecasts());
+        log.debug("Dish {} predictions {}", p.id(), result.getForecasts());
         Map<YearMonth, Integer> monthForecastMap = new HashMap<>();
-        List<String> displayLabels = new ArrayList<>(baseLabels);
-        List<Integer> displayActual = new ArrayList<>(baseActual);
-        if (persist) {
-            forecastRepository.deleteByDishAndGeneratedAt(dish, java.time.LocalDate.now());
-        }
+        List<String> displayLabels = new ArrayList<>(p.labels());
+        List<Integer> displayActual = new ArrayList<>(p.actual());
+        List<Integer> forecast = p.forecast();
         for (int i = 0; i < result.getForecasts().size(); i++) {
             YearMonth ym = currentMonth.plusMonths(i + 1);
             int pred = (int) Math.round(result.getForecasts().get(i));
             monthForecastMap.put(ym, pred);
-            if (persist) {
-                DishForecast df = new DishForecast();
-                df.setDish(dish);
-                df.setDate(ym.atDay(1));
-                df.setQuantity(pred);
-                df.setGeneratedAt(java.time.LocalDate.now());
-                forecastRepository.save(df);
-            }
             displayLabels.add(ym.toString());
             displayActual.add(null);
             forecast.add(pred);
         }
-        return new MonthlyResult(new ScaleData(displayLabels, displayActual, forecast), monthForecastMap, modelHistory, result, singlePoint, noData, emptyForecast);
+        return new MonthlyResult(new ScaleData(displayLabels, displayActual, forecast), monthForecastMap, p.modelHistory(), result, p.singlePoint(), p.noData(), emptyForecast);
+    }
+
+    private record Prepared(long id, List<String> labels, List<Integer> actual, List<Integer> forecast,
+                            List<Integer> modelHistory, boolean singlePoint, boolean noData) {}
+
+    /**
+     * Replaces today's stored monthly forecasts of the given dishes with the
+     * supplied results: one set-based delete, then JDBC-batched inserts.
+     * The models are fitted without a transaction, so this runs in its own.
+     */
+    @Transactional
+    public void persist(Map<Dish, MonthlyResult> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        List<Long> dishIds = new ArrayList<>(results.size());
+        results.keySet().forEach(d -> dishIds.add(d.getId()));
+        forecastRepository.deleteByDishIdInAndGeneratedAt(dishIds, today);
+        List<DishForecast> rows = new ArrayList<>();
+        for (Map.Entry<Dish, MonthlyResult> e : results.entrySet()) {
+            Dish dish = e.getKey();
+            e.getValue().monthForecasts().entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(m -> {
+                        DishForecast df = new DishForecast();
+                        df.setDish(dish);
+                        df.setDate(m.getKey().atDay(1));
+                        df.setQuantity(m.getValue());
+                        df.setGeneratedAt(today);
+                        rows.add(df);
+                    });
+        }
+        forecastRepository.saveAll(rows);
+        log.debug("Persisted {} dish forecast rows for {} dishes", rows.size(), results.size());
     }
 }
@@ -0,0 +1,10 @@
+package com.exampleepam.restaurant.service.forecast;
+
+import java.util.Set;
+
+/**
+ * Published when an order reaches {@code COMPLETED}. Carries the dishes of
+ * the order so listeners can limit their work to them.
+ */
+public record OrderCompletedEvent(long orderId, Set<Long> dishIds) {
+}
@@ -0,0 +1,198 @@
+package com.exampleepam.restaurant.service.forecast;
+
+import com.exampleepam.restaurant.dto.forecast.RecipeLineDto;
+import com.exampleepam.restaurant.entity.Category;
+import com.exampleepam.restaurant.entity.MeasureUnit;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable bill of materials: the quantity of every ingredient per portion
+ * of every dish, as a sparse matrix in compressed-row form with one row per
+ * ingredient. Dishes and ingredients are numbered densely in id order; the
+ * entries of a row keep recipe order. A dish-major index is kept as well so
+ * the ingredients of a dish can be listed without a scan.
+ * <p>
+ * {@link #multiplyRow} computes one row of the product with a dense demand
+ * matrix on primitive arrays; {@link #ABSENT} stands for a missing value and
+ * is skipped, so a product cell stays absent unless some dish contributes.
+ */
+public final class RecipeMatrix {
+
+    /** Marks a missing value in demand and product arrays. */
+    public static final int ABSENT = Integer.MIN_VALUE;
+
+    private final long[] dishIds;
+    private final Category[] categories;
+    private final long[] ingredientIds;
+    private final String[] names;
+    private final MeasureUnit[] units;
+    private final int[] rowStart;
+    private final int[] dishOf;
+    private final int[] quantity;
+    private final int[] dishStart;
+    private final int[] ingredientOf;
+
+    private RecipeMatrix(long[] dishIds, Category[] categories, long[] ingredientIds, String[] names,
+                         MeasureUnit[] units, int[] rowStart, int[] dishOf, int[] quantity,
+                         int[] dishStart, int[] ingredientOf) {
+        this.dishIds = dishIds;
+        this.categories = categories;
+        this.ingredientIds = ingredientIds;
+        this.names = names;
+        this.units = units;
+        this.rowStart = rowStart;
+        this.dishOf = dishOf;
+        this.quantity = quantity;
+        this.dishStart = dishStart;
+        this.ingredientOf = ingredientOf;
+    }
+
+    /** Compiles the given recipe entries; dish and ingredient attributes are taken from their first entry. */
+    public static RecipeMatrix of(List<RecipeLineDto> lines) {
+        long[] dishIds = lines.stream().mapToLong(RecipeLineDto::dishId).distinct().sorted().toArray();
+        long[] ingredientIds = lines.stream().mapToLong(RecipeLineDto::ingredientId).distinct().sorted().toArray();
+        Category[] categories = new Category[dishIds.length];
+        String[] names = new String[ingredientIds.length];
+        MeasureUnit[] units = new MeasureUnit[ingredientIds.length];
+        int[] lineDish = new int[lines.size()];
+        int[] lineIngredient = new int[lines.size()];
+        int[] rowStart = new int[ingredientIds.length + 1];
+        int[] dishStart = new int[dishIds.length + 1];
+        for (int k = 0; k < lines.size(); k++) {
+            RecipeLineDto line = lines.get(k);
+            int d = Arrays.binarySearch(dishIds, line.dishId());
+            int j = Arrays.binarySearch(ingredientIds, line.ingredientId());
+            if (dishStart[d + 1]++ == 0) {
+                categories[d] = line.category();
+            }
+            if (rowStart[j + 1]++ == 0) {
+                names[j] = line.ingredientName();
+                units[j] = line.unit();
+            }
+            lineDish[k] = d;
+            lineIngredient[k] = j;
+        }
+        for (int j = 0; j < ingredientIds.length; j++) {
+            rowStart[j + 1] += rowStart[j];
+        }
+        for (int d = 0; d < dishIds.length; d++) {
+            dishStart[d + 1] += dishStart[d];
+        }
+
+        int[] dishOf = new int[lines.size()];
+        int[] quantity = new int[lines.size()];
+        int[] ingredientOf = new int[lines.size()];
+        int[] rowFill = Arrays.copyOf(rowStart, ingredientIds.length);
+        int[] dishFill = Arrays.copyOf(dishStart, dishIds.length);
+        for (int k = 0; k < lines.size(); k++) {
+            int p = rowFill[lineIngredient[k]]++;
+            dishOf[p] = lineDish[k];
+            quantity[p] = lines.get(k).quantity();
+            ingredientOf[dishFill[lineDish[k]]++] = lineIngredient[k];
+        }
+        return new RecipeMatrix(dishIds, categories, ingredientIds, names, units, rowStart, dishOf, quantity,
+                dishStart, ingredientOf);
+    }
+
+    public int dishCount() {
+        return dishIds.length;
+    }
+
+    /** Dense index of the dish, or {@code -1} when it has no recipe entries. */
+    public int dishIndex(long dishId) {
+        int d = Arrays.binarySearch(dishIds, dishId);
+        return d < 0 ? -1 : d;
+    }
+
+    public Category category(int dish) {
+        return categories[dish];
+    }
+
+    public int ingredientCount() {
+        return ingredientIds.length;
+    }
+
+    public long ingredientId(int ingredient) {
+        return ingredientIds[ingredient];
+    }
+
+    public String ingredientName(int ingredient) {
+        return names[ingredient];
+    }
+
+    public MeasureUnit unit(int ingredient) {
+        return units[ingredient];
+    }
+
+    /** Entries of an ingredient's row are {@code [rowStart(j), rowStart(j + 1))}. */
+    public int rowStart(int ingredient) {
+        return rowStart[ingredient];
+    }
+
+    /** Dense dish index of entry {@code p}. */
+    public int dishAt(int p) {
+        return dishOf[p];
+    }
+
+    /** Ids of the ingredients used by any of the given dishes. */
+    public Set<Long> ingredientIdsOf(Collection<Long> dishIds) {
+        Set<Long> result = new HashSet<>();
+        for (Long id : dishIds) {
+            int d = dishIndex(id);
+            if (d < 0) {
+                continue;
+            }
+            for (int p = dishStart[d]; p < dishStart[d + 1]; p++) {
+                result.add(ingredientIds[ingredientOf[p]]);
+            }
+        }
+        return result;
+    }
+
+    /** Ids of the dishes, archived ones included, that use any of the given ingredients. */
+    public Set<Long> dishIdsUsing(Collection<Long> ingredientIds) {
+        Set<Long> result = new HashSet<>();
+        for (Long id : ingredientIds) {
+            int j = Arrays.binarySearch(this.ingredientIds, id);
+            if (j < 0) {
+                continue;
+            }
+            for (int p = rowStart[j]; p < rowStart[j + 1]; p++) {
+                result.add(dishIds[dishOf[p]]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes row {@code ingredient} of the product with a dense demand matrix
+     * into {@code out[0, width)}. {@code demand} holds one row of
+     * {@code width} values per demand row and {@code rowOf[d]} is the demand
+     * row of dish {@code d}, or {@code -1} to leave the dish out. A cell is
+     * the sum of quantity times demand over the contributing dishes, or
+     * {@link #ABSENT} when none of them has a value there.
+     */
+    public void multiplyRow(int ingredient, int[] rowOf, int[] demand, int width, int[] out) {
+        Arrays.fill(out, 0, width, ABSENT);
+        for (int p = rowStart[ingredient]; p < rowStart[ingredient + 1]; p++) {
+            int row = rowOf[dishOf[p]];
+            if (row < 0) {
+                continue;
+            }
+            int q = quantity[p];
+            int base = row * width;
+            for (int t = 0; t < width; t++) {
+                int v = demand[base + t];
+                if (v != ABSENT) {
+                    int o = out[t];
+                    out[t] = (o == ABSENT ? 0 : o) + v * q;
+                }
+            }
+        }
+    }
+}
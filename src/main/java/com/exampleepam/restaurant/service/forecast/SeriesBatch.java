@@ -0,0 +1,95 @@
+package com.exampleepam.restaurant.service.forecast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Many integer series packed into one primitive array, one row after the
+ * other, as input for {@link ForecastModel#forecastBatch}. Series may have
+ * different lengths; models that run one recurrence over many series at once
+ * group them by length and transpose each group into a column-major block
+ * with {@link #copyColumns}, so the inner loop walks the series with unit
+ * stride.
+ */
+public final class SeriesBatch {
+
+    private final double[] values;
+    private final int[] offsets;
+
+    private SeriesBatch(double[] values, int[] offsets) {
+        this.values = values;
+        this.offsets = offsets;
+    }
+
+    /** Packs the given series; {@code null} elements are not allowed. */
+    public static SeriesBatch of(List<? extends List<Integer>> series) {
+        int[] offsets = new int[series.size() + 1];
+        for (int i = 0; i < series.size(); i++) {
+            offsets[i + 1] = offsets[i] + series.get(i).size();
+        }
+        double[] values = new double[offsets[series.size()]];
+        for (int i = 0; i < series.size(); i++) {
+            int at = offsets[i];
+            for (Integer v : series.get(i)) {
+                values[at++] = v;
+            }
+        }
+        return new SeriesBatch(values, offsets);
+    }
+
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    public int length(int series) {
+        return offsets[series + 1] - offsets[series];
+    }
+
+    public double get(int series, int t) {
+        return values[offsets[series] + t];
+    }
+
+    /** Copy of one series. */
+    public double[] row(int series) {
+        return Arrays.copyOfRange(values, offsets[series], offsets[series + 1]);
+    }
+
+    /** One series as boxed integers, for models without a batch implementation. */
+    public List<Integer> series(int series) {
+        List<Integer> list = new ArrayList<>(length(series));
+        for (int i = offsets[series]; i < offsets[series + 1]; i++) {
+            list.add((int) values[i]);
+        }
+        return list;
+    }
+
+    /** Series indices grouped by series length, shortest first, in batch order within a group. */
+    public Map<Integer, int[]> indicesByLength() {
+        Map<Integer, List<Integer>> groups = new TreeMap<>();
+        for (int i = 0; i < size(); i++) {
+            groups.computeIfAbsent(length(i), k -> new ArrayList<>()).add(i);
+        }
+        Map<Integer, int[]> result = new LinkedHashMap<>();
+        groups.forEach((len, ids) -> result.put(len, ids.stream().mapToInt(Integer::intValue).toArray()));
+        return result;
+    }
+
+    /**
+     * Writes the first {@code length} values of the given series column-major
+     * into {@code dest}: value {@code t} of {@code rows[k]} goes to
+     * {@code dest[t * rows.length + k]}.
+     */
+    public void copyColumns(int[] rows, int length, double[] dest) {
+        int lanes = rows.length;
+        for (int k = 0; k < lanes; k++) {
+            int from = offsets[rows[k]];
+            for (int t = 0; t < length; t++) {
+                dest[t * lanes + k] = values[from + t];
+            }
+        }
+    }
+}
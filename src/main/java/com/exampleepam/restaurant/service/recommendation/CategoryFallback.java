@@ -6,6 +6,7 @@ import com.exampleepam.restaurant.entity.Dish;
 import com.exampleepam.restaurant.mapper.DishMapper;
 import com.exampleepam.restaurant.repository.DishRepository;
 import com.exampleepam.restaurant.repository.ReviewRepository;
+import com.exampleepam.restaurant.service.DishRatingService;
 import java.util.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,14 +20,17 @@ public class CategoryFallback {
     private final ReviewRepository reviewRepository;
     private final DishRepository dishRepository;
     private final DishMapper dishMapper;
+    private final DishRatingService dishRatingService;
 
     @Autowired
     public CategoryFallback(ReviewRepository reviewRepository,
                             DishRepository dishRepository,
-                            DishMapper dishMapper) {
+                            DishMapper dishMapper,
+                            DishRatingService dishRatingService) {
         this.reviewRepository = reviewRepository;
         this.dishRepository = dishRepository;
         this.dishMapper = dishMapper;
+        this.dishRatingService = dishRatingService;
     }
 
     public List<DishResponseDto> recommend(long userId, Set<Long> excludeIds, int limit) {
@@ -38,8 +42,7 @@ public class CategoryFallback {
             Category cat = (Category) row[0];
             List<Dish> dishes = dishRepository.findDishesByCategoryAndArchivedFalse(cat, Sort.by("name"));
             List<DishResponseDto> dtos = dishMapper.toDishResponseDtoList(dishes);
-            assignAverageRatings(dtos);
-            assignReviewCounts(dtos);
+            dishRatingService.decorate(dtos);
             dtos.sort(Comparator.comparing(DishResponseDto::getAverageRating).reversed());
             for (DishResponseDto dto : dtos) {
                 if (excluded.contains(dto.getId())) continue;
@@ -54,18 +57,4 @@ public class CategoryFallback {
         log.debug("Fallback produced {} dishes", result.size());
         return result;
     }
-
-    private void assignAverageRatings(List<DishResponseDto> dtos) {
-        for (DishResponseDto dto : dtos) {
-            Double avg = reviewRepository.getAverageRatingByDishId(dto.getId());
-            dto.setAverageRating(avg == null ? 0.0 : avg);
-        }
-    }
-
-    private void assignReviewCounts(List<DishResponseDto> dtos) {
-        for (DishResponseDto dto : dtos) {
-            Long count = reviewRepository.countByDishId(dto.getId());
-            dto.setReviewCount(count == null ? 0 : count);
-        }
-    }
 }
@@ -5,78 +5,129 @@ import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+/**
+ * User-based collaborative filtering over mean-centred ratings. Neighbours are
+ * the users reached through the item-to-users index of the target's dishes,
+ * so the cost follows the size of the neighbourhood rather than the number of
+ * users. Cosine similarity uses the norms cached in {@link SparseRatings}.
+ */
 @Slf4j
 @Component
 public class CollaborativePredictor {
 
+    private static final double SHRINKAGE = 5.0;
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
     public Map<Long, Double> predict(long userId, RatingMatrixBuilder.RatingData data) {
-        Map<Long, Map<Long, Double>> ratingMatrix = data.matrix();
-        Map<Long, Double> userMeans = data.means();
-        Map<Long, Double> target = ratingMatrix.getOrDefault(userId, Map.of());
-        double targetMean = userMeans.getOrDefault(userId, 0.0);
-        Map<Long, Double> scoreSums = new HashMap<>();
-        Map<Long, Double> similaritySums = new HashMap<>();
+        SparseRatings ratings = data.sparse();
+        double targetMean = data.means().getOrDefault(userId, 0.0);
+        int target = ratings.rowOf(userId);
+        long[] targetDishes = ratings.dishIds(target);
+        double[] targetValues = ratings.values(target);
+        if (targetDishes.length == 0) {
+            log.debug("Collaborative predictor produced no scores for user {}", userId);
+            return new HashMap<>();
+        }
 
-        for (Map.Entry<Long, Map<Long, Double>> entry : ratingMatrix.entrySet()) {
-            long otherUserId = entry.getKey();
-            if (otherUserId == userId) continue;
-            Map<Long, Double> other = entry.getValue();
-            int overlap = 0;
-            for (Long d : target.keySet()) {
-                if (other.containsKey(d)) overlap++;
-            }
-            if (overlap == 0) {
-                log.debug("No overlap between user {} and {}", userId, otherUserId);
-                continue;
+        Scratch s = scratch.get();
+        s.ensure(ratings.userCount(), ratings.itemCount());
+        try {
+            // Overlap counts and dot products with every user sharing a dish
+            for (int k = 0; k < targetDishes.length; k++) {
+                int item = ratings.itemOf(targetDishes[k]);
+                s.targetItem[item] = true;
+                int[] raters = ratings.usersOf(item);
+                double[] raterValues = ratings.valuesOf(item);
+                for (int r = 0; r < raters.length; r++) {
+                    int other = raters[r];
+                    if (other == target) continue;
+                    if (s.overlap[other]++ == 0) s.neighbours[s.neighbourCount++] = other;
+                    s.dot[other] += targetValues[k] * raterValues[r];
+                }
             }
-            double sim = cosineSimilarity(target, other);
-            double weight = overlap / (overlap + 5.0);
-            sim *= weight;
-            if (sim <= 0) {
-                log.debug("Non-positive similarity between user {} and {}", userId, otherUserId);
-                continue;
-            }
-            for (Map.Entry<Long, Double> dr : other.entrySet()) {
-                long dishId = dr.getKey();
-                if (target.containsKey(dishId)) continue;
-                scoreSums.merge(dishId, sim * dr.getValue(), Double::sum);
-                similaritySums.merge(dishId, sim, Double::sum);
+
+            double targetNorm = ratings.norm(target);
+            for (int n = 0; n < s.neighbourCount; n++) {
+                int other = s.neighbours[n];
+                double otherNorm = ratings.norm(other);
+                if (targetNorm == 0 || otherNorm == 0) continue;
+                int overlap = s.overlap[other];
+                double sim = s.dot[other] / (targetNorm * otherNorm) * (overlap / (overlap + SHRINKAGE));
+                if (sim <= 0) continue;
+                long[] dishes = ratings.dishIds(other);
+                double[] values = ratings.values(other);
+                for (int k = 0; k < dishes.length; k++) {
+                    int item = ratings.itemOf(dishes[k]);
+                    if (s.targetItem[item]) continue;
+                    if (!s.scoreTouched[item]) {
+                        s.scoreTouched[item] = true;
+                        s.items[s.itemCount++] = item;
+                    }
+                    s.scoreSums[item] += sim * values[k];
+                    s.simSums[item] += sim;
+                }
             }
-        }
 
-        Map<Long, Double> preds = new HashMap<>();
-        for (Long dishId : scoreSums.keySet()) {
-            double norm = similaritySums.getOrDefault(dishId, 1.0);
-            preds.put(dishId, targetMean + scoreSums.get(dishId) / norm);
-        }
-        log.debug("Collaborative predictor produced {} dish scores for user {}", preds.size(), userId);
-        if (preds.isEmpty()) {
-            log.debug("Collaborative predictor produced no scores for user {}", userId);
+            Map<Long, Double> preds = new HashMap<>(Math.max(16, s.itemCount * 2));
+            for (int n = 0; n < s.itemCount; n++) {
+                int item = s.items[n];
+                preds.put(ratings.itemAt(item), targetMean + s.scoreSums[item] / s.simSums[item]);
+            }
+            log.debug("Collaborative predictor produced {} dish scores for user {} from {} neighbours",
+                    preds.size(), userId, s.neighbourCount);
+            return preds;
+        } finally {
+            s.reset(ratings, targetDishes);
         }
-        return preds;
     }
 
-    private double cosineSimilarity(Map<Long, Double> a, Map<Long, Double> b) {
-        if (a.isEmpty() || b.isEmpty()) {
-            return 0.0;
-        }
-        double dot = 0.0;
-        double normA = 0.0;
-        double normB = 0.0;
-        for (var e : a.entrySet()) {
-            double ra = e.getValue();
-            normA += ra * ra;
-            Double rb = b.get(e.getKey());
-            if (rb != null) {
-                dot += ra * rb;
+    /**
+     * Per-thread accumulators indexed by user row and dish index. Only the
+     * touched entries are cleared after each call.
+     */
+    private static final class Scratch {
+        private int[] overlap = new int[0];
+        private double[] dot = new double[0];
+        private int[] neighbours = new int[0];
+        private int neighbourCount;
+        private boolean[] targetItem = new boolean[0];
+        private boolean[] scoreTouched = new boolean[0];
+        private double[] scoreSums = new double[0];
+        private double[] simSums = new double[0];
+        private int[] items = new int[0];
+        private int itemCount;
+
+        private void ensure(int users, int itemTotal) {
+            if (overlap.length < users) {
+                overlap = new int[users];
+                dot = new double[users];
+                neighbours = new int[users];
+            }
+            if (targetItem.length < itemTotal) {
+                targetItem = new boolean[itemTotal];
+                scoreTouched = new boolean[itemTotal];
+                scoreSums = new double[itemTotal];
+                simSums = new double[itemTotal];
+                items = new int[itemTotal];
             }
         }
-        for (double rb : b.values()) {
-            normB += rb * rb;
-        }
-        if (normA == 0 || normB == 0) {
-            return 0.0;
+
+        private void reset(SparseRatings ratings, long[] targetDishes) {
+            for (int n = 0; n < neighbourCount; n++) {
+                overlap[neighbours[n]] = 0;
+                dot[neighbours[n]] = 0.0;
+            }
+            neighbourCount = 0;
+            for (int n = 0; n < itemCount; n++) {
+                scoreTouched[items[n]] = false;
+                scoreSums[items[n]] = 0.0;
+                simSums[items[n]] = 0.0;
+            }
+            itemCount = 0;
+            for (long dishId : targetDishes) {
+                targetItem[ratings.itemOf(dishId)] = false;
+            }
         }
-        return dot / (Math.sqrt(normA) * Math.sqrt(normB));
     }
 }
@@ -0,0 +1,75 @@
+package com.exampleepam.restaurant.service.recommendation;
+
+import com.exampleepam.restaurant.dto.order.OrderLineDto;
+import com.exampleepam.restaurant.entity.Review;
+import com.exampleepam.restaurant.entity.Status;
+import com.exampleepam.restaurant.repository.OrderRepository;
+import com.exampleepam.restaurant.repository.ReviewRepository;
+import com.exampleepam.restaurant.service.recommendation.RatingMatrixBuilder.RatingData;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Reads every review and completed order line once into an
+ * {@link InteractionLog} and builds the rating matrix from it. Kept apart
+ * from the recommendation service so a refresh can load its inputs in a
+ * short transaction of their own and retrain the model after it has ended.
+ */
+@Slf4j
+@Component
+public class InteractionLoader {
+
+    private final ReviewRepository reviewRepository;
+    private final OrderRepository orderRepository;
+    private final RatingMatrixBuilder ratingMatrixBuilder;
+
+    @Autowired
+    public InteractionLoader(ReviewRepository reviewRepository,
+                             OrderRepository orderRepository,
+                             RatingMatrixBuilder ratingMatrixBuilder) {
+        this.reviewRepository = reviewRepository;
+        this.orderRepository = orderRepository;
+        this.ratingMatrixBuilder = ratingMatrixBuilder;
+    }
+
+    /**
+     * Returns {@code null} when there are no interactions at all. Read-only
+     * transaction so completed orders can be streamed as flat lines; each
+     * line is folded into the interaction log as it is read, so no list of
+     * all lines is held. Reviews come with their user and dish, so they can
+     * be used after the transaction ends.
+     */
+    @Transactional(readOnly = true)
+    public Interactions load() {
+        final List<Review> reviews = reviewRepository.findAllWithUserAndDish();
+        final InteractionLog interactions = new InteractionLog(reviews.size());
+        final Set<Long> dishIds = new HashSet<>();
+        for (Review r : reviews) {
+            interactions.addReview(r.getUser().getId(), r.getDish().getId(), r.getRating());
+            dishIds.add(r.getDish().getId());
+        }
+        try (Stream<OrderLineDto> lines = orderRepository.streamLinesByStatus(Status.COMPLETED)) {
+            Iterator<OrderLineDto> it = lines.iterator();
+            while (it.hasNext()) {
+                OrderLineDto line = it.next();
+                interactions.addOrderLine(line.userId(), line.dishId());
+                dishIds.add(line.dishId());
+            }
+        }
+        log.debug("Loaded {} reviews and {} completed order lines",
+                reviews.size(), interactions.size() - reviews.size());
+        if (interactions.size() == 0) return null;
+
+        return new Interactions(reviews, interactions, ratingMatrixBuilder.build(interactions), dishIds);
+    }
+
+    public record Interactions(List<Review> reviews, InteractionLog interactions,
+                               RatingData ratingData, Set<Long> dishIds) {}
+}
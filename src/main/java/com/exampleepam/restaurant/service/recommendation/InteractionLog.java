@@ -0,0 +1,88 @@
+package com.exampleepam.restaurant.service.recommendation;
+
+import com.exampleepam.restaurant.dto.order.OrderLineDto;
+import com.exampleepam.restaurant.entity.Review;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * User-dish interactions as parallel primitive arrays in insertion order:
+ * reviews first, as explicit ratings, then completed order lines as an
+ * implicit rating of 1.0. Completed orders are streamed straight into it,
+ * so a refresh keeps 24 bytes per line instead of one DTO each. Not
+ * thread-safe for writes; callers publish a log only once they stop adding.
+ */
+public final class InteractionLog {
+
+    private long[] userIds;
+    private long[] dishIds;
+    private double[] ratings;
+    private int size;
+    private int reviewCount;
+
+    public InteractionLog() {
+        this(16);
+    }
+
+    public InteractionLog(int expected) {
+        int capacity = Math.max(4, expected);
+        userIds = new long[capacity];
+        dishIds = new long[capacity];
+        ratings = new double[capacity];
+    }
+
+    public static InteractionLog of(List<Review> reviews, List<OrderLineDto> orderLines) {
+        InteractionLog log = new InteractionLog(reviews.size() + orderLines.size());
+        for (Review r : reviews) {
+            log.addReview(r.getUser().getId(), r.getDish().getId(), r.getRating());
+        }
+        for (OrderLineDto line : orderLines) {
+            log.addOrderLine(line.userId(), line.dishId());
+        }
+        return log;
+    }
+
+    /** Adds an explicit rating; all reviews must be added before any order line. */
+    public void addReview(long userId, long dishId, int rating) {
+        if (reviewCount != size) throw new IllegalStateException("Reviews must precede order lines");
+        add(userId, dishId, rating);
+        reviewCount++;
+    }
+
+    public void addOrderLine(long userId, long dishId) {
+        add(userId, dishId, 1.0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Whether the interaction at {@code index} is a review rather than an order line. */
+    public boolean isReview(int index) {
+        return index < reviewCount;
+    }
+
+    public long userId(int index) {
+        return userIds[index];
+    }
+
+    public long dishId(int index) {
+        return dishIds[index];
+    }
+
+    public double rating(int index) {
+        return ratings[index];
+    }
+
+    private void add(long userId, long dishId, double rating) {
+        if (size == userIds.length) {
+            int capacity = size * 2;
+            userIds = Arrays.copyOf(userIds, capacity);
+            dishIds = Arrays.copyOf(dishIds, capacity);
+            ratings = Arrays.copyOf(ratings, capacity);
+        }
+        userIds[size] = userId;
+        dishIds[size] = dishId;
+        ratings[size++] = rating;
+    }
+}
@@ -0,0 +1,9 @@
+package com.exampleepam.restaurant.service.recommendation;
+
+/**
+ * Published for every new review ({@code rating}) and completed order line
+ * ({@code 1.0}). Listeners run after the publishing transaction commits, so
+ * the model never learns from an interaction that was rolled back.
+ */
+public record InteractionRecordedEvent(long userId, long dishId, double rating) {
+}
@@ -0,0 +1,107 @@
+package com.exampleepam.restaurant.service.recommendation;
+
+import java.util.Arrays;
+
+/**
+ * Maps sparse {@code long} ids (users, dishes) to dense indexes
+ * {@code 0..size-1} in insertion order, using open addressing on primitive
+ * arrays so lookups neither box nor allocate. Not thread-safe for writes;
+ * callers publish an index only once they stop adding to it.
+ */
+public final class LongIndex {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] slots;
+    private long[] ids;
+    private int size;
+
+    public LongIndex() {
+        this(16);
+    }
+
+    public LongIndex(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        slots = new int[capacity];
+        ids = new long[Math.max(4, expected)];
+    }
+
+    private LongIndex(LongIndex other) {
+        keys = other.keys.clone();
+        slots = other.slots.clone();
+        ids = other.ids.clone();
+        size = other.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Dense index of {@code id}, or -1 when absent. */
+    public int indexOf(long id) {
+        int mask = keys.length - 1;
+        for (int p = mix(id) & mask; ; p = (p + 1) & mask) {
+            long k = keys[p];
+            if (k == id) return slots[p];
+            if (k == EMPTY) return -1;
+        }
+    }
+
+    /** Returns the existing index of {@code id} or assigns the next one. */
+    public int add(long id) {
+        if (id == EMPTY) throw new IllegalArgumentException("Unsupported id " + id);
+        int mask = keys.length - 1;
+        int p = mix(id) & mask;
+        for (; keys[p] != EMPTY; p = (p + 1) & mask) {
+            if (keys[p] == id) return slots[p];
+        }
+        int index = size++;
+        keys[p] = id;
+        slots[p] = index;
+        if (index == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[index] = id;
+        if (size > keys.length * LOAD_FACTOR) {
+            rehash(keys.length * 2);
+        }
+        return index;
+    }
+
+    /** The id stored at a dense index. */
+    public long idAt(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        return ids[index];
+    }
+
+    /** Independent copy that can be extended without affecting this index. */
+    public LongIndex copy() {
+        return new LongIndex(this);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldSlots = slots;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long k = oldKeys[i];
+            if (k == EMPTY) continue;
+            int p = mix(k) & mask;
+            while (keys[p] != EMPTY) p = (p + 1) & mask;
+            keys[p] = k;
+            slots[p] = oldSlots[i];
+        }
+    }
+
+    private static int mix(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -1,8 +1,5 @@
 package com.exampleepam.restaurant.service.recommendation;
 
-import com.exampleepam.restaurant.entity.Order;
-import com.exampleepam.restaurant.entity.OrderItem;
-import com.exampleepam.restaurant.entity.Review;
 import java.util.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -11,33 +8,33 @@ import org.springframework.stereotype.Component;
 @Component
 public class RatingMatrixBuilder {
 
-    public RatingData build(List<Review> reviews, List<Order> orders) {
-        log.debug("Building rating matrix from {} reviews and {} orders", reviews.size(), orders.size());
+    /**
+     * Builds the mean-centred matrix. A user's review of a dish is kept over
+     * their orders of it; an order line counts once per user and dish.
+     */
+    public RatingData build(InteractionLog interactions) {
+        log.debug("Building rating matrix from {} interactions", interactions.size());
         Map<Long, Map<Long, Double>> matrix = new HashMap<>();
-        Map<Long, List<Integer>> temp = new HashMap<>();
+        Map<Long, double[]> sums = new HashMap<>();
         Map<Long, Double> means = new HashMap<>();
         Set<Long> reviewUsers = new HashSet<>();
-        for (Review r : reviews) {
-            long u = r.getUser().getId();
-            reviewUsers.add(u);
-            temp.computeIfAbsent(u, k -> new ArrayList<>()).add(r.getRating());
-            matrix.computeIfAbsent(u, k -> new HashMap<>())
-                .put(r.getDish().getId(), (double) r.getRating());
-        }
-        for (Order o : orders) {
-            long userId = o.getUser().getId();
-            for (OrderItem item : o.getOrderItems()) {
-                long dishId = item.getDish().getId();
+        Set<Long> orderUsers = new HashSet<>();
+        for (int k = 0; k < interactions.size(); k++) {
+            long userId = interactions.userId(k);
+            long dishId = interactions.dishId(k);
+            if (interactions.isReview(k)) {
+                reviewUsers.add(userId);
+            } else {
+                orderUsers.add(userId);
                 if (matrix.getOrDefault(userId, Map.of()).containsKey(dishId)) {
                     continue;
                 }
-                temp.computeIfAbsent(userId, k -> new ArrayList<>()).add(1);
-                matrix.computeIfAbsent(userId, k -> new HashMap<>()).put(dishId, 1.0);
             }
-        }
-        Set<Long> orderUsers = new HashSet<>();
-        for (Order o : orders) {
-            orderUsers.add(o.getUser().getId());
+            double rating = interactions.rating(k);
+            double[] sum = sums.computeIfAbsent(userId, u -> new double[2]);
+            sum[0] += rating;
+            sum[1]++;
+            matrix.computeIfAbsent(userId, u -> new HashMap<>()).put(dishId, rating);
         }
         orderUsers.removeAll(reviewUsers);
         if (!orderUsers.isEmpty()) {
@@ -45,7 +42,8 @@ public class RatingMatrixBuilder {
         }
         for (var e : matrix.entrySet()) {
             long u = e.getKey();
-            double mean = temp.get(u).stream().mapToInt(Integer::intValue).average().orElse(0);
+            double[] sum = sums.get(u);
+            double mean = sum[0] / sum[1];
             means.put(u, mean);
             Map<Long, Double> userRatings = e.getValue();
             for (var d : userRatings.entrySet()) {
@@ -57,5 +55,13 @@ public class RatingMatrixBuilder {
         return new RatingData(matrix, means);
     }
 
-    public record RatingData(Map<Long, Map<Long, Double>> matrix, Map<Long, Double> means) {}
+    /**
+     * Mean-centred ratings per user, the user means, and a sparse primitive
+     * view of the same matrix with an item-to-users index for neighbour search.
+     */
+    public record RatingData(Map<Long, Map<Long, Double>> matrix, Map<Long, Double> means, SparseRatings sparse) {
+        public RatingData(Map<Long, Map<Long, Double>> matrix, Map<Long, Double> means) {
+            this(matrix, means, SparseRatings.of(matrix));
+        }
+    }
 }
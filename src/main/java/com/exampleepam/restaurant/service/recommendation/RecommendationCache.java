@@ -0,0 +1,133 @@
+package com.exampleepam.restaurant.service.recommendation;
+
+import com.exampleepam.restaurant.dto.dish.DishResponseDto;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded, least-recently-used store of precomputed top-N recommendations
+ * per user. Entries expire after a fixed time to live, so a user whose
+ * entry is not refreshed in the background is recomputed on the next read.
+ * <p>
+ * Every eviction and clear advances a generation counter. A list computed
+ * from inputs read at generation {@code g} is stored with
+ * {@link #putIfUnchanged}, which drops it when the user was evicted after
+ * {@code g}, so a slow computation cannot overwrite an eviction that was
+ * made while it ran.
+ */
+@Component
+public class RecommendationCache {
+
+    private final int maxUsers;
+    private final long ttlMillis;
+    private final int topN;
+    private final Clock clock;
+    private final Map<Long, Entry> entries;
+    /** Generation of each user's last eviction, for as many users as entries. */
+    private final Map<Long, Long> evictions;
+    private long generation;
+    private long clearedAt;
+
+    @Autowired
+    public RecommendationCache(@Value("${recommendation.cache.max-users:10000}") int maxUsers,
+                               @Value("${recommendation.cache.ttl:PT30M}") Duration ttl,
+                               @Value("${recommendation.cache.top-n:10}") int topN) {
+        this(maxUsers, ttl, topN, Clock.systemUTC());
+    }
+
+    public RecommendationCache(int maxUsers, Duration ttl, int topN, Clock clock) {
+        if (maxUsers <= 0) throw new IllegalArgumentException("maxUsers must be > 0");
+        if (topN <= 0) throw new IllegalArgumentException("topN must be > 0");
+        this.maxUsers = maxUsers;
+        this.ttlMillis = ttl.toMillis();
+        this.topN = topN;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > RecommendationCache.this.maxUsers;
+            }
+        };
+        this.evictions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > RecommendationCache.this.maxUsers;
+            }
+        };
+    }
+
+    /** Number of dishes kept per user; larger requests bypass the cache. */
+    public int getTopN() {
+        return topN;
+    }
+
+    public int getMaxUsers() {
+        return maxUsers;
+    }
+
+    /** Returns the cached recommendations, or {@code null} when missing or expired. */
+    public synchronized List<DishResponseDto> get(long userId) {
+        Entry entry = entries.get(userId);
+        if (entry == null) {
+            return null;
+        }
+        if (clock.millis() - entry.computedAt() > ttlMillis) {
+            entries.remove(userId);
+            return null;
+        }
+        return entry.dishes();
+    }
+
+    public synchronized void put(long userId, List<DishResponseDto> dishes) {
+        entries.put(userId, new Entry(List.copyOf(dishes), clock.millis()));
+    }
+
+    /**
+     * Stores {@code dishes} unless the user's entry was evicted, or the
+     * cache cleared, after {@code since} (a value of {@link #generation()}
+     * taken before the inputs of the list were read).
+     *
+     * @return whether the list was stored
+     */
+    public synchronized boolean putIfUnchanged(long userId, List<DishResponseDto> dishes, long since) {
+        if (clearedAt > since || evictions.getOrDefault(userId, 0L) > since) {
+            return false;
+        }
+        put(userId, dishes);
+        return true;
+    }
+
+    public synchronized void evict(long userId) {
+        entries.remove(userId);
+        evictions.put(userId, ++generation);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        evictions.clear();
+        clearedAt = ++generation;
+    }
+
+    /** Current generation; see {@link #putIfUnchanged}. */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /** Cached user ids, most recently read last. */
+    public synchronized List<Long> userIds() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private record Entry(List<DishResponseDto> dishes, long computedAt) {}
+}
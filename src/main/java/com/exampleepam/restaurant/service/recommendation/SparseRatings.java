@@ -0,0 +1,134 @@
+package com.exampleepam.restaurant.service.recommendation;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Read-only primitive view of a user x dish rating matrix for user-based CF.
+ * Each user row is a sparse vector of dish ids sorted ascending with its
+ * values and a precomputed L2 norm; an inverted index lists, per dish, the
+ * users who rated it, so neighbours can be found without scanning every user.
+ */
+public final class SparseRatings {
+
+    private static final long[] NO_IDS = new long[0];
+    private static final double[] NO_VALUES = new double[0];
+
+    private final LongIndex users;
+    private final LongIndex items;
+    private final long[][] dishIds;
+    private final double[][] values;
+    private final double[] norms;
+    private final int[][] itemUsers;
+    private final double[][] itemValues;
+
+    private SparseRatings(LongIndex users, LongIndex items, long[][] dishIds, double[][] values,
+                          double[] norms, int[][] itemUsers, double[][] itemValues) {
+        this.users = users;
+        this.items = items;
+        this.dishIds = dishIds;
+        this.values = values;
+        this.norms = norms;
+        this.itemUsers = itemUsers;
+        this.itemValues = itemValues;
+    }
+
+    public static SparseRatings of(Map<Long, Map<Long, Double>> matrix) {
+        int userCount = matrix.size();
+        LongIndex users = new LongIndex(userCount);
+        LongIndex items = new LongIndex();
+        long[][] dishIds = new long[userCount][];
+        double[][] values = new double[userCount][];
+        double[] norms = new double[userCount];
+        int[] itemCounts = new int[16];
+
+        for (Map.Entry<Long, Map<Long, Double>> e : matrix.entrySet()) {
+            int row = users.add(e.getKey());
+            Map<Long, Double> ratings = e.getValue();
+            long[] ids = new long[ratings.size()];
+            int k = 0;
+            for (Long dishId : ratings.keySet()) ids[k++] = dishId;
+            Arrays.sort(ids);
+            double[] vals = new double[ids.length];
+            double sumSq = 0.0;
+            for (k = 0; k < ids.length; k++) {
+                vals[k] = ratings.get(ids[k]);
+                sumSq += vals[k] * vals[k];
+                int item = items.add(ids[k]);
+                if (item == itemCounts.length) itemCounts = Arrays.copyOf(itemCounts, item * 2);
+                itemCounts[item]++;
+            }
+            dishIds[row] = ids;
+            values[row] = vals;
+            norms[row] = Math.sqrt(sumSq);
+        }
+
+        int[][] itemUsers = new int[items.size()][];
+        double[][] itemValues = new double[items.size()][];
+        for (int i = 0; i < items.size(); i++) {
+            itemUsers[i] = new int[itemCounts[i]];
+            itemValues[i] = new double[itemCounts[i]];
+        }
+        int[] fill = new int[items.size()];
+        for (int row = 0; row < userCount; row++) {
+            long[] ids = dishIds[row];
+            for (int k = 0; k < ids.length; k++) {
+                int item = items.indexOf(ids[k]);
+                int pos = fill[item]++;
+                itemUsers[item][pos] = row;
+                itemValues[item][pos] = values[row][k];
+            }
+        }
+        return new SparseRatings(users, items, dishIds, values, norms, itemUsers, itemValues);
+    }
+
+    public int userCount() {
+        return users.size();
+    }
+
+    public int itemCount() {
+        return items.size();
+    }
+
+    /** Row of {@code userId}, or -1 when the user has no ratings. */
+    public int rowOf(long userId) {
+        return users.indexOf(userId);
+    }
+
+    public long userAt(int row) {
+        return users.idAt(row);
+    }
+
+    /** Dense index of {@code dishId}, or -1 when nobody rated it. */
+    public int itemOf(long dishId) {
+        return items.indexOf(dishId);
+    }
+
+    public long itemAt(int item) {
+        return items.idAt(item);
+    }
+
+    /** Dish ids rated by the user, sorted ascending. Must not be modified. */
+    public long[] dishIds(int row) {
+        return row < 0 ? NO_IDS : dishIds[row];
+    }
+
+    /** Ratings aligned with {@link #dishIds(int)}. Must not be modified. */
+    public double[] values(int row) {
+        return row < 0 ? NO_VALUES : values[row];
+    }
+
+    public double norm(int row) {
+        return norms[row];
+    }
+
+    /** Rows of the users who rated the dish. Must not be modified. */
+    public int[] usersOf(int item) {
+        return itemUsers[item];
+    }
+
+    /** Ratings aligned with {@link #usersOf(int)}. Must not be modified. */
+    public double[] valuesOf(int item) {
+        return itemValues[item];
+    }
+}
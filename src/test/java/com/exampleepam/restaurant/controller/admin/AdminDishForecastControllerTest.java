@@ -0,0 +1,83 @@
+package com.exampleepam.restaurant.controller.admin;
+
+import com.exampleepam.restaurant.ControllerConfiguration;
+import com.exampleepam.restaurant.security.MyUserDetailsService;
+import com.exampleepam.restaurant.service.DishForecastService;
+import com.exampleepam.restaurant.service.ForecastScheduler;
+import com.exampleepam.restaurant.service.ForecastSummaryService;
+import com.exampleepam.restaurant.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static com.exampleepam.restaurant.test_data.TestData.ADMIN_EMAIL;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(AdminDishForecastController.class)
+@Import(ControllerConfiguration.class)
+@WithUserDetails(ADMIN_EMAIL)
+public class AdminDishForecastControllerTest {
+    MockMvc mockMvc;
+
+    @MockBean
+    private DishForecastService forecastService;
+    @MockBean
+    private ForecastSummaryService summaryService;
+    @MockBean
+    private ForecastScheduler forecastScheduler;
+    @MockBean
+    private UserService userService;
+    @MockBean
+    MyUserDetailsService myUserDetailsService;
+
+    @Autowired
+    public AdminDishForecastControllerTest(MockMvc mockMvc) {
+        this.mockMvc = mockMvc;
+    }
+
+    @Test
+    void refreshStartsInBackgroundAndRedirectsToPage() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/admin/dish-forecast/refresh")
+                        .param("model", "arima")
+                        .param("filter", "soup")
+                        .param("type", "")
+                        .with(csrf()))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/admin/dish-forecast?model=arima&filter=soup"))
+                .andExpect(flash().attribute("refreshStarted", true));
+
+        Mockito.verify(forecastScheduler, Mockito.times(1)).refreshAsync("arima");
+        Mockito.verify(forecastScheduler, Mockito.never()).refreshIfStale(Mockito.anyString());
+    }
+
+    @Test
+    void stalePageShowsStoredResultsWhileRefreshing() throws Exception {
+        Mockito.when(forecastScheduler.refreshIfStale("holt")).thenReturn(true);
+        Mockito.when(forecastService.getStoredForecasts(Mockito.isNull(), Mockito.isNull(), Mockito.eq("holt"),
+                Mockito.any())).thenReturn(Page.empty());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/admin/dish-forecast"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("refreshing", true));
+
+        Mockito.verify(forecastService).getStoredForecasts(Mockito.isNull(), Mockito.isNull(), Mockito.eq("holt"),
+                Mockito.any());
+    }
+
+    @Test
+    void refreshWithoutCsrfTokenIsRejected() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/admin/dish-forecast/refresh")
+                        .param("model", "holt"))
+                .andExpect(status().isForbidden());
+
+        Mockito.verify(forecastScheduler, Mockito.never()).refreshAsync(Mockito.anyString());
+    }
+}
@@ -2,6 +2,7 @@ package com.exampleepam.restaurant.controller.admin;
 
 import com.exampleepam.restaurant.ControllerConfiguration;
 import com.exampleepam.restaurant.controller.DishController;
+import com.exampleepam.restaurant.entity.paging.KeysetPaged;
 import com.exampleepam.restaurant.security.AuthenticatedUser;
 import com.exampleepam.restaurant.security.MyUserDetailsService;
 import com.exampleepam.restaurant.service.OrderService;
@@ -94,6 +95,25 @@ public class AdminOrderControllerTest {
                         "orderList"));
     }
 
+    @Test
+    void findKeysetPage() throws Exception {
+        var paged = getOrderResponseDtosPaged();
+        String cursor = "2024-05-01T12:30_42";
+        Mockito.when(orderService.findKeysetPage(10, "all", cursor, true))
+                .thenReturn(new KeysetPaged<>(paged.getPage(), paged.getPaging(), cursor,
+                        "2024-04-30T09:00_17", 1200L));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/admin/orders/seek")
+                        .param("status", "all")
+                        .param("cursor", cursor)
+                        .param("withTotal", "true")
+                        .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(view().name("order-management"))
+                .andExpect(model().attribute("keyset", true))
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("cursor=2024-04-30T09:00_17")));
+    }
+
     @Test
     public void changeOrderStatusNext() throws Exception {
         String sortField = "category";
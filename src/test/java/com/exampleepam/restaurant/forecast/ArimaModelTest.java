@@ -1,10 +1,14 @@
 package com.exampleepam.restaurant.forecast;
 
 import com.exampleepam.restaurant.service.forecast.ArimaModel;
+import com.exampleepam.restaurant.service.forecast.ForecastEvaluator;
 import com.exampleepam.restaurant.service.forecast.ForecastResult;
+import com.exampleepam.restaurant.service.forecast.SeriesBatch;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -18,6 +22,9 @@ public class ArimaModelTest {
     private static final double SINGLE_OBSERVATION = 7.0;
     private static final List<Integer> TREND_HISTORY = List.of(1, 2, 3, 4, 5);
     private static final List<Integer> FLAT_HISTORY = List.of(FLAT_VALUE, FLAT_VALUE, FLAT_VALUE, FLAT_VALUE);
+    private static final int BATCH_SERIES = 60;
+    private static final long BATCH_SEED = 11L;
+    private static final double PHI_CLAMP = 0.99;
 
     @Test
     void arimaProjectsTrend() {
@@ -42,4 +49,92 @@ public class ArimaModelTest {
             assertEquals(SINGLE_OBSERVATION, v);
         }
     }
+
+    @Test
+    void batchMatchesPerSeriesReferenceForMixedLengths() {
+        Random random = new Random(BATCH_SEED);
+        List<List<Integer>> series = new ArrayList<>(List.of(TREND_HISTORY, FLAT_HISTORY, List.of(),
+                List.of((int) SINGLE_OBSERVATION), List.of(3, 9)));
+        for (int s = 0; s < BATCH_SERIES; s++) {
+            List<Integer> history = new ArrayList<>();
+            int months = 1 + random.nextInt(36);
+            for (int i = 0; i < months; i++) {
+                history.add(random.nextInt(50));
+            }
+            series.add(history);
+        }
+
+        List<ForecastResult> batch = new ArimaModel().forecastBatch(SeriesBatch.of(series), THREE_STEPS);
+
+        assertEquals(series.size(), batch.size());
+        for (int i = 0; i < series.size(); i++) {
+            ForecastResult expected = reference(series.get(i), THREE_STEPS);
+            ForecastResult actual = batch.get(i);
+            String message = "series " + i;
+            assertEquals(expected.getForecasts(), actual.getForecasts(), message);
+            assertEquals(expected.getLower(), actual.getLower(), message);
+            assertEquals(expected.getUpper(), actual.getUpper(), message);
+            assertEquals(expected.getAlpha(), actual.getAlpha(), message);
+            assertEquals(expected.getGamma(), actual.getGamma(), message);
+            assertEquals(expected.getRmse(), actual.getRmse(), message);
+        }
+    }
+
+    /**
+     * Per-series reference: OLS of y_t = c + phi * y_{t-1} on one series,
+     * recursive forecast and AR(1) intervals, computed on its own.
+     */
+    private static ForecastResult reference(List<Integer> y, int periods) {
+        int n = y.size();
+        if (n == 0) {
+            return new ForecastResult(List.of(0d, 0d, 0d), 0, 0, 0, 0, 0, List.of(0d, 0d, 0d), List.of(0d, 0d, 0d));
+        }
+        if (n == 1) {
+            List<Double> repeated = List.of((double) y.get(0), (double) y.get(0), (double) y.get(0));
+            return new ForecastResult(repeated, 1, 0, 0, 0, 0, repeated, repeated);
+        }
+        double sumX = 0;
+        double sumY = 0;
+        for (int t = 1; t < n; t++) {
+            sumX += y.get(t - 1);
+            sumY += y.get(t);
+        }
+        double meanX = sumX / (n - 1);
+        double meanY = sumY / (n - 1);
+        double num = 0;
+        double den = 0;
+        for (int t = 1; t < n; t++) {
+            double x = y.get(t - 1) - meanX;
+            num += x * (y.get(t) - meanY);
+            den += x * x;
+        }
+        double phi = Math.max(-PHI_CLAMP, Math.min(PHI_CLAMP, den == 0.0 ? 0.0 : num / den));
+        double intercept = meanY - phi * meanX;
+
+        double sse = 0;
+        double[] actual = new double[n - 1];
+        double[] fitted = new double[n - 1];
+        for (int t = 1; t < n; t++) {
+            fitted[t - 1] = intercept + phi * y.get(t - 1);
+            actual[t - 1] = y.get(t);
+            double e = actual[t - 1] - fitted[t - 1];
+            sse += e * e;
+        }
+        double sigma2 = sse / (n - 1);
+        double denom = 1.0 - phi * phi;
+        List<Double> forecasts = new ArrayList<>();
+        List<Double> lower = new ArrayList<>();
+        List<Double> upper = new ArrayList<>();
+        double last = y.get(n - 1);
+        for (int h = 1; h <= periods; h++) {
+            last = intercept + phi * last;
+            double varH = Math.abs(denom) < 1e-12 ? sigma2 * h : sigma2 * (1.0 - Math.pow(phi, 2 * h)) / denom;
+            double se = Math.sqrt(Math.max(0.0, varH));
+            forecasts.add(last);
+            lower.add(last - 1.96 * se);
+            upper.add(last + 1.96 * se);
+        }
+        return new ForecastResult(forecasts, phi, 0, intercept, 0,
+                ForecastEvaluator.rmse(actual, fitted), lower, upper);
+    }
 }
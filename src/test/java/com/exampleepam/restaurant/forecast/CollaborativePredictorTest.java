@@ -0,0 +1,31 @@
+package com.exampleepam.restaurant.forecast;
+
+import com.exampleepam.restaurant.service.recommendation.CollaborativePredictor;
+import com.exampleepam.restaurant.service.recommendation.RatingMatrixBuilder.RatingData;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CollaborativePredictorTest {
+
+    @Test
+    void scoresOnlyDishesOfOverlappingNeighbours() {
+        RatingData data = new RatingData(Map.of(
+                1L, Map.of(10L, 1.0, 11L, -1.0),
+                2L, Map.of(10L, 1.0, 11L, -0.5, 12L, 2.0),
+                3L, Map.of(13L, 1.0)), Map.of(1L, 3.0, 2L, 3.0, 3L, 4.0));
+
+        Map<Long, Double> preds = new CollaborativePredictor().predict(1L, data);
+
+        assertEquals(Map.of(12L, 5.0), preds);
+    }
+
+    @Test
+    void unknownUserGetsNoScores() {
+        RatingData data = new RatingData(Map.of(2L, Map.of(10L, 1.0)), Map.of(2L, 3.0));
+
+        assertTrue(new CollaborativePredictor().predict(1L, data).isEmpty());
+    }
+}
@@ -0,0 +1,41 @@
+package com.exampleepam.restaurant.forecast;
+
+import com.exampleepam.restaurant.service.forecast.CrossValidationCache;
+import com.exampleepam.restaurant.service.forecast.ForecastEvaluator;
+import com.exampleepam.restaurant.service.forecast.ForecastEvaluator.Metrics;
+import com.exampleepam.restaurant.service.forecast.HoltWintersModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class CrossValidationCacheTest {
+
+    private static final List<Integer> HISTORY = List.of(5, 8, 6, 9, 12, 10, 14, 13, 15);
+
+    @Test
+    void refitsOnlyWhenSeriesOrModelConfigChanges() {
+        CrossValidationCache cache = new CrossValidationCache(100);
+        HoltWintersModel model = spy(new HoltWintersModel(3));
+
+        Metrics first = cache.crossValidate(new ArrayList<>(HISTORY), model, 3);
+        Metrics second = cache.crossValidate(new ArrayList<>(HISTORY), model, 3);
+        assertSame(first, second);
+        assertEquals(ForecastEvaluator.crossValidate(HISTORY, new HoltWintersModel(3), 3), first);
+        verify(model, times(2)).forecast(any(), anyInt());
+
+        List<Integer> extended = new ArrayList<>(HISTORY);
+        extended.add(16);
+        cache.crossValidate(extended, model, 3);
+        verify(model, times(4)).forecast(any(), anyInt());
+
+        assertNotSame(first, cache.crossValidate(HISTORY, new HoltWintersModel(4), 3));
+    }
+}
@@ -0,0 +1,52 @@
+package com.exampleepam.restaurant.forecast;
+
+import com.exampleepam.restaurant.entity.DishDemandRollup;
+import com.exampleepam.restaurant.entity.RollupGrain;
+import com.exampleepam.restaurant.service.forecast.DailyForecaster;
+import com.exampleepam.restaurant.service.forecast.HistoryCollector;
+import com.exampleepam.restaurant.service.forecast.ScaleData;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DailyForecasterTest {
+
+    @Test
+    void spreadsMonthlyForecastOverRemainingDays() {
+        LocalDate today = LocalDate.now();
+        YearMonth current = YearMonth.from(today);
+        YearMonth next = current.plusMonths(1);
+        HistoryCollector.History history = HistoryCollector.History.of(List.of(
+                new DishDemandRollup(1L, RollupGrain.DAY, today.atStartOfDay(), 4),
+                new DishDemandRollup(1L, RollupGrain.DAY, today.minusDays(40).atStartOfDay(), 9)),
+                today.minusYears(1).atStartOfDay(), 30);
+
+        ScaleData daily = new DailyForecaster().forecast(1L, history, today, Map.of(current, 50, next, 100));
+
+        assertEquals(today.minusDays(30).toString(), daily.labels().get(0));
+        assertEquals(4, daily.actual().get(30));
+        assertNull(daily.forecast().get(30));
+        int currentSum = 0;
+        int nextSum = 0;
+        int firstNext = -1;
+        for (int i = 31; i < daily.labels().size(); i++) {
+            assertNull(daily.actual().get(i));
+            int val = daily.forecast().get(i);
+            if (LocalDate.parse(daily.labels().get(i)).getMonthValue() == next.getMonthValue()) {
+                firstNext = firstNext < 0 ? val : firstNext;
+                nextSum += val;
+            } else {
+                currentSum += val;
+            }
+        }
+        assertEquals(today.equals(current.atEndOfMonth()) ? 0 : 50, currentSum);
+        assertEquals(100, nextSum);
+        assertEquals((100 + next.lengthOfMonth() - 1) / next.lengthOfMonth(), firstNext);
+        assertEquals(next.atEndOfMonth().toString(), daily.labels().get(daily.labels().size() - 1));
+    }
+}
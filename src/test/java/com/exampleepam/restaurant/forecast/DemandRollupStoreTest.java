@@ -0,0 +1,109 @@
+package com.exampleepam.restaurant.forecast;
+
+import com.exampleepam.restaurant.entity.Dish;
+import com.exampleepam.restaurant.entity.DishDemandRollup;
+import com.exampleepam.restaurant.entity.Order;
+import com.exampleepam.restaurant.entity.OrderItem;
+import com.exampleepam.restaurant.entity.RollupGrain;
+import com.exampleepam.restaurant.repository.DishDemandRollupRepository;
+import com.exampleepam.restaurant.service.forecast.DemandRollupStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(DemandRollupStore.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class DemandRollupStoreTest {
+
+    private static final LocalDateTime COMPLETED_AT = LocalDateTime.of(2023, 3, 14, 12, 30);
+
+    @Autowired
+    private DemandRollupStore store;
+    @Autowired
+    private DishDemandRollupRepository rollupRepository;
+
+    @AfterEach
+    void clear() {
+        rollupRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void concurrentOrdersForSameBucketLoseNoIncrements() throws Exception {
+        int threads = 8;
+        int ordersPerThread = 20;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < ordersPerThread; i++) {
+                    store.recordOrder(order(1L, 2, 2L, 1), 1);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        pool.shutdown();
+
+        for (RollupGrain grain : RollupGrain.values()) {
+            assertEquals(threads * ordersPerThread * 2, quantity(1L, grain));
+            assertEquals(threads * ordersPerThread, quantity(2L, grain));
+        }
+        assertEquals(6, rollupRepository.count());
+    }
+
+    @Test
+    void removingLastQuantityDeletesBucket() {
+        store.recordOrder(order(1L, 3, 2L, 1), 1);
+        store.recordOrder(order(1L, 1, 2L, 1), 1);
+        store.recordOrder(order(1L, 3, 2L, 2), -1);
+
+        assertEquals(1, quantity(1L, RollupGrain.DAY));
+        assertEquals(0, quantity(2L, RollupGrain.DAY));
+        assertEquals(3, rollupRepository.count());
+    }
+
+    private int quantity(long dishId, RollupGrain grain) {
+        return rollupRepository.findAll().stream()
+                .filter(r -> r.getDishId() == dishId && r.getGrain() == grain
+                        && r.getBucketStart().equals(grain.bucketStart(COMPLETED_AT)))
+                .mapToInt(DishDemandRollup::getQuantity)
+                .sum();
+    }
+
+    private static Order order(long dishA, int qtyA, long dishB, int qtyB) {
+        Order order = new Order();
+        order.setCreationDateTime(COMPLETED_AT);
+        order.setOrderItems(List.of(new OrderItem(dish(dishA), qtyA), new OrderItem(dish(dishB), qtyB)));
+        return order;
+    }
+
+    private static Dish dish(long id) {
+        Dish dish = new Dish();
+        dish.setId(id);
+        return dish;
+    }
+}
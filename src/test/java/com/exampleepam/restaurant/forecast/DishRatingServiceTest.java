@@ -0,0 +1,163 @@
+package com.exampleepam.restaurant.forecast;
+
+import com.exampleepam.restaurant.entity.Dish;
+import com.exampleepam.restaurant.entity.DishRatingStats;
+import com.exampleepam.restaurant.entity.Order;
+import com.exampleepam.restaurant.entity.Review;
+import com.exampleepam.restaurant.entity.Role;
+import com.exampleepam.restaurant.entity.Status;
+import com.exampleepam.restaurant.entity.User;
+import com.exampleepam.restaurant.repository.DishRatingStatsRepository;
+import com.exampleepam.restaurant.repository.DishRepository;
+import com.exampleepam.restaurant.repository.OrderRepository;
+import com.exampleepam.restaurant.repository.ReviewRepository;
+import com.exampleepam.restaurant.repository.UserRepository;
+import com.exampleepam.restaurant.service.DishRatingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(DishRatingService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class DishRatingServiceTest {
+
+    @Autowired
+    private DishRatingService ratingService;
+    @Autowired
+    private DishRatingStatsRepository statsRepository;
+    @Autowired
+    private ReviewRepository reviewRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private DishRepository dishRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void clear() {
+        reviewRepository.deleteAllInBatch();
+        orderRepository.deleteAllInBatch();
+        dishRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+        statsRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void addsAndRemovesRatingsAndDeletesRowAtZero() {
+        ratingService.recordRating(7L, 5, 1);
+        ratingService.recordRating(7L, 3, 1);
+
+        DishRatingStats stats = stats(7L).orElseThrow();
+        assertEquals(8, stats.getRatingSum());
+        assertEquals(2, stats.getReviewCount());
+        assertArrayEquals(new int[]{0, 0, 1, 0, 1}, stats.getHistogram());
+
+        ratingService.recordRating(7L, 5, -1);
+        stats = stats(7L).orElseThrow();
+        assertEquals(3, stats.getRatingSum());
+        assertArrayEquals(new int[]{0, 0, 1, 0, 0}, stats.getHistogram());
+
+        ratingService.recordRating(7L, 3, -1);
+        assertTrue(stats(7L).isEmpty());
+
+        ratingService.recordRating(8L, 4, -1);
+        assertTrue(stats(8L).isEmpty());
+    }
+
+    @Test
+    void concurrentFirstReviewsOfDishAreAllCounted() throws Exception {
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int rating = 1 + t % 5;
+            futures.add(pool.submit(() -> {
+                start.await();
+                ratingService.recordRating(9L, rating, 1);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        pool.shutdown();
+
+        DishRatingStats stats = stats(9L).orElseThrow();
+        assertEquals(threads, stats.getReviewCount());
+        assertEquals(1 + 2 + 3 + 4 + 5 + 1 + 2 + 3, stats.getRatingSum());
+        assertArrayEquals(new int[]{2, 2, 2, 1, 1}, stats.getHistogram());
+    }
+
+    @Test
+    void reconcileFixesDriftedMissingAndStaleRows() {
+        User user = userRepository.save(new User("Reviewer", "secret", "reviewer@example.com", Role.USER));
+        Dish first = dishRepository.save(dish("First"));
+        Dish second = dishRepository.save(dish("Second"));
+        review(user, first, 5);
+        review(user, first, 3);
+        review(user, second, 4);
+
+        ratingService.recordRating(first.getId(), 5, 1);
+        ratingService.recordRating(12345L, 2, 1);
+        ratingService.recordRating(12345L, 2, 1);
+
+        ratingService.reconcile();
+
+        DishRatingStats firstStats = stats(first.getId()).orElseThrow();
+        assertEquals(8, firstStats.getRatingSum());
+        assertEquals(2, firstStats.getReviewCount());
+        assertArrayEquals(new int[]{0, 0, 1, 0, 1}, firstStats.getHistogram());
+        DishRatingStats secondStats = stats(second.getId()).orElseThrow();
+        assertEquals(4, secondStats.getRatingSum());
+        assertEquals(1, secondStats.getReviewCount());
+        assertTrue(stats(12345L).isEmpty());
+        assertEquals(2, statsRepository.count());
+    }
+
+    private Optional<DishRatingStats> stats(long dishId) {
+        return statsRepository.findByDishIdIn(List.of(dishId)).stream().findFirst();
+    }
+
+    private static Dish dish(String name) {
+        Dish dish = new Dish();
+        dish.setName(name);
+        dish.setPrice(BigDecimal.TEN);
+        return dish;
+    }
+
+    private void review(User user, Dish dish, int rating) {
+        Order order = new Order();
+        order.setUser(user);
+        order.setStatus(Status.COMPLETED);
+        order = orderRepository.save(order);
+        Review review = new Review();
+        review.setUser(user);
+        review.setDish(dish);
+        review.setOrder(order);
+        review.setRating(rating);
+        reviewRepository.save(review);
+    }
+}
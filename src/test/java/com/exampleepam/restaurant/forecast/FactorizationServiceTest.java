@@ -0,0 +1,125 @@
+package com.exampleepam.restaurant.forecast;
+
+import com.exampleepam.restaurant.dto.order.OrderLineDto;
+import com.exampleepam.restaurant.entity.Dish;
+import com.exampleepam.restaurant.entity.Review;
+import com.exampleepam.restaurant.entity.User;
+import com.exampleepam.restaurant.service.FactorizationService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FactorizationServiceTest {
+
+    @Test
+    void observeMovesPredictionTowardsNewRating() {
+        FactorizationService service = new FactorizationService();
+        service.train(reviews(), List.of(new OrderLineDto(3L, 2L, LocalDateTime.now(), 1)));
+        double before = service.predict(1L, 3L);
+
+        service.observe(1L, 3L, 5.0);
+
+        assertTrue(service.predict(1L, 3L) > before);
+    }
+
+    @Test
+    void observeIsIgnoredBeforeFirstTrain() {
+        FactorizationService service = new FactorizationService();
+
+        service.observe(1L, 1L, 5.0);
+
+        assertFalse(service.isReady());
+        assertEquals(0.0, service.predict(1L, 1L));
+    }
+
+    @Test
+    void singleThreadedTrainingIsReproducibleForFixedSeed() {
+        List<Review> reviews = syntheticReviews();
+        FactorizationService first = new FactorizationService(8, 10, 0.02, 0.05, 42L, 1);
+        FactorizationService second = new FactorizationService(8, 10, 0.02, 0.05, 42L, 1);
+
+        first.train(reviews, List.of());
+        second.train(reviews, List.of());
+
+        Set<Long> dishIds = new HashSet<>();
+        for (long d = 1; d <= DISHES; d++) dishIds.add(d);
+        for (long u = 1; u <= USERS; u++) {
+            Map<Long, Double> expected = first.predictAll(u, dishIds);
+            assertEquals(expected, second.predictAll(u, dishIds), "user " + u);
+        }
+    }
+
+    @Test
+    void parallelTrainingReachesSingleThreadedRmse() {
+        List<Review> reviews = syntheticReviews();
+        FactorizationService single = new FactorizationService(8, 25, 0.02, 0.05, 42L, 1);
+        FactorizationService parallel = new FactorizationService(8, 25, 0.02, 0.05, 42L, 4);
+        try {
+            single.train(reviews, List.of());
+            parallel.train(reviews, List.of());
+
+            double singleRmse = single.rmseOnReviews(reviews);
+            double parallelRmse = parallel.rmseOnReviews(reviews);
+            assertTrue(singleRmse < 1.0, "single-threaded RMSE " + singleRmse);
+            assertEquals(singleRmse, parallelRmse, 0.05 * singleRmse);
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    private static final int USERS = 400;
+    private static final int DISHES = 60;
+
+    /**
+     * 400 users rating 50 of 60 dishes each (20,000 reviews, enough for four
+     * SGD workers), drawn from user and dish biases plus noise.
+     */
+    private static List<Review> syntheticReviews() {
+        Random rnd = new Random(7);
+        double[] dishBias = new double[DISHES + 1];
+        for (int d = 1; d <= DISHES; d++) dishBias[d] = rnd.nextGaussian();
+        List<Review> reviews = new ArrayList<>();
+        for (long u = 1; u <= USERS; u++) {
+            User user = new User();
+            user.setId(u);
+            double userBias = 0.5 * rnd.nextGaussian();
+            for (long d = 1; d <= 50; d++) {
+                Dish dish = new Dish();
+                dish.setId(1 + (u + d) % DISHES);
+                double score = 3 + userBias + dishBias[dish.getId().intValue()] + 0.3 * rnd.nextGaussian();
+                Review review = new Review();
+                review.setUser(user);
+                review.setDish(dish);
+                review.setRating((int) Math.max(1, Math.min(5, Math.round(score))));
+                reviews.add(review);
+            }
+        }
+        return reviews;
+    }
+
+    private static List<Review> reviews() {
+        List<Review> reviews = new ArrayList<>();
+        for (long u = 1; u <= 3; u++) {
+            for (long d = 1; d <= 2; d++) {
+                User user = new User();
+                user.setId(u);
+                Dish dish = new Dish();
+                dish.setId(d);
+                Review review = new Review();
+                review.setUser(user);
+                review.setDish(dish);
+                review.setRating((int) ((u + d) % 5) + 1);
+                reviews.add(review);
+            }
+        }
+        return reviews;
+    }
+}
@@ -0,0 +1,178 @@
+package com.exampleepam.restaurant.forecast;
+
+import com.exampleepam.restaurant.dto.forecast.DishForecastDto;
+import com.exampleepam.restaurant.dto.forecast.RecipeLineDto;
+import com.exampleepam.restaurant.entity.Category;
+import com.exampleepam.restaurant.entity.Dish;
+import com.exampleepam.restaurant.entity.DishForecast;
+import com.exampleepam.restaurant.entity.Ingredient;
+import com.exampleepam.restaurant.entity.IngredientForecast;
+import com.exampleepam.restaurant.entity.MeasureUnit;
+import com.exampleepam.restaurant.repository.DishForecastRepository;
+import com.exampleepam.restaurant.repository.DishRepository;
+import com.exampleepam.restaurant.repository.IngredientForecastRepository;
+import com.exampleepam.restaurant.repository.IngredientRepository;
+import com.exampleepam.restaurant.service.DishForecastService;
+import com.exampleepam.restaurant.service.IngredientForecastService;
+import com.exampleepam.restaurant.service.forecast.BillOfMaterials;
+import com.exampleepam.restaurant.service.forecast.ForecastResultStore;
+import com.exampleepam.restaurant.service.forecast.MonthlyForecaster;
+import com.exampleepam.restaurant.service.forecast.MonthlyResult;
+import com.exampleepam.restaurant.service.forecast.RecipeMatrix;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({MonthlyForecaster.class, IngredientForecastService.class, ForecastResultStore.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ForecastPersistenceTest {
+
+    private static final String MODEL_NAME = "holt";
+    private static final YearMonth MONTH_ONE = YearMonth.of(2023, 1);
+    private static final YearMonth MONTH_TWO = YearMonth.of(2023, 2);
+    private static final int HISTORY_DAYS = 7;
+
+    @Autowired
+    private MonthlyForecaster monthlyForecaster;
+    @Autowired
+    private IngredientForecastService ingredientForecastService;
+    @Autowired
+    private ForecastResultStore resultStore;
+    @Autowired
+    private DishRepository dishRepository;
+    @Autowired
+    private IngredientRepository ingredientRepository;
+    @Autowired
+    private DishForecastRepository dishForecastRepository;
+    @Autowired
+    private IngredientForecastRepository ingredientForecastRepository;
+    @MockBean
+    private DishForecastService dishForecastService;
+    @MockBean
+    private BillOfMaterials billOfMaterials;
+
+    @AfterEach
+    void clear() {
+        dishForecastRepository.deleteAllInBatch();
+        ingredientForecastRepository.deleteAllInBatch();
+        dishRepository.deleteAllInBatch();
+        ingredientRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void dishPersistReplacesTodaysRowsOfGivenDishesOnly() {
+        LocalDate today = LocalDate.now();
+        Dish refreshed = dishRepository.save(dish("Soup"));
+        Dish other = dishRepository.save(dish("Salad"));
+        DishForecast older = dishForecastRepository.save(dishRow(refreshed, 3, today.minusDays(1)));
+        DishForecast untouched = dishForecastRepository.save(dishRow(other, 4, today));
+
+        monthlyForecaster.persist(Map.of(refreshed, monthly(5, 6)));
+        monthlyForecaster.persist(Map.of(refreshed, monthly(7, 8)));
+
+        List<DishForecast> rows = dishForecastRepository.findAll();
+        assertEquals(4, rows.size());
+        assertEquals(List.of(7, 8), rows.stream()
+                .filter(r -> r.getDish().getId().equals(refreshed.getId()) && today.equals(r.getGeneratedAt()))
+                .sorted((a, b) -> a.getDate().compareTo(b.getDate()))
+                .map(DishForecast::getQuantity)
+                .toList());
+        assertTrue(rows.stream().anyMatch(r -> r.getId().equals(older.getId()) && r.getQuantity() == 3));
+        assertTrue(rows.stream().anyMatch(r -> r.getId().equals(untouched.getId()) && r.getQuantity() == 4));
+    }
+
+    @Test
+    void partialIngredientRefreshReplacesTodaysRowsOfUsedIngredientsOnly() {
+        LocalDate today = LocalDate.now();
+        Dish dish = dishRepository.save(dish("Pizza"));
+        Ingredient used = ingredientRepository.save(ingredient("Cheese"));
+        Ingredient unused = ingredientRepository.save(ingredient("Basil"));
+        IngredientForecast older = ingredientForecastRepository.save(ingredientRow(used, 3, today.minusDays(1)));
+        IngredientForecast untouched = ingredientForecastRepository.save(ingredientRow(unused, 4, today));
+        Mockito.when(billOfMaterials.current()).thenReturn(RecipeMatrix.of(List.of(
+                new RecipeLineDto(dish.getId(), Category.PIZZA, used.getId(), used.getName(), MeasureUnit.GRAMS, 2))));
+        // a completed full refresh, so partial ingredient totals are published
+        resultStore.replaceIngredients(MODEL_NAME, List.of(), Map.of());
+
+        resultStore.putDishes(MODEL_NAME, List.of(stored(dish.getId(), 5, 6)));
+        ingredientForecastService.refreshForDishes(Set.of(dish.getId()), MODEL_NAME, HISTORY_DAYS);
+        resultStore.putDishes(MODEL_NAME, List.of(stored(dish.getId(), 7, 8)));
+        ingredientForecastService.refreshForDishes(Set.of(dish.getId()), MODEL_NAME, HISTORY_DAYS);
+
+        List<IngredientForecast> rows = ingredientForecastRepository.findAll();
+        assertEquals(4, rows.size());
+        assertEquals(List.of(14.0, 16.0), rows.stream()
+                .filter(r -> r.getIngredient().getId().equals(used.getId()) && today.equals(r.getGeneratedAt()))
+                .sorted((a, b) -> a.getDate().compareTo(b.getDate()))
+                .map(IngredientForecast::getQuantity)
+                .toList());
+        assertTrue(rows.stream().anyMatch(r -> r.getId().equals(older.getId()) && r.getQuantity() == 3));
+        assertTrue(rows.stream().anyMatch(r -> r.getId().equals(untouched.getId()) && r.getQuantity() == 4));
+    }
+
+    private static MonthlyResult monthly(int first, int second) {
+        return new MonthlyResult(null, Map.of(MONTH_ONE, first, MONTH_TWO, second), List.of(), null,
+                false, false, false);
+    }
+
+    private static ForecastResultStore.StoredDish stored(long dishId, int first, int second) {
+        Map<String, List<String>> labels = Map.of("monthly", List.of(MONTH_ONE.toString(), MONTH_TWO.toString()));
+        Map<String, List<Integer>> actual = Map.of("monthly", List.of(0, 0));
+        Map<String, List<Integer>> forecast = Map.of("monthly", List.of(first, second));
+        DishForecastDto dto = new DishForecastDto(dishId, "Pizza", null, labels, actual, forecast,
+                false, false, false);
+        return new ForecastResultStore.StoredDish(dto, Category.PIZZA, null);
+    }
+
+    private static Dish dish(String name) {
+        Dish dish = new Dish();
+        dish.setName(name);
+        dish.setPrice(BigDecimal.TEN);
+        return dish;
+    }
+
+    private static Ingredient ingredient(String name) {
+        Ingredient ingredient = new Ingredient();
+        ingredient.setName(name);
+        ingredient.setUnit(MeasureUnit.GRAMS);
+        return ingredient;
+    }
+
+    private static DishForecast dishRow(Dish dish, int quantity, LocalDate generatedAt) {
+        DishForecast row = new DishForecast();
+        row.setDish(dish);
+        row.setDate(MONTH_ONE.atDay(1));
+        row.setQuantity(quantity);
+        row.setGeneratedAt(generatedAt);
+        return row;
+    }
+
+    private static IngredientForecast ingredientRow(Ingredient ingredient, double quantity, LocalDate generatedAt) {
+        IngredientForecast row = new IngredientForecast();
+        row.setIngredient(ingredient);
+        row.setDate(MONTH_ONE.atDay(1));
+        row.setQuantity(quantity);
+        row.setGeneratedAt(generatedAt);
+        return row;
+    }
+}
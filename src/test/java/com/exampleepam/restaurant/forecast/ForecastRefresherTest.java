@@ -0,0 +1,32 @@
+package com.exampleepam.restaurant.forecast;
+
+import com.exampleepam.restaurant.service.ForecastRefresher;
+import com.exampleepam.restaurant.service.ForecastScheduler;
+import com.exampleepam.restaurant.service.forecast.OrderCompletedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class ForecastRefresherTest {
+
+    @Test
+    void burstOfCompletionsIsRefreshedOnce() {
+        ForecastScheduler scheduler = mock(ForecastScheduler.class);
+        ForecastRefresher refresher = new ForecastRefresher(scheduler, 200);
+
+        refresher.onOrderCompleted(new OrderCompletedEvent(1, Set.of(10L, 11L)));
+        refresher.onOrderCompleted(new OrderCompletedEvent(2, Set.of(11L, 12L)));
+        refresher.onOrderCompleted(new OrderCompletedEvent(3, Set.of(13L)));
+
+        verify(scheduler, timeout(2000)).refreshDishes(eq(Set.of(10L, 11L, 12L, 13L)), anyInt());
+        verify(scheduler, after(400).times(1)).refreshDishes(anyCollection(), anyInt());
+    }
+}
@@ -0,0 +1,115 @@
+package com.exampleepam.restaurant.forecast;
+
+import com.exampleepam.restaurant.dto.forecast.DishForecastDto;
+import com.exampleepam.restaurant.dto.forecast.IngredientForecastDto;
+import com.exampleepam.restaurant.entity.Category;
+import com.exampleepam.restaurant.entity.MeasureUnit;
+import com.exampleepam.restaurant.service.forecast.ForecastEvaluator;
+import com.exampleepam.restaurant.service.forecast.ForecastResultStore;
+import com.exampleepam.restaurant.service.forecast.ForecastResultStore.StoredDish;
+import com.exampleepam.restaurant.service.forecast.MonthlyResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ForecastResultStoreTest {
+
+    private static final Instant NOW = Instant.parse("2024-05-01T02:00:00Z");
+    private static final String MODEL = "holt";
+
+    @Test
+    void filtersAndPagesStoredDishes() {
+        ForecastResultStore store = new ForecastResultStore(Duration.ofHours(25), Clock.fixed(NOW, ZoneOffset.UTC));
+        store.replaceDishes(MODEL, List.of(
+                new StoredDish(dish(1, "Margherita"), Category.PIZZA, null),
+                new StoredDish(dish(2, "Pepperoni"), Category.PIZZA, null),
+                new StoredDish(dish(3, "Cola"), Category.DRINKS, null)));
+
+        Page<DishForecastDto> pizzas = store.findDishes(MODEL, null, Category.PIZZA, PageRequest.of(0, 1));
+        assertEquals(2, pizzas.getTotalElements());
+        assertEquals("Margherita", pizzas.getContent().get(0).getName());
+        assertEquals(List.of(3L), store.findDishes(MODEL, "co", null, Pageable.unpaged())
+                .map(DishForecastDto::getId).getContent());
+
+        store.replaceDishes(MODEL, List.of(new StoredDish(dish(3, "Cola"), Category.DRINKS, null)));
+        assertEquals(1, store.findDishes(MODEL, null, null, Pageable.unpaged()).getTotalElements());
+    }
+
+    @Test
+    void partialIngredientUpdateKeepsOtherIngredientsAndFreshness() {
+        MutableClock clock = new MutableClock(NOW);
+        ForecastResultStore store = new ForecastResultStore(Duration.ofHours(25), clock);
+        assertFalse(store.isFresh(MODEL));
+
+        store.replaceIngredients(MODEL, List.of(ingredient(1, "Cheese"), ingredient(2, "Flour")),
+                Map.of(Category.PIZZA, List.of(ingredient(1, "Cheese"), ingredient(2, "Flour"))));
+        assertTrue(store.isFresh(MODEL));
+
+        store.putIngredients(MODEL, List.of(1L), List.of(ingredient(1, "Cheese")), Map.of());
+        assertEquals(2, store.findIngredients(MODEL, null, null, Pageable.unpaged()).getTotalElements());
+        assertEquals(List.of(2L), store.findIngredients(MODEL, null, Category.PIZZA, Pageable.unpaged())
+                .map(IngredientForecastDto::getId).getContent());
+
+        clock.instant = NOW.plus(Duration.ofHours(26));
+        assertFalse(store.isFresh(MODEL));
+        assertFalse(store.isFresh("arima"));
+    }
+
+    @Test
+    void publishesDishDetailsAndMetricsPerModel() {
+        ForecastResultStore store = new ForecastResultStore(Duration.ofHours(25), Clock.fixed(NOW, ZoneOffset.UTC));
+        MonthlyResult first = new MonthlyResult(null, Map.of(), List.of(1, 2), null, false, false, false);
+        MonthlyResult second = new MonthlyResult(null, Map.of(), List.of(3), null, true, false, false);
+        store.putDishes(MODEL, List.of(new StoredDish(dish(1, "Soup"), Category.SOUPS, first)));
+        store.putMetrics(MODEL, new ForecastEvaluator.Metrics(1.5, 2.0));
+        store.putMetrics("arima", new ForecastEvaluator.Metrics(3.0, 4.0));
+
+        store.putDishes(MODEL, List.of(new StoredDish(dish(1, "Soup"), Category.SOUPS, second)));
+
+        assertSame(second, store.findDish(MODEL, 1).orElseThrow().monthly());
+        assertTrue(store.findDish("arima", 1).isEmpty());
+        assertEquals(List.of("arima", MODEL), List.copyOf(store.metrics().keySet()));
+        assertEquals(1.5, store.metrics().get(MODEL).mape());
+    }
+
+    private static DishForecastDto dish(long id, String name) {
+        return new DishForecastDto(id, name, null, Map.of(), Map.of(), Map.of(), false, false, false);
+    }
+
+    private static IngredientForecastDto ingredient(long id, String name) {
+        return new IngredientForecastDto(id, name, MeasureUnit.GRAMS, Map.of(), Map.of(), Map.of(), false, false, false);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.exampleepam.restaurant.forecast;
+
+import com.exampleepam.restaurant.service.DishForecastService;
+import com.exampleepam.restaurant.service.ForecastScheduler;
+import com.exampleepam.restaurant.service.IngredientForecastService;
+import com.exampleepam.restaurant.service.forecast.DemandRollupStore;
+import com.exampleepam.restaurant.service.forecast.ForecastModel;
+import com.exampleepam.restaurant.service.forecast.ForecastResultStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ForecastSchedulerTest {
+
+    private static final String MODEL_NAME = "holt";
+
+    private final DishForecastService dishForecastService = mock(DishForecastService.class);
+    private final IngredientForecastService ingredientForecastService = mock(IngredientForecastService.class);
+    private final ForecastResultStore resultStore = new ForecastResultStore(Duration.ofHours(25));
+
+    @Test
+    void staleModelIsRefreshedInBackground() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        when(dishForecastService.getDishForecasts(anyInt(), isNull(), isNull(), eq(MODEL_NAME), any(), anyBoolean()))
+                .thenAnswer(inv -> {
+                    release.await(2, TimeUnit.SECONDS);
+                    return Page.empty();
+                });
+        ForecastScheduler scheduler = scheduler(Duration.ofMinutes(15));
+
+        // returns while the refit is still blocked
+        assertTrue(scheduler.refreshIfStale(MODEL_NAME));
+        assertTrue(scheduler.refreshIfStale(MODEL_NAME));
+        release.countDown();
+
+        verify(ingredientForecastService, timeout(2000)).publishFromDishForecasts(eq(MODEL_NAME), anyList(), eq(true));
+        verify(dishForecastService, after(200).times(1))
+                .getDishForecasts(anyInt(), isNull(), isNull(), eq(MODEL_NAME), any(), anyBoolean());
+    }
+
+    @Test
+    void failedRefreshIsNotRetriedByPageViewsWithinRetryInterval() {
+        when(dishForecastService.getDishForecasts(anyInt(), isNull(), isNull(), eq(MODEL_NAME), any(), anyBoolean()))
+                .thenThrow(new IllegalStateException("fit failed"));
+        ForecastScheduler scheduler = scheduler(Duration.ofMinutes(15));
+
+        assertTrue(scheduler.refreshIfStale(MODEL_NAME));
+        verify(dishForecastService, timeout(2000))
+                .getDishForecasts(anyInt(), isNull(), isNull(), eq(MODEL_NAME), any(), anyBoolean());
+        verify(dishForecastService, after(200).times(1))
+                .getDishForecasts(anyInt(), isNull(), isNull(), eq(MODEL_NAME), any(), anyBoolean());
+
+        assertFalse(scheduler.refreshIfStale(MODEL_NAME));
+        verify(dishForecastService, after(200).times(1))
+                .getDishForecasts(anyInt(), isNull(), isNull(), eq(MODEL_NAME), any(), anyBoolean());
+    }
+
+    @Test
+    void unknownModelIsNotRefreshed() {
+        assertFalse(scheduler(Duration.ofMinutes(15)).refreshIfStale("unknown"));
+    }
+
+    private ForecastScheduler scheduler(Duration retryInterval) {
+        ForecastModel model = mock(ForecastModel.class);
+        when(model.getName()).thenReturn(MODEL_NAME);
+        return new ForecastScheduler(dishForecastService, ingredientForecastService, List.of(model),
+                mock(DemandRollupStore.class), resultStore, retryInterval);
+    }
+}
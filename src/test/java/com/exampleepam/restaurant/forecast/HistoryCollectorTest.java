@@ -1,10 +1,8 @@
 package com.exampleepam.restaurant.forecast;
 
-import com.exampleepam.restaurant.entity.Dish;
-import com.exampleepam.restaurant.entity.Order;
-import com.exampleepam.restaurant.entity.OrderItem;
-import com.exampleepam.restaurant.entity.Status;
-import com.exampleepam.restaurant.repository.OrderRepository;
+import com.exampleepam.restaurant.entity.DishDemandRollup;
+import com.exampleepam.restaurant.entity.RollupGrain;
+import com.exampleepam.restaurant.repository.DishDemandRollupRepository;
 import com.exampleepam.restaurant.service.forecast.HistoryCollector;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -12,7 +10,6 @@ import org.mockito.Mockito;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
-import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -21,43 +18,56 @@ public class HistoryCollectorTest {
 
     @Test
     void aggregatesHourlyDailyAndMonthlyTotals() {
-        OrderRepository repo = Mockito.mock(OrderRepository.class);
-        HistoryCollector collector = new HistoryCollector(repo);
+        DishDemandRollupRepository repo = Mockito.mock(DishDemandRollupRepository.class);
+        HistoryCollector collector = new HistoryCollector(repo, 90);
 
-        Dish dish = new Dish();
-        dish.setId(1L);
+        Mockito.when(repo.findByBucketStartGreaterThanEqual(Mockito.any()))
+                .thenReturn(List.of(
+                        new DishDemandRollup(1L, RollupGrain.HOUR, LocalDateTime.of(2023,1,1,10,0), 2),
+                        new DishDemandRollup(1L, RollupGrain.HOUR, LocalDateTime.of(2023,1,1,12,0), 3),
+                        new DishDemandRollup(1L, RollupGrain.HOUR, LocalDateTime.of(2023,2,2,9,0), 5),
+                        new DishDemandRollup(1L, RollupGrain.DAY, LocalDateTime.of(2023,1,1,0,0), 5),
+                        new DishDemandRollup(1L, RollupGrain.DAY, LocalDateTime.of(2023,2,2,0,0), 5),
+                        new DishDemandRollup(1L, RollupGrain.MONTH, LocalDateTime.of(2023,1,1,0,0), 5),
+                        new DishDemandRollup(1L, RollupGrain.MONTH, LocalDateTime.of(2023,2,1,0,0), 5),
+                        new DishDemandRollup(1L, RollupGrain.DAY, LocalDateTime.of(2022,11,30,0,0), 7)));
 
-        Order o1 = new Order();
-        o1.setStatus(Status.COMPLETED);
-        o1.setCreationDateTime(LocalDateTime.of(2023,1,1,10,0));
-        o1.setOrderItems(new ArrayList<>());
-        o1.addOrderItem(new OrderItem(dish,2));
+        HistoryCollector.History history = collector.collect(LocalDateTime.of(2022,12,1,0,0));
 
-        Order o2 = new Order();
-        o2.setStatus(Status.COMPLETED);
-        o2.setCreationDateTime(LocalDateTime.of(2023,1,1,12,0));
-        o2.setOrderItems(new ArrayList<>());
-        o2.addOrderItem(new OrderItem(dish,3));
+        int dish = history.dishIndex(1L);
+        assertEquals(2, history.hourly(dish, LocalDate.of(2023,1,1), 10));
+        assertEquals(3, history.hourly(dish, LocalDate.of(2023,1,1), 12));
+        assertEquals(7, history.hourlySum(dish, LocalDate.of(2023,1,1), LocalDate.of(2023,2,3), 9)
+                + history.hourlySum(dish, LocalDate.of(2023,1,1), LocalDate.of(2023,2,3), 10));
 
-        Order o3 = new Order();
-        o3.setStatus(Status.COMPLETED);
-        o3.setCreationDateTime(LocalDateTime.of(2023,2,2,9,0));
-        o3.setOrderItems(new ArrayList<>());
-        o3.addOrderItem(new OrderItem(dish,5));
+        assertEquals(5, history.daily(dish, LocalDate.of(2023,1,1)));
+        assertEquals(10, history.dailySum(dish, LocalDate.of(2022,12,1), LocalDate.of(2023,3,1)));
+        assertEquals(5, history.monthly(dish, YearMonth.of(2023,1)));
+        assertEquals(5, history.monthly(dish, YearMonth.of(2023,2)));
+        assertEquals(5, history.globalMonthly(YearMonth.of(2023,1)));
+        assertEquals(5, history.globalMonthly(YearMonth.of(2023,2)));
+        assertEquals(0, history.daily(dish, LocalDate.of(2022,11,30)));
+        assertTrue(history.hasMonthlyData(1L));
+        assertEquals(-1, history.dishIndex(2L));
+    }
 
-        Mockito.when(repo.findByStatusAndCreationDateTimeAfter(Mockito.eq(Status.COMPLETED), Mockito.any()))
-                .thenReturn(List.of(o1,o2,o3));
+    @Test
+    void keepsHoursOnlyForTrailingWindow() {
+        DishDemandRollupRepository repo = Mockito.mock(DishDemandRollupRepository.class);
+        HistoryCollector collector = new HistoryCollector(repo, 7);
 
-        HistoryCollector.History history = collector.collect(LocalDateTime.of(2022,12,1,0,0));
+        Mockito.when(repo.findByBucketStartGreaterThanEqual(Mockito.any()))
+                .thenReturn(List.of(
+                        new DishDemandRollup(1L, RollupGrain.HOUR, LocalDateTime.of(2023,1,1,10,0), 2),
+                        new DishDemandRollup(1L, RollupGrain.HOUR, LocalDateTime.of(2023,1,20,10,0), 4),
+                        new DishDemandRollup(1L, RollupGrain.DAY, LocalDateTime.of(2023,1,1,0,0), 2),
+                        new DishDemandRollup(1L, RollupGrain.DAY, LocalDateTime.of(2023,1,20,0,0), 4)));
 
-        int[] janHours = history.hourlyTotals.get(1L).get(LocalDate.of(2023,1,1));
-        assertEquals(2, janHours[10]);
-        assertEquals(3, janHours[12]);
+        HistoryCollector.History history = collector.collect(LocalDateTime.of(2022,12,1,0,0));
 
-        assertEquals(5, history.dailyTotals.get(1L).get(LocalDate.of(2023,1,1)));
-        assertEquals(5, history.monthlyTotals.get(1L).get(YearMonth.of(2023,1)));
-        assertEquals(5, history.monthlyTotals.get(1L).get(YearMonth.of(2023,2)));
-        assertEquals(5, history.globalMonthly.get(YearMonth.of(2023,1)));
-        assertEquals(5, history.globalMonthly.get(YearMonth.of(2023,2)));
+        int dish = history.dishIndex(1L);
+        assertEquals(0, history.hourly(dish, LocalDate.of(2023,1,1), 10));
+        assertEquals(4, history.hourly(dish, LocalDate.of(2023,1,20), 10));
+        assertEquals(6, history.dailySum(dish, LocalDate.of(2023,1,1), LocalDate.of(2023,1,20)));
     }
 }
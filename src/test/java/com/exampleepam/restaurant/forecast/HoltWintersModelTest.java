@@ -3,9 +3,13 @@ package com.exampleepam.restaurant.forecast;
 import com.exampleepam.restaurant.service.forecast.ForecastEvaluator;
 import com.exampleepam.restaurant.service.forecast.ForecastResult;
 import com.exampleepam.restaurant.service.forecast.HoltWintersModel;
+import com.exampleepam.restaurant.service.forecast.SeriesBatch;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -26,6 +30,8 @@ public class HoltWintersModelTest {
             120, 140, 130, 150);
     private static final List<Integer> NEGATIVE_HISTORY = List.of(10, 0, 8, 0, 6, 0, 4, 0);
     private static final double TREND_FLOOR = 150.0;
+    private static final int GRID_SERIES = 40;
+    private static final long GRID_SEED = 7L;
 
     @Test
     void holtHandlesEmptyHistory() {
@@ -75,4 +81,168 @@ public class HoltWintersModelTest {
             assertTrue(forecast >= 0);
         }
     }
+
+    @Test
+    void batchMatchesPerSeriesReferenceForMixedLengths() {
+        Random random = new Random(GRID_SEED);
+        for (int period : new int[]{TREND_PERIOD, 6, DEFAULT_PERIOD}) {
+            HoltWintersModel model = new HoltWintersModel(period);
+            List<List<Integer>> series = new ArrayList<>(List.of(TREND_HISTORY, SEASONAL_HISTORY, List.of(),
+                    NEGATIVE_HISTORY, List.of(7), TREND_HISTORY.subList(1, TREND_HISTORY.size())));
+            for (int s = 0; s < GRID_SERIES; s++) {
+                series.add(seasonalSeries(random, 1 + random.nextInt(60)));
+            }
+
+            List<ForecastResult> batch = model.forecastBatch(SeriesBatch.of(series), FORECAST_HORIZON);
+
+            assertEquals(series.size(), batch.size());
+            for (int i = 0; i < series.size(); i++) {
+                Reference expected = reference(series.get(i), period, FORECAST_HORIZON);
+                String message = "series " + i + " period " + period;
+                assertEquals(expected.forecasts(), batch.get(i).getForecasts(), message);
+                assertEquals(expected.alpha(), batch.get(i).getAlpha(), message);
+                assertEquals(expected.beta(), batch.get(i).getBeta(), message);
+                assertEquals(expected.gamma(), batch.get(i).getGamma(), message);
+            }
+        }
+    }
+
+    @Test
+    void holdoutRmseMatchesExhaustiveGrid() {
+        Random random = new Random(GRID_SEED);
+        for (int period : new int[]{DEFAULT_PERIOD, 6}) {
+            HoltWintersModel model = new HoltWintersModel(period);
+            for (int s = 0; s < GRID_SERIES; s++) {
+                List<Integer> history = seasonalSeries(random, 36 + random.nextInt(25));
+                ForecastResult result = model.forecast(history, FORECAST_HORIZON);
+                double grid = gridHoldoutRmse(history, period);
+                assertTrue(result.getRmse() <= grid, "series " + s + " period " + period);
+            }
+        }
+    }
+
+    private static List<Integer> seasonalSeries(Random random, int months) {
+        double base = 40 + random.nextInt(60);
+        double trend = random.nextGaussian();
+        double amplitude = 5 + random.nextInt(20);
+        List<Integer> history = new ArrayList<>(months);
+        for (int i = 0; i < months; i++) {
+            double value = base + trend * i + amplitude * Math.sin(2 * Math.PI * i / 12) + random.nextGaussian() * 5;
+            history.add(random.nextInt(12) == 0 ? 0 : (int) Math.max(0, Math.round(value)));
+        }
+        return history;
+    }
+
+    private record Reference(List<Double> forecasts, double alpha, double beta, double gamma) {}
+
+    /**
+     * Per-series reference: a plain scan over all 1,000 lattice points, one
+     * sequential fit at a time, followed by the fit of the whole series.
+     */
+    private static Reference reference(List<Integer> y, int period, int periods) {
+        int n = y.size();
+        if (n == 0) {
+            return new Reference(List.of(), 0, 0, 0);
+        }
+        if (n < period + 2) {
+            return new Reference(Collections.nCopies(periods, (double) y.get(n - 1)), 0, 0, 0);
+        }
+        int holdout = Math.min(period, n - period);
+        int trainLen = n - holdout;
+        double[] best = {0.3, 0.1, 0.1};
+        if (trainLen >= 2 * period && nonZero(y, trainLen) > 0) {
+            double bestSse = Double.POSITIVE_INFINITY;
+            for (int ia = 1; ia <= 10; ia++) {
+                for (int ib = 1; ib <= 10; ib++) {
+                    for (int ig = 1; ig <= 10; ig++) {
+                        double sse = holdoutSse(y, period, trainLen, holdout, ia / 10.0, ib / 10.0, ig / 10.0);
+                        if (sse < bestSse) {
+                            bestSse = sse;
+                            best = new double[]{ia / 10.0, ib / 10.0, ig / 10.0};
+                        }
+                    }
+                }
+            }
+        }
+        double[] state = smooth(y, period, n, best[0], best[1], best[2]);
+        List<Double> forecasts = new ArrayList<>(periods);
+        for (int h = 1; h <= periods; h++) {
+            forecasts.add(Math.max(0, state[0] + h * state[1] + state[2 + (n + h - 1) % period]));
+        }
+        return new Reference(forecasts, best[0], best[1], best[2]);
+    }
+
+    /** Hold-out RMSE of the best point of a plain scan over all 1,000 lattice points. */
+    private static double gridHoldoutRmse(List<Integer> y, int period) {
+        int n = y.size();
+        int holdout = Math.min(period, n - period);
+        int trainLen = n - holdout;
+        double best = Double.POSITIVE_INFINITY;
+        for (int ia = 1; ia <= 10; ia++) {
+            for (int ib = 1; ib <= 10; ib++) {
+                for (int ig = 1; ig <= 10; ig++) {
+                    best = Math.min(best, holdoutSse(y, period, trainLen, holdout, ia / 10.0, ib / 10.0, ig / 10.0));
+                }
+            }
+        }
+        int count = nonZero(y, trainLen);
+        return count == 0 ? Double.POSITIVE_INFINITY : Math.sqrt(best / count);
+    }
+
+    private static int nonZero(List<Integer> y, int from) {
+        int count = 0;
+        for (int t = from; t < y.size(); t++) {
+            if (y.get(t) != 0) count++;
+        }
+        return count;
+    }
+
+    private static double holdoutSse(List<Integer> y, int period, int trainLen, int holdout,
+                                     double a, double b, double g) {
+        double[] state = smooth(y, period, trainLen, a, b, g);
+        double sse = 0;
+        for (int h = 1; h <= holdout; h++) {
+            int actual = y.get(trainLen + h - 1);
+            if (actual != 0) {
+                double diff = actual - Math.max(0, state[0] + h * state[1] + state[2 + (trainLen + h - 1) % period]);
+                sse += diff * diff;
+            }
+        }
+        return sse;
+    }
+
+    /** Level, trend and season after smoothing {@code y[0..n)}, in that order. */
+    private static double[] smooth(List<Integer> y, int period, int n, double a, double b, double g) {
+        double level = 0;
+        for (int i = 0; i < period; i++) {
+            level += y.get(i);
+        }
+        level /= period;
+        double trend;
+        if (n >= 2 * period) {
+            double secondAvg = 0;
+            for (int i = period; i < 2 * period; i++) {
+                secondAvg += y.get(i);
+            }
+            trend = (secondAvg / period - level) / period;
+        } else {
+            trend = n > 1 ? y.get(1) - y.get(0) : 0.0;
+        }
+        double[] season = new double[period];
+        for (int i = 0; i < period; i++) {
+            season[i] = y.get(i) - level;
+        }
+        for (int t = 0; t < n; t++) {
+            int si = t % period;
+            double prevLevel = level;
+            level = a * (y.get(t) - season[si]) + (1 - a) * (level + trend);
+            trend = b * (level - prevLevel) + (1 - b) * trend;
+            season[si] = g * (y.get(t) - level) + (1 - g) * season[si];
+        }
+        double[] state = new double[2 + period];
+        state[0] = level;
+        state[1] = trend;
+        System.arraycopy(season, 0, state, 2, period);
+        return state;
+    }
 }
@@ -2,26 +2,29 @@ package com.exampleepam.restaurant.forecast;
 
 import com.exampleepam.restaurant.dto.forecast.DishForecastDto;
 import com.exampleepam.restaurant.dto.forecast.IngredientForecastDto;
-import com.exampleepam.restaurant.entity.Dish;
-import com.exampleepam.restaurant.entity.DishIngredient;
+import com.exampleepam.restaurant.dto.forecast.RecipeLineDto;
+import com.exampleepam.restaurant.entity.Category;
 import com.exampleepam.restaurant.entity.Ingredient;
 import com.exampleepam.restaurant.entity.MeasureUnit;
-import com.exampleepam.restaurant.repository.DishRepository;
 import com.exampleepam.restaurant.repository.IngredientForecastRepository;
 import com.exampleepam.restaurant.repository.IngredientRepository;
 import com.exampleepam.restaurant.service.DishForecastService;
 import com.exampleepam.restaurant.service.IngredientForecastService;
+import com.exampleepam.restaurant.service.forecast.BillOfMaterials;
+import com.exampleepam.restaurant.service.forecast.ForecastResultStore;
+import com.exampleepam.restaurant.service.forecast.RecipeMatrix;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -45,45 +48,24 @@ public class IngredientForecastServiceTest {
     @Test
     void aggregatesMonthlyActualUsage() {
         DishForecastService dishForecastService = Mockito.mock(DishForecastService.class);
-        DishRepository dishRepository = Mockito.mock(DishRepository.class);
+        BillOfMaterials billOfMaterials = Mockito.mock(BillOfMaterials.class);
         IngredientRepository ingredientRepository = Mockito.mock(IngredientRepository.class);
         IngredientForecastRepository forecastRepository = Mockito.mock(IngredientForecastRepository.class);
 
-        Ingredient ing = new Ingredient();
-        ing.setId(INGREDIENT_ID);
-        ing.setName(INGREDIENT_NAME);
-        ing.setUnit(MeasureUnit.GRAMS);
-
-        Dish dish = new Dish();
-        dish.setId(DISH_ID);
-        dish.setName(DISH_NAME);
-        DishIngredient di = new DishIngredient();
-        di.setDish(dish);
-        di.setIngredient(ing);
-        di.setQuantity(INGREDIENT_QUANTITY);
-        dish.getIngredients().add(di);
-
-        Mockito.when(dishRepository.findAll()).thenReturn(List.of(dish));
-        Mockito.when(ingredientRepository.findById(INGREDIENT_ID)).thenReturn(Optional.of(ing));
+        Mockito.when(billOfMaterials.current()).thenReturn(RecipeMatrix.of(List.of(new RecipeLineDto(
+                DISH_ID, Category.PIZZA, INGREDIENT_ID, INGREDIENT_NAME, MeasureUnit.GRAMS, INGREDIENT_QUANTITY))));
 
         Map<String, List<String>> labels = Map.of(MONTHLY_SCALE, List.of(MONTH_ONE, MONTH_TWO));
         Map<String, List<Integer>> actual = new HashMap<>();
         actual.put(MONTHLY_SCALE, new ArrayList<>(List.of(MONTH_ZERO, MONTH_VALUE)));
         Map<String, List<Integer>> forecast = Map.of(MONTHLY_SCALE, List.of(FORECAST_ONE, FORECAST_TWO));
         DishForecastDto df = new DishForecastDto(DISH_ID, DISH_NAME, null, labels, actual, forecast, false, false, false);
-        Mockito.when(dishForecastService.getDishForecasts(
-                Mockito.anyInt(),
-                Mockito.isNull(),
-                Mockito.isNull(),
-                Mockito.anyString(),
-                Mockito.eq(Pageable.unpaged()),
-                Mockito.eq(false)))
-                .thenReturn(new PageImpl<>(List.of(df)));
 
         IngredientForecastService service = new IngredientForecastService(
-                dishForecastService, dishRepository, ingredientRepository, forecastRepository);
-        Page<IngredientForecastDto> page = service.getIngredientForecasts(
-                HISTORY_DAYS, null, null, MODEL_NAME, Pageable.unpaged());
+                dishForecastService, billOfMaterials, ingredientRepository, forecastRepository,
+                new ForecastResultStore(Duration.ofHours(25)), Mockito.mock(PlatformTransactionManager.class));
+        service.publishFromDishForecasts(MODEL_NAME, List.of(df), false);
+        Page<IngredientForecastDto> page = service.getStoredForecasts(null, null, MODEL_NAME, Pageable.unpaged());
         IngredientForecastDto dto = page.getContent().get(0);
         List<Integer> monthly = dto.getActualData().get(MONTHLY_SCALE);
         List<Integer> monthlyForecast = dto.getForecastData().get(MONTHLY_SCALE);
@@ -94,5 +76,88 @@ public class IngredientForecastServiceTest {
         assertEquals(FORECAST_TWO * INGREDIENT_QUANTITY, monthlyForecast.get(1));
         assertTrue(dto.isSinglePoint());
         assertFalse(dto.isNoData());
+
+        // served from the published snapshot, filtered by the category of the contributing dishes
+        assertEquals(1, service.getStoredForecasts(null, Category.PIZZA, MODEL_NAME, Pageable.unpaged())
+                .getTotalElements());
+        assertTrue(service.getStoredForecasts(null, Category.DRINKS, MODEL_NAME, Pageable.unpaged()).isEmpty());
+        Mockito.verifyNoInteractions(dishForecastService, forecastRepository);
+    }
+
+    @Test
+    void partialRefreshFitsOnlyOrderedDishesAndTotalsFromStoredSnapshot() {
+        DishForecastService dishForecastService = Mockito.mock(DishForecastService.class);
+        BillOfMaterials billOfMaterials = Mockito.mock(BillOfMaterials.class);
+        IngredientRepository ingredientRepository = Mockito.mock(IngredientRepository.class);
+        IngredientForecastRepository forecastRepository = Mockito.mock(IngredientForecastRepository.class);
+        PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        ForecastResultStore store = new ForecastResultStore(Duration.ofHours(25));
+        long otherDishId = DISH_ID + 1;
+
+        Ingredient ing = new Ingredient();
+        ing.setId(INGREDIENT_ID);
+        ing.setName(INGREDIENT_NAME);
+        ing.setUnit(MeasureUnit.GRAMS);
+        Mockito.when(ingredientRepository.findAllById(Mockito.any())).thenReturn(List.of(ing));
+        Mockito.when(billOfMaterials.current()).thenReturn(RecipeMatrix.of(List.of(
+                new RecipeLineDto(DISH_ID, Category.PIZZA, INGREDIENT_ID, INGREDIENT_NAME, MeasureUnit.GRAMS,
+                        INGREDIENT_QUANTITY),
+                new RecipeLineDto(otherDishId, Category.PIZZA, INGREDIENT_ID, INGREDIENT_NAME, MeasureUnit.GRAMS,
+                        1))));
+
+        // the other dish keeps the forecast of the last full refresh
+        store.replaceDishes(MODEL_NAME, List.of(stored(otherDishId, FORECAST_ONE, FORECAST_ONE)));
+        store.replaceIngredients(MODEL_NAME, List.of(), Map.of());
+        DishForecastDto ordered = dishForecast(DISH_ID, FORECAST_TWO, FORECAST_TWO);
+        Mockito.when(dishForecastService.forecastDishes(Set.of(DISH_ID), MODEL_NAME, HISTORY_DAYS, true))
+                .thenAnswer(inv -> {
+                    store.putDishes(MODEL_NAME, List.of(new ForecastResultStore.StoredDish(ordered, Category.PIZZA,
+                            null)));
+                    return List.of(ordered);
+                });
+
+        IngredientForecastService service = new IngredientForecastService(
+                dishForecastService, billOfMaterials, ingredientRepository, forecastRepository, store,
+                transactionManager);
+        service.refreshForDishes(Set.of(DISH_ID), MODEL_NAME, HISTORY_DAYS);
+
+        Mockito.verify(dishForecastService).forecastDishes(Set.of(DISH_ID), MODEL_NAME, HISTORY_DAYS, true);
+        Mockito.verifyNoMoreInteractions(dishForecastService);
+        IngredientForecastDto dto = service.getStoredForecasts(null, null, MODEL_NAME, Pageable.unpaged())
+                .getContent().get(0);
+        int expected = FORECAST_TWO * INGREDIENT_QUANTITY + FORECAST_ONE;
+        assertEquals(List.of(expected, expected), dto.getForecastData().get(MONTHLY_SCALE));
+        Mockito.verify(forecastRepository).saveAll(Mockito.argThat(rows -> rows.iterator().hasNext()));
+        Mockito.verify(transactionManager).commit(Mockito.any());
+    }
+
+    @Test
+    void partialRefreshBeforeFirstFullRefreshLeavesIngredientsAlone() {
+        DishForecastService dishForecastService = Mockito.mock(DishForecastService.class);
+        BillOfMaterials billOfMaterials = Mockito.mock(BillOfMaterials.class);
+        IngredientForecastRepository forecastRepository = Mockito.mock(IngredientForecastRepository.class);
+        ForecastResultStore store = new ForecastResultStore(Duration.ofHours(25));
+        Mockito.when(dishForecastService.forecastDishes(Set.of(DISH_ID), MODEL_NAME, HISTORY_DAYS, true))
+                .thenReturn(List.of(dishForecast(DISH_ID, FORECAST_TWO, FORECAST_TWO)));
+
+        IngredientForecastService service = new IngredientForecastService(
+                dishForecastService, billOfMaterials, Mockito.mock(IngredientRepository.class), forecastRepository,
+                store, Mockito.mock(PlatformTransactionManager.class));
+        service.refreshForDishes(Set.of(DISH_ID), MODEL_NAME, HISTORY_DAYS);
+
+        Mockito.verify(dishForecastService).forecastDishes(Set.of(DISH_ID), MODEL_NAME, HISTORY_DAYS, true);
+        Mockito.verifyNoInteractions(billOfMaterials, forecastRepository);
+        assertTrue(service.getStoredForecasts(null, null, MODEL_NAME, Pageable.unpaged()).isEmpty());
+    }
+
+    private static ForecastResultStore.StoredDish stored(long dishId, int first, int second) {
+        return new ForecastResultStore.StoredDish(dishForecast(dishId, first, second), Category.PIZZA, null);
+    }
+
+    private static DishForecastDto dishForecast(long dishId, int first, int second) {
+        Map<String, List<String>> labels = Map.of(MONTHLY_SCALE, List.of(MONTH_ONE, MONTH_TWO));
+        Map<String, List<Integer>> actual = Map.of(MONTHLY_SCALE, List.of(MONTH_VALUE, MONTH_VALUE));
+        Map<String, List<Integer>> forecast = Map.of(MONTHLY_SCALE, List.of(first, second));
+        return new DishForecastDto(dishId, DISH_NAME + dishId, null, labels, actual, forecast, false, false, false);
     }
 }
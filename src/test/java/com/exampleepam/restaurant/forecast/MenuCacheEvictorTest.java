@@ -0,0 +1,64 @@
+package com.exampleepam.restaurant.forecast;
+
+import com.exampleepam.restaurant.dto.dish.DishResponseDto;
+import com.exampleepam.restaurant.entity.Category;
+import com.exampleepam.restaurant.entity.paging.Paged;
+import com.exampleepam.restaurant.entity.paging.Paging;
+import com.exampleepam.restaurant.service.MenuCacheEvictor;
+import com.exampleepam.restaurant.service.MenuPageKey;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.data.domain.PageImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class MenuCacheEvictorTest {
+
+    @Test
+    void reviewEvictsOnlyPagesListingTheDish() {
+        CaffeineCacheManager manager = new CaffeineCacheManager("menu");
+        Cache cache = manager.getCache("menu");
+        MenuPageKey withDish = MenuPageKey.of(1, 10, "name", "asc", "all");
+        MenuPageKey withoutDish = MenuPageKey.of(2, 10, "name", "asc", "all");
+        cache.put(withDish, page(1L, 2L));
+        cache.put(withoutDish, page(3L));
+
+        new MenuCacheEvictor(manager).evictDish(2L);
+
+        assertNull(cache.get(withDish));
+        assertNotNull(cache.get(withoutDish));
+    }
+
+    @Test
+    void listingChangeEvictsAffectedCategories() {
+        CaffeineCacheManager manager = new CaffeineCacheManager("menu");
+        Cache cache = manager.getCache("menu");
+        MenuPageKey all = MenuPageKey.of(3, 10, "name", "asc", null);
+        MenuPageKey drinks = MenuPageKey.of(2, 10, "price", "desc", "\"Drinks\"");
+        MenuPageKey desserts = MenuPageKey.of(1, 10, "name", "asc", "desserts");
+        cache.put(all, page(7L));
+        cache.put(drinks, page(8L));
+        cache.put(desserts, page(9L));
+
+        new MenuCacheEvictor(manager).evictListings(1L, Category.DRINKS);
+
+        assertNull(cache.get(all));
+        assertNull(cache.get(drinks));
+        assertNotNull(cache.get(desserts));
+    }
+
+    private static Paged<DishResponseDto> page(long... ids) {
+        List<DishResponseDto> dishes = new ArrayList<>();
+        for (long id : ids) {
+            DishResponseDto dto = new DishResponseDto();
+            dto.setId(id);
+            dishes.add(dto);
+        }
+        return new Paged<>(new PageImpl<>(dishes), Paging.of(1, 1, dishes.size()));
+    }
+}
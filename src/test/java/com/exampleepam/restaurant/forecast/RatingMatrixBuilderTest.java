@@ -0,0 +1,43 @@
+package com.exampleepam.restaurant.forecast;
+
+import com.exampleepam.restaurant.service.recommendation.InteractionLog;
+import com.exampleepam.restaurant.service.recommendation.RatingMatrixBuilder;
+import com.exampleepam.restaurant.service.recommendation.RatingMatrixBuilder.RatingData;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RatingMatrixBuilderTest {
+
+    private static final long REVIEWER = 1L;
+    private static final long BUYER = 2L;
+    private static final long PIZZA = 10L;
+    private static final long SOUP = 20L;
+
+    @Test
+    void reviewsWinOverOrdersAndRepeatedOrdersCountOnce() {
+        InteractionLog interactions = new InteractionLog();
+        interactions.addReview(REVIEWER, PIZZA, 5);
+        interactions.addOrderLine(REVIEWER, PIZZA);
+        interactions.addOrderLine(REVIEWER, SOUP);
+        interactions.addOrderLine(BUYER, SOUP);
+        interactions.addOrderLine(BUYER, SOUP);
+
+        RatingData data = new RatingMatrixBuilder().build(interactions);
+
+        assertEquals(3.0, data.means().get(REVIEWER));
+        assertEquals(Map.of(PIZZA, 2.0, SOUP, -2.0), data.matrix().get(REVIEWER));
+        assertEquals(1.0, data.means().get(BUYER));
+        assertEquals(Map.of(SOUP, 0.0), data.matrix().get(BUYER));
+    }
+
+    @Test
+    void reviewAfterOrderLineIsRejected() {
+        InteractionLog interactions = new InteractionLog();
+        interactions.addOrderLine(BUYER, SOUP);
+
+        assertThrows(IllegalStateException.class, () -> interactions.addReview(BUYER, SOUP, 4));
+    }
+}
@@ -0,0 +1,67 @@
+package com.exampleepam.restaurant.forecast;
+
+import com.exampleepam.restaurant.dto.forecast.RecipeLineDto;
+import com.exampleepam.restaurant.entity.Category;
+import com.exampleepam.restaurant.entity.MeasureUnit;
+import com.exampleepam.restaurant.service.forecast.RecipeMatrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static com.exampleepam.restaurant.service.forecast.RecipeMatrix.ABSENT;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecipeMatrixTest {
+
+    private static final long PIZZA = 10L;
+    private static final long ROLL = 20L;
+    private static final long SALAD = 30L;
+    private static final long CHEESE = 1L;
+    private static final long FLOUR = 2L;
+    private static final long LETTUCE = 3L;
+
+    private static final RecipeMatrix MATRIX = RecipeMatrix.of(List.of(
+            new RecipeLineDto(PIZZA, Category.PIZZA, FLOUR, "Flour", MeasureUnit.GRAMS, 200),
+            new RecipeLineDto(PIZZA, Category.PIZZA, CHEESE, "Cheese", MeasureUnit.GRAMS, 100),
+            new RecipeLineDto(ROLL, Category.ROLLS, CHEESE, "Cheese", MeasureUnit.GRAMS, 50),
+            new RecipeLineDto(SALAD, Category.SALADS, LETTUCE, "Lettuce", MeasureUnit.PIECES, 1)));
+
+    @Test
+    void multipliesSparseRowWithDenseDemand() {
+        int cheese = index(CHEESE);
+        int[] rowOf = {-1, -1, -1};
+        rowOf[MATRIX.dishIndex(PIZZA)] = 0;
+        rowOf[MATRIX.dishIndex(ROLL)] = 1;
+        int[] demand = {
+                2, ABSENT, ABSENT,
+                1, 3, ABSENT};
+        int[] out = new int[3];
+
+        MATRIX.multiplyRow(cheese, rowOf, demand, 3, out);
+        assertArrayEquals(new int[]{250, 150, ABSENT}, out);
+
+        rowOf[MATRIX.dishIndex(ROLL)] = -1;
+        MATRIX.multiplyRow(cheese, rowOf, demand, 3, out);
+        assertArrayEquals(new int[]{200, ABSENT, ABSENT}, out);
+    }
+
+    @Test
+    void indexesDishesAndIngredientsBothWays() {
+        assertEquals(3, MATRIX.ingredientCount());
+        assertEquals("Cheese", MATRIX.ingredientName(index(CHEESE)));
+        assertEquals(Category.ROLLS, MATRIX.category(MATRIX.dishIndex(ROLL)));
+        assertEquals(-1, MATRIX.dishIndex(99L));
+        assertEquals(Set.of(CHEESE, FLOUR), MATRIX.ingredientIdsOf(List.of(PIZZA, 99L)));
+        assertEquals(Set.of(PIZZA, ROLL), MATRIX.dishIdsUsing(Set.of(CHEESE)));
+    }
+
+    private static int index(long ingredientId) {
+        for (int j = 0; j < MATRIX.ingredientCount(); j++) {
+            if (MATRIX.ingredientId(j) == ingredientId) {
+                return j;
+            }
+        }
+        throw new IllegalArgumentException("Unknown ingredient " + ingredientId);
+    }
+}
@@ -0,0 +1,85 @@
+package com.exampleepam.restaurant.forecast;
+
+import com.exampleepam.restaurant.dto.dish.DishResponseDto;
+import com.exampleepam.restaurant.service.recommendation.RecommendationCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecommendationCacheTest {
+
+    private static final Instant NOW = Instant.parse("2024-05-01T12:00:00Z");
+
+    @Test
+    void expiresEntriesAfterTtl() {
+        MutableClock clock = new MutableClock(NOW);
+        RecommendationCache cache = new RecommendationCache(10, Duration.ofMinutes(30), 5, clock);
+        cache.put(1L, List.of(new DishResponseDto()));
+
+        clock.instant = NOW.plus(Duration.ofMinutes(29));
+        assertNotNull(cache.get(1L));
+
+        clock.instant = NOW.plus(Duration.ofMinutes(31));
+        assertNull(cache.get(1L));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedUser() {
+        RecommendationCache cache = new RecommendationCache(2, Duration.ofMinutes(30), 5, Clock.fixed(NOW, ZoneOffset.UTC));
+        cache.put(1L, List.of());
+        cache.put(2L, List.of());
+        cache.get(1L);
+        cache.put(3L, List.of());
+
+        assertNotNull(cache.get(1L));
+        assertNull(cache.get(2L));
+        assertNotNull(cache.get(3L));
+    }
+
+    @Test
+    void dropsListsComputedBeforeAnEviction() {
+        RecommendationCache cache = new RecommendationCache(10, Duration.ofMinutes(30), 5, Clock.fixed(NOW, ZoneOffset.UTC));
+        long before = cache.generation();
+        cache.evict(1L);
+
+        assertFalse(cache.putIfUnchanged(1L, List.of(), before));
+        assertTrue(cache.putIfUnchanged(2L, List.of(), before));
+        assertTrue(cache.putIfUnchanged(1L, List.of(), cache.generation()));
+        assertNotNull(cache.get(1L));
+
+        before = cache.generation();
+        cache.clear();
+        assertFalse(cache.putIfUnchanged(2L, List.of(), before));
+        assertEquals(0, cache.size());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -1,24 +1,33 @@
 package com.exampleepam.restaurant.forecast;
 
 import com.exampleepam.restaurant.dto.dish.DishResponseDto;
+import com.exampleepam.restaurant.dto.order.OrderLineDto;
 import com.exampleepam.restaurant.entity.Dish;
-import com.exampleepam.restaurant.entity.Order;
-import com.exampleepam.restaurant.entity.OrderItem;
 import com.exampleepam.restaurant.entity.Review;
 import com.exampleepam.restaurant.entity.Status;
+import com.exampleepam.restaurant.entity.User;
 import com.exampleepam.restaurant.mapper.DishMapper;
 import com.exampleepam.restaurant.repository.DishRepository;
 import com.exampleepam.restaurant.repository.OrderRepository;
 import com.exampleepam.restaurant.repository.ReviewRepository;
+import com.exampleepam.restaurant.service.DishRatingService;
 import com.exampleepam.restaurant.service.FactorizationService;
 import com.exampleepam.restaurant.service.RecommendationService;
 import com.exampleepam.restaurant.service.recommendation.RatingMatrixBuilder;
 import com.exampleepam.restaurant.service.recommendation.RatingMatrixBuilder.RatingData;
 import com.exampleepam.restaurant.service.recommendation.CollaborativePredictor;
 import com.exampleepam.restaurant.service.recommendation.CategoryFallback;
+import com.exampleepam.restaurant.service.recommendation.InteractionLoader;
+import com.exampleepam.restaurant.service.recommendation.InteractionLog;
+import com.exampleepam.restaurant.service.recommendation.RecommendationCache;
 import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -37,35 +46,68 @@ public class RecommendationServiceTest {
         CollaborativePredictor collaborativePredictor = mock(CollaborativePredictor.class);
         CategoryFallback categoryFallback = mock(CategoryFallback.class);
 
-        RecommendationService service = new RecommendationService(dishRepository, dishMapper, reviewRepository, orderRepository,
-                factorizationService, ratingMatrixBuilder, collaborativePredictor, categoryFallback);
+        RecommendationService service = new RecommendationService(dishRepository, dishMapper,
+                new InteractionLoader(reviewRepository, orderRepository, ratingMatrixBuilder),
+                factorizationService, collaborativePredictor, categoryFallback,
+                new RecommendationCache(100, Duration.ofMinutes(5), 1, Clock.systemUTC()),
+                mock(DishRatingService.class), mock(PlatformTransactionManager.class));
 
         long userId = 1L;
         long dishId = 1L;
         Dish dish = new Dish();
         dish.setId(dishId);
+        User user = new User();
+        user.setId(userId);
         Review review = new Review();
+        review.setUser(user);
         review.setDish(dish);
-        Order order = new Order();
-        OrderItem orderItem = new OrderItem(dish, 1);
-        order.setOrderItems(List.of(orderItem));
+        OrderLineDto orderLine = new OrderLineDto(dishId, userId, LocalDateTime.now(), 1);
 
         RatingData data = new RatingData(Map.of(userId, Map.of()), Map.of());
         when(reviewRepository.findAllWithUserAndDish()).thenReturn(List.of(review));
-        when(orderRepository.findByStatus(Status.COMPLETED)).thenReturn(List.of(order));
-        when(ratingMatrixBuilder.build(anyList(), anyList())).thenReturn(data);
+        when(orderRepository.streamLinesByStatus(Status.COMPLETED)).thenReturn(Stream.of(orderLine));
+        when(ratingMatrixBuilder.build(any(InteractionLog.class))).thenReturn(data);
         when(collaborativePredictor.predict(eq(userId), eq(data))).thenReturn(Map.of(dishId, 4.0));
-        when(factorizationService.isReady()).thenReturn(true);
         when(dishRepository.findAllById(anySet())).thenReturn(List.of(dish));
         DishResponseDto dto = new DishResponseDto();
         dto.setId(dishId);
         when(dishMapper.toDishResponseDtoList(anyList())).thenReturn(List.of(dto));
-        when(reviewRepository.getAverageRatingByDishId(dishId)).thenReturn(0.0);
-        when(reviewRepository.countByDishId(dishId)).thenReturn(0L);
 
+        service.refreshRecommendations();
         List<DishResponseDto> result = service.getRecommendedDishes(userId, 1);
         assertEquals(1, result.size());
         verify(categoryFallback, never()).recommend(anyLong(), anySet(), anyInt());
+
+        // A new interaction drops the cached list; the miss and a request beyond
+        // top-N are scored from the last refresh without reloading interactions
+        service.recordInteraction(userId, dishId, 5.0);
+        assertEquals(result.get(0).getId(), service.getRecommendedDishes(userId, 1).get(0).getId());
+        assertEquals(result.get(0).getId(), service.getRecommendedDishes(userId, 3).get(0).getId());
+        verify(factorizationService).observe(userId, dishId, 5.0);
+        verify(collaborativePredictor, times(3)).predict(eq(userId), eq(data));
+        verify(reviewRepository, times(1)).findAllWithUserAndDish();
+        verify(orderRepository, times(1)).streamLinesByStatus(Status.COMPLETED);
+    }
+
+    @Test
+    void servesFallbackWithoutLoadingBeforeFirstRefresh() {
+        ReviewRepository reviewRepository = mock(ReviewRepository.class);
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        CategoryFallback categoryFallback = mock(CategoryFallback.class);
+        RecommendationCache cache = new RecommendationCache(100, Duration.ofMinutes(5), 2, Clock.systemUTC());
+
+        RecommendationService service = new RecommendationService(mock(DishRepository.class), mock(DishMapper.class),
+                new InteractionLoader(reviewRepository, orderRepository, mock(RatingMatrixBuilder.class)),
+                mock(FactorizationService.class), mock(CollaborativePredictor.class), categoryFallback, cache,
+                mock(DishRatingService.class), mock(PlatformTransactionManager.class));
+
+        long userId = 1L;
+        List<DishResponseDto> fallback = List.of(new DishResponseDto());
+        when(categoryFallback.recommend(userId, Set.of(), 2)).thenReturn(fallback);
+
+        assertEquals(fallback, service.getRecommendedDishes(userId, 2));
+        assertNull(cache.get(userId));
+        verifyNoInteractions(reviewRepository, orderRepository);
     }
 
     @Test
@@ -79,27 +121,66 @@ public class RecommendationServiceTest {
         CollaborativePredictor collaborativePredictor = mock(CollaborativePredictor.class);
         CategoryFallback categoryFallback = mock(CategoryFallback.class);
 
-        RecommendationService service = new RecommendationService(dishRepository, dishMapper, reviewRepository, orderRepository,
-                factorizationService, ratingMatrixBuilder, collaborativePredictor, categoryFallback);
+        RecommendationService service = new RecommendationService(dishRepository, dishMapper,
+                new InteractionLoader(reviewRepository, orderRepository, ratingMatrixBuilder),
+                factorizationService, collaborativePredictor, categoryFallback,
+                new RecommendationCache(100, Duration.ofMinutes(5), 2, Clock.systemUTC()),
+                mock(DishRatingService.class), mock(PlatformTransactionManager.class));
 
         long userId = 1L;
         long dishId = 10L;
         Dish dish = new Dish();
         dish.setId(dishId);
-        Order order = new Order();
-        OrderItem orderItem = new OrderItem(dish, 1);
-        order.setOrderItems(List.of(orderItem));
+        OrderLineDto orderLine = new OrderLineDto(dishId, userId, LocalDateTime.now(), 1);
 
         RatingData data = new RatingData(Map.of(userId, Map.of(dishId, 1.0)), Map.of(dishId, 1.0));
         when(reviewRepository.findAllWithUserAndDish()).thenReturn(List.of());
-        when(orderRepository.findByStatus(Status.COMPLETED)).thenReturn(List.of(order));
-        when(ratingMatrixBuilder.build(anyList(), anyList())).thenReturn(data);
+        when(orderRepository.streamLinesByStatus(Status.COMPLETED)).thenReturn(Stream.of(orderLine));
+        when(ratingMatrixBuilder.build(any(InteractionLog.class))).thenReturn(data);
         when(collaborativePredictor.predict(eq(userId), eq(data))).thenReturn(Map.of());
-        when(factorizationService.isReady()).thenReturn(true);
         List<DishResponseDto> fallback = List.of(new DishResponseDto());
         when(categoryFallback.recommend(eq(userId), anySet(), eq(2))).thenReturn(fallback);
 
+        service.refreshRecommendations();
         List<DishResponseDto> result = service.getRecommendedDishes(userId, 2);
         assertEquals(fallback, result);
     }
+
+    @Test
+    void refreshKeepsEvictionMadeWhileTraining() {
+        DishRepository dishRepository = mock(DishRepository.class);
+        DishMapper dishMapper = mock(DishMapper.class);
+        ReviewRepository reviewRepository = mock(ReviewRepository.class);
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        FactorizationService factorizationService = mock(FactorizationService.class);
+        RatingMatrixBuilder ratingMatrixBuilder = mock(RatingMatrixBuilder.class);
+        CollaborativePredictor collaborativePredictor = mock(CollaborativePredictor.class);
+        CategoryFallback categoryFallback = mock(CategoryFallback.class);
+        RecommendationCache cache = new RecommendationCache(100, Duration.ofMinutes(5), 1, Clock.systemUTC());
+
+        RecommendationService service = new RecommendationService(dishRepository, dishMapper,
+                new InteractionLoader(reviewRepository, orderRepository, ratingMatrixBuilder),
+                factorizationService, collaborativePredictor, categoryFallback, cache,
+                mock(DishRatingService.class), mock(PlatformTransactionManager.class));
+
+        long activeUser = 1L;
+        long otherUser = 2L;
+        RatingData data = new RatingData(Map.of(activeUser, Map.of(), otherUser, Map.of()), Map.of());
+        when(reviewRepository.findAllWithUserAndDish()).thenReturn(List.of());
+        when(orderRepository.streamLinesByStatus(Status.COMPLETED))
+                .thenReturn(Stream.of(new OrderLineDto(10L, activeUser, LocalDateTime.now(), 1)));
+        when(ratingMatrixBuilder.build(any(InteractionLog.class))).thenReturn(data);
+        when(collaborativePredictor.predict(anyLong(), eq(data))).thenReturn(Map.of());
+        List<DishResponseDto> fallback = List.of(new DishResponseDto());
+        when(categoryFallback.recommend(anyLong(), anySet(), eq(1))).thenReturn(fallback);
+        doAnswer(invocation -> {
+            service.recordInteraction(activeUser, 10L, 1.0);
+            return null;
+        }).when(factorizationService).train(any(InteractionLog.class));
+
+        service.refreshRecommendations();
+
+        assertNull(cache.get(activeUser));
+        assertEquals(fallback, cache.get(otherUser));
+    }
 }
@@ -0,0 +1,211 @@
+package com.exampleepam.restaurant.service;
+
+import com.exampleepam.restaurant.dto.order.OrderResponseDto;
+import com.exampleepam.restaurant.entity.Dish;
+import com.exampleepam.restaurant.entity.Order;
+import com.exampleepam.restaurant.entity.OrderItem;
+import com.exampleepam.restaurant.entity.Role;
+import com.exampleepam.restaurant.entity.Status;
+import com.exampleepam.restaurant.entity.User;
+import com.exampleepam.restaurant.entity.paging.KeysetPaged;
+import com.exampleepam.restaurant.entity.paging.Paged;
+import com.exampleepam.restaurant.mapper.OrderMapper;
+import com.exampleepam.restaurant.repository.DishRepository;
+import com.exampleepam.restaurant.repository.OrderRepository;
+import com.exampleepam.restaurant.repository.UserRepository;
+import com.exampleepam.restaurant.security.AuthenticatedUser;
+import com.exampleepam.restaurant.service.forecast.DemandRollupStore;
+import com.exampleepam.restaurant.service.recommendation.InteractionRecordedEvent;
+import com.exampleepam.restaurant.util.ServiceUtil;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrderService.class, OrderMapper.class, ServiceUtil.class, OrderServiceTest.InteractionRecorder.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class OrderServiceTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private DishRepository dishRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private InteractionRecorder interactions;
+    @MockBean
+    private UserService userService;
+    @MockBean
+    private DemandRollupStore demandRollupStore;
+
+    @AfterEach
+    void clear() {
+        orderRepository.deleteAll();
+        dishRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+        interactions.events.clear();
+    }
+
+    @Test
+    void keysetPagesFollowCursorAndBreakTimeTiesById() {
+        User user = userRepository.save(new User("Client", "secret", "client@example.com", Role.USER));
+        Order oldest = order(user, NOON.minusHours(2), Status.COMPLETED);
+        Order tiedFirst = order(user, NOON.minusHours(1), Status.PENDING);
+        Order tiedSecond = order(user, NOON.minusHours(1), Status.COOKING);
+        Order newest = order(user, NOON, Status.DELIVERING);
+
+        KeysetPaged<OrderResponseDto> first = orderService.findKeysetPage(2, "all", null, false);
+        assertEquals(List.of(newest.getId(), tiedSecond.getId()), ids(first));
+        assertNull(first.getCursor());
+        assertNotNull(first.getNextCursor());
+        assertNull(first.getApproximateTotal());
+
+        KeysetPaged<OrderResponseDto> last = orderService.findKeysetPage(2, "all", first.getNextCursor(), false);
+        assertEquals(List.of(tiedFirst.getId(), oldest.getId()), ids(last));
+        assertEquals(first.getNextCursor(), last.getCursor());
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    void pageIssuesConstantNumberOfStatements() {
+        User user = userRepository.save(new User("Client", "secret", "client@example.com", Role.USER));
+        Dish soup = dish("Soup");
+        Dish salad = dish("Salad");
+        for (int i = 0; i < 5; i++) {
+            order(user, NOON.minusHours(i), Status.COMPLETED, soup, salad);
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        KeysetPaged<OrderResponseDto> first = orderService.findKeysetPage(2, "all", null, false);
+        assertEquals(2, statistics.getPrepareStatementCount(), "keyset ids + listing");
+        assertEquals(2, first.getPage().getContent().get(0).getOrderItems().size());
+
+        statistics.clear();
+        orderService.findKeysetPage(2, "all", first.getNextCursor(), false);
+        assertEquals(2, statistics.getPrepareStatementCount(), "keyset ids + listing");
+
+        statistics.clear();
+        orderService.findPaginated(2, 2, "creationDateTime", "desc", "all");
+        assertEquals(3, statistics.getPrepareStatementCount(), "page ids + count + listing");
+    }
+
+    @Test
+    void userHistoriesContainOnlyThatUsersOrders() {
+        User client = userRepository.save(new User("Client", "secret", "client@example.com", Role.USER));
+        User other = userRepository.save(new User("Other", "secret", "other@example.com", Role.USER));
+        Order pending = order(client, NOON.minusHours(3), Status.PENDING);
+        Order cooking = order(client, NOON.minusHours(2), Status.COOKING);
+        order(client, NOON.minusHours(1), Status.COMPLETED);
+        order(other, NOON.minusMinutes(30), Status.PENDING);
+        order(other, NOON, Status.COOKING);
+        AuthenticatedUser auth = new AuthenticatedUser(client);
+
+        Paged<OrderResponseDto> pendingPage = orderService.findPaginatedByUser(1, 10, "creationDateTime", "desc",
+                "pending", auth);
+        assertEquals(List.of(pending.getId()), ids(pendingPage.getPage().getContent()));
+        Paged<OrderResponseDto> activePage = orderService.findPaginatedByUser(1, 10, "creationDateTime", "desc",
+                "active", auth);
+        assertEquals(List.of(cooking.getId(), pending.getId()), ids(activePage.getPage().getContent()));
+
+        KeysetPaged<OrderResponseDto> pendingKeyset = orderService.findKeysetPageByUser(10, "pending", null, true, auth);
+        assertEquals(List.of(pending.getId()), ids(pendingKeyset));
+        assertEquals(1L, pendingKeyset.getApproximateTotal());
+        KeysetPaged<OrderResponseDto> activeKeyset = orderService.findKeysetPageByUser(10, "active", null, true, auth);
+        assertEquals(List.of(cooking.getId(), pending.getId()), ids(activeKeyset));
+        assertEquals(2L, activeKeyset.getApproximateTotal());
+    }
+
+    @Test
+    void completedOrderLinesReachTheRecommenderOnlyAfterCommit() {
+        User user = userRepository.save(new User("Client", "secret", "client@example.com", Role.USER));
+        Dish dish = dish("Borscht");
+        Order rolledBack = order(user, NOON, Status.DELIVERING, dish);
+        Order committed = order(user, NOON, Status.DELIVERING, dish);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+            orderService.setNextStatus(rolledBack.getId());
+            tx.setRollbackOnly();
+        });
+        assertTrue(interactions.events.isEmpty());
+        assertEquals(Status.DELIVERING, orderRepository.findById(rolledBack.getId()).orElseThrow().getStatus());
+
+        orderService.setNextStatus(committed.getId());
+        assertEquals(List.of(new InteractionRecordedEvent(user.getId(), dish.getId(), 1.0)), interactions.events);
+    }
+
+    private Order order(User user, LocalDateTime created, Status status, Dish... dishes) {
+        Order order = new Order();
+        order.setUser(user);
+        order.setStatus(status);
+        order.setCreationDateTime(created);
+        order.setUpdateDateTime(created);
+        order.setTotalPrice(BigDecimal.TEN);
+        order.setOrderItems(new ArrayList<>());
+        for (Dish dish : dishes) {
+            OrderItem item = new OrderItem(dish, 1);
+            item.setOrder(order);
+            order.addOrderItem(item);
+        }
+        return orderRepository.save(order);
+    }
+
+    private Dish dish(String name) {
+        Dish dish = new Dish();
+        dish.setName(name);
+        dish.setPrice(BigDecimal.TEN);
+        return dishRepository.save(dish);
+    }
+
+    private static List<Long> ids(KeysetPaged<OrderResponseDto> page) {
+        return ids(page.getPage().getContent());
+    }
+
+    private static List<Long> ids(List<OrderResponseDto> orders) {
+        return orders.stream().map(OrderResponseDto::getId).toList();
+    }
+
+    @TestConfiguration
+    static class InteractionRecorder {
+
+        final List<InteractionRecordedEvent> events = new CopyOnWriteArrayList<>();
+
+        @TransactionalEventListener
+        void onInteractionRecorded(InteractionRecordedEvent event) {
+            events.add(event);
+        }
+    }
+}